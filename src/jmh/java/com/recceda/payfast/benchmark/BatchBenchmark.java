@@ -0,0 +1,73 @@
+package com.recceda.payfast.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.model.BatchResult;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PaymentRequest;
+
+/**
+ * Bulk checkout link generation. Scores are requests per millisecond, so compare
+ * across thread counts to see how the batch API scales with cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private PayFastService service;
+    private ExecutorService executor;
+    private List<PaymentRequest> requests;
+
+    @Setup
+    public void setUp() throws PayFastException {
+        service = new PayFastService(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, BenchmarkFixtures.PASSPHRASE, true));
+        executor = Executors.newFixedThreadPool(threads);
+        requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            PaymentRequest request = BenchmarkFixtures.paymentRequest(i % 2 == 0 ? "ascii" : "utf8");
+            request.setMPaymentId("INV-" + i);
+            requests.add(request);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchResult<PayFastFormData> createPaymentFormDataBatch() throws PayFastException {
+        return service.createPaymentFormDataBatch(requests, executor);
+    }
+}
@@ -0,0 +1,123 @@
+package com.recceda.payfast.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.SubscriptionRequest;
+
+/**
+ * Realistic request and notification data shared by the benchmarks
+ */
+final class BenchmarkFixtures {
+    static final String MERCHANT_ID = "10000100";
+    static final String MERCHANT_KEY = "46f0cd694581a";
+    static final String PASSPHRASE = "jt7NOE43FZPn";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Checkout parameters in PayFast order. The "utf8" variant uses buyer and item
+     * details that need multi-byte encoding, the "ascii" variant only plain text.
+     */
+    static Map<String, String> checkoutParams(String charset) {
+        boolean utf8 = "utf8".equals(charset);
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("merchant_id", MERCHANT_ID);
+        params.put("merchant_key", MERCHANT_KEY);
+        params.put("return_url", "https://shop.example.co.za/checkout/return?order=84213");
+        params.put("cancel_url", "https://shop.example.co.za/checkout/cancel?order=84213");
+        params.put("notify_url", "https://shop.example.co.za/payfast/notify");
+        params.put("name_first", utf8 ? "Thandiwe Zoë" : "Thandiwe");
+        params.put("name_last", utf8 ? "Müller-Nkosi" : "Nkosi");
+        params.put("email_address", "thandiwe.nkosi@example.co.za");
+        params.put("m_payment_id", "ORDER-2024-0000084213");
+        params.put("amount", "1249.99");
+        params.put("item_name", utf8 ? "Café Crème € Gift Box – Deluxe" : "Coffee Gift Box Deluxe");
+        params.put("item_description", utf8
+            ? "Sélection of 12 single-origin cafés, naïve blends & “special” roasts ☕"
+            : "Selection of 12 single-origin coffees, house blends & special roasts");
+        params.put("custom_str1", "campaign=spring sale");
+        return params;
+    }
+
+    static Map<String, String> notificationParams(String charset) {
+        boolean utf8 = "utf8".equals(charset);
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("m_payment_id", "ORDER-2024-0000084213");
+        params.put("pf_payment_id", "1089250");
+        params.put("payment_status", "COMPLETE");
+        params.put("item_name", utf8 ? "Café Crème € Gift Box – Deluxe" : "Coffee Gift Box Deluxe");
+        params.put("item_description", utf8
+            ? "Sélection of 12 single-origin cafés, naïve blends & “special” roasts ☕"
+            : "Selection of 12 single-origin coffees, house blends & special roasts");
+        params.put("amount_gross", "1249.99");
+        params.put("amount_fee", "-28.75");
+        params.put("amount_net", "1221.24");
+        params.put("custom_str1", "campaign=spring sale");
+        params.put("name_first", utf8 ? "Thandiwe Zoë" : "Thandiwe");
+        params.put("name_last", utf8 ? "Müller-Nkosi" : "Nkosi");
+        params.put("email_address", "thandiwe.nkosi@example.co.za");
+        params.put("merchant_id", MERCHANT_ID);
+        return params;
+    }
+
+    /**
+     * Encode parameters the way PayFast posts them to the notify URL
+     */
+    static String toPostBody(Map<String, String> params) {
+        StringBuilder body = new StringBuilder();
+        try {
+            for (Map.Entry<String, String> entry : params.entrySet()) {
+                if (body.length() > 0) body.append('&');
+                body.append(entry.getKey()).append('=').append(URLEncoder.encode(entry.getValue(), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return body.toString();
+    }
+
+    static PaymentRequest paymentRequest(String charset) {
+        Map<String, String> params = checkoutParams(charset);
+        PaymentRequest request = new PaymentRequest();
+        request.setReturnUrl(params.get("return_url"));
+        request.setCancelUrl(params.get("cancel_url"));
+        request.setNotifyUrl(params.get("notify_url"));
+        request.setNameFirst(params.get("name_first"));
+        request.setNameLast(params.get("name_last"));
+        request.setEmailAddress(params.get("email_address"));
+        request.setMPaymentId(params.get("m_payment_id"));
+        request.setAmount(new BigDecimal(params.get("amount")));
+        request.setItemName(params.get("item_name"));
+        request.setItemDescription(params.get("item_description"));
+        return request;
+    }
+
+    static SubscriptionRequest subscriptionRequest(String charset) {
+        Map<String, String> params = checkoutParams(charset);
+        SubscriptionRequest request = new SubscriptionRequest();
+        request.setReturnUrl(params.get("return_url"));
+        request.setCancelUrl(params.get("cancel_url"));
+        request.setNotifyUrl(params.get("notify_url"));
+        request.setNameFirst(params.get("name_first"));
+        request.setNameLast(params.get("name_last"));
+        request.setEmailAddress(params.get("email_address"));
+        request.setMPaymentId(params.get("m_payment_id"));
+        request.setAmount(new BigDecimal("199.00"));
+        request.setItemName(params.get("item_name"));
+        request.setItemDescription(params.get("item_description"));
+        request.setSubscriptionType("1");
+        request.setRecurringAmount(19900);
+        request.setFrequency(3);
+        request.setCycles(12);
+        request.setSubscriptionNotifyEmail(true);
+        request.setSubscriptionNotifyWebhook(true);
+        request.setSubscriptionNotifyBuyer(false);
+        return request;
+    }
+}
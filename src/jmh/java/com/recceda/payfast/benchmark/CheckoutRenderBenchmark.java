@@ -0,0 +1,81 @@
+package com.recceda.payfast.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.render.CheckoutRenderer;
+
+/**
+ * Writing the checkout page into a reused buffer against building it as a String
+ * field by field and encoding that
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckoutRenderBenchmark {
+
+    @Param({"ascii", "utf8"})
+    public String charset;
+
+    private PayFastFormData formData;
+    private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+    @Setup
+    public void setUp() throws PayFastException {
+        PayFastService service = new PayFastService(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, BenchmarkFixtures.PASSPHRASE, true));
+        formData = service.createPaymentFormData(BenchmarkFixtures.paymentRequest(charset));
+    }
+
+    @Benchmark
+    public byte[] concatenatedHtml() {
+        StringBuilder html = new StringBuilder("<form action=\"").append(escape(formData.getAction()))
+            .append("\" method=\"POST\">\n");
+        for (Map.Entry<String, String> field : formData.getFields().entrySet()) {
+            html.append("<input type=\"hidden\" name=\"").append(escape(field.getKey()))
+                .append("\" value=\"").append(escape(field.getValue())).append("\">\n");
+        }
+        return html.append("</form>\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ByteBuffer renderedHtml() {
+        buffer.clear();
+        CheckoutRenderer.renderHtmlForm(formData, true, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public StringBuilder renderedRedirectUrl() throws IOException {
+        StringBuilder url = new StringBuilder(512);
+        CheckoutRenderer.renderRedirectUrl(formData, url);
+        return url;
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+            .replace("\"", "&quot;").replace("'", "&#39;");
+    }
+}
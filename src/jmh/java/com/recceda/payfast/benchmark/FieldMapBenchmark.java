@@ -0,0 +1,69 @@
+package com.recceda.payfast.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.recceda.payfast.model.PayFastFields;
+
+/**
+ * Filling a checkout's fields, reading each back and iterating them, in a general-purpose
+ * ordered map against the perfect-hash {@link PayFastFields}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldMapBenchmark {
+
+    private String[] names;
+    private String[] values;
+
+    @Setup
+    public void setUp() {
+        List<String> names = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        BenchmarkFixtures.checkoutParams("ascii").forEach((name, value) -> {
+            names.add(name);
+            values.add(value);
+        });
+        this.names = names.toArray(new String[0]);
+        this.values = values.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void linkedHashMap(Blackhole blackhole) {
+        exercise(new LinkedHashMap<>(), blackhole);
+    }
+
+    @Benchmark
+    public void payFastFields(Blackhole blackhole) {
+        exercise(new PayFastFields(), blackhole);
+    }
+
+    private void exercise(Map<String, String> fields, Blackhole blackhole) {
+        for (int i = 0; i < names.length; i++) {
+            fields.put(names[i], values[i]);
+        }
+        for (String name : names) {
+            blackhole.consume(fields.get(name));
+        }
+        fields.forEach((name, value) -> blackhole.consume(value));
+    }
+}
@@ -0,0 +1,98 @@
+package com.recceda.payfast.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.model.ImmutablePaymentRequest;
+import com.recceda.payfast.model.ImmutableSubscriptionRequest;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.Subscriber;
+import com.recceda.payfast.model.SubscriptionPlan;
+import com.recceda.payfast.model.SubscriptionRequest;
+
+/**
+ * Checkout form building including validation and signing
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FormDataBenchmark {
+
+    @Param({"ascii", "utf8"})
+    public String charset;
+
+    @Param({"", BenchmarkFixtures.PASSPHRASE})
+    public String passphrase;
+
+    private PayFastService service;
+    private PayFastService subscriptionService;
+    private PaymentRequest paymentRequest;
+    private SubscriptionRequest subscriptionRequest;
+    private ImmutablePaymentRequest immutablePaymentRequest;
+    private ImmutableSubscriptionRequest immutableSubscriptionRequest;
+    private SubscriptionPlan subscriptionPlan;
+    private Subscriber subscriber;
+
+    @Setup
+    public void setUp() throws PayFastException {
+        service = new PayFastService(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, passphrase, true));
+        // Subscriptions always require a passphrase
+        subscriptionService = new PayFastService(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, BenchmarkFixtures.PASSPHRASE, true));
+        paymentRequest = BenchmarkFixtures.paymentRequest(charset);
+        subscriptionRequest = BenchmarkFixtures.subscriptionRequest(charset);
+        immutablePaymentRequest = ImmutablePaymentRequest.from(paymentRequest);
+        immutableSubscriptionRequest = ImmutableSubscriptionRequest.from(subscriptionRequest);
+        subscriptionPlan = SubscriptionPlan.of(subscriptionRequest);
+        subscriber = new Subscriber();
+        subscriber.setNameFirst(subscriptionRequest.getNameFirst());
+        subscriber.setNameLast(subscriptionRequest.getNameLast());
+        subscriber.setEmailAddress(subscriptionRequest.getEmailAddress());
+        subscriber.setMPaymentId(subscriptionRequest.getMPaymentId());
+        subscriber.setBillingDate(subscriptionRequest.getBillingDate());
+    }
+
+    @Benchmark
+    public PayFastFormData createPaymentFormData() throws PayFastException {
+        return service.createPaymentFormData(paymentRequest);
+    }
+
+    @Benchmark
+    public PayFastFormData createSubscriptionFormData() throws PayFastException {
+        return subscriptionService.createSubscriptionFormData(subscriptionRequest);
+    }
+
+    @Benchmark
+    public PayFastFormData createFormDataImmutablePayment() throws PayFastException {
+        return service.createFormData(immutablePaymentRequest);
+    }
+
+    @Benchmark
+    public PayFastFormData createFormDataImmutableSubscription() throws PayFastException {
+        return subscriptionService.createFormData(immutableSubscriptionRequest);
+    }
+
+    @Benchmark
+    public PayFastFormData createSubscriptionFormDataFromPlan() throws PayFastException {
+        return subscriptionService.createSubscriptionFormData(subscriptionPlan, subscriber);
+    }
+}
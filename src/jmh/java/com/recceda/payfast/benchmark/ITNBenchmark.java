@@ -0,0 +1,89 @@
+package com.recceda.payfast.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.model.NotificationData;
+import com.recceda.payfast.util.SignatureUtil;
+
+/**
+ * Webhook processing: parsing the posted body, validating and mapping the notification
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ITNBenchmark {
+
+    @Param({"ascii", "utf8"})
+    public String charset;
+
+    @Param({"", BenchmarkFixtures.PASSPHRASE})
+    public String passphrase;
+
+    private ITNHandler handler;
+    private String body;
+    private byte[] bodyBytes;
+    private Map<String, String> params;
+
+    @Setup
+    public void setUp() throws PayFastException {
+        handler = new ITNHandler(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, passphrase, true));
+        params = BenchmarkFixtures.notificationParams(charset);
+        params.put("signature", SignatureUtil.generateSignatureFromParams(params, passphrase));
+        body = BenchmarkFixtures.toPostBody(params);
+        bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Map<String, String> parseNotificationString() throws PayFastException {
+        return handler.parseNotificationString(body);
+    }
+
+    @Benchmark
+    public String parseNotificationBody() throws PayFastException {
+        return handler.parseNotificationBody(bodyBytes).get("payment_status");
+    }
+
+    @Benchmark
+    public boolean validateITNBody() throws PayFastException {
+        return handler.validateITN(handler.parseNotificationBody(bodyBytes));
+    }
+
+    @Benchmark
+    public ITNResult validateAndParse() throws PayFastException {
+        return handler.validateAndParse(bodyBytes);
+    }
+
+    @Benchmark
+    public boolean validateITN() throws PayFastException {
+        return handler.validateITN(params);
+    }
+
+    @Benchmark
+    public NotificationData parseValidateAndMap() throws PayFastException {
+        Map<String, String> parsed = handler.parseNotificationString(body);
+        handler.validateITN(parsed);
+        return handler.parseNotification(parsed);
+    }
+}
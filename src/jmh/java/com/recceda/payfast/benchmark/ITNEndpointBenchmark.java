@@ -0,0 +1,97 @@
+package com.recceda.payfast.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.util.SignatureUtil;
+import com.recceda.payfast.webhook.ITNEndpoint;
+
+/**
+ * Concurrent webhook deliveries against a local {@link ITNEndpoint}: each JMH thread is a
+ * client posting signed ITNs over a keep-alive connection
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ITNEndpointBenchmark {
+
+    @Param({"first", "after"})
+    public String acknowledge;
+
+    private ITNEndpoint endpoint;
+    private URL url;
+    private byte[] body;
+    private final LongAdder delivered = new LongAdder();
+
+    @Setup(Level.Trial)
+    public void setUp() throws PayFastException, IOException {
+        ITNHandler handler = new ITNHandler(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, BenchmarkFixtures.PASSPHRASE, true));
+        Map<String, String> params = BenchmarkFixtures.notificationParams("ascii");
+        params.put("signature", SignatureUtil.generateSignatureFromParams(params, BenchmarkFixtures.PASSPHRASE));
+        body = BenchmarkFixtures.toPostBody(params).getBytes(StandardCharsets.UTF_8);
+
+        ITNEndpoint.Builder builder = ITNEndpoint.builder(result -> delivered.increment())
+            .handler(handler).address(new InetSocketAddress("127.0.0.1", 0)).backlog(1024);
+        if ("after".equals(acknowledge)) {
+            builder.acknowledgeAfterProcessing();
+        }
+        endpoint = builder.build();
+        endpoint.start();
+        url = new URL("http://127.0.0.1:" + endpoint.getAddress().getPort() + "/payfast/itn");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        endpoint.close();
+    }
+
+    @Benchmark
+    public int deliver() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        int status = connection.getResponseCode();
+        try (InputStream in = connection.getInputStream()) {
+            // Drained so the connection is kept alive for the next delivery
+            while (in.read() != -1) {
+            }
+        }
+        return status;
+    }
+}
@@ -0,0 +1,116 @@
+package com.recceda.payfast.benchmark;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.util.SignatureUtil;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+
+/**
+ * Request paths with the SDK logging at INFO, as in a default production setup. Output goes
+ * through a real pattern encoder into a discarding stream, so formatting and appender
+ * locking are measured without console I/O.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    private PayFastService service;
+    private PaymentRequest paymentRequest;
+    private byte[] validBody;
+    private byte[] forgedBody;
+    private OutputStreamAppender<ILoggingEvent> appender;
+
+    @Setup(Level.Trial)
+    public void setUp() throws PayFastException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        appender.start();
+        ch.qos.logback.classic.Logger sdk = context.getLogger("com.recceda.payfast");
+        sdk.setLevel(ch.qos.logback.classic.Level.INFO);
+        sdk.setAdditive(false);
+        sdk.addAppender(appender);
+
+        service = new PayFastService(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, BenchmarkFixtures.PASSPHRASE, true));
+        paymentRequest = BenchmarkFixtures.paymentRequest("ascii");
+        Map<String, String> params = BenchmarkFixtures.notificationParams("ascii");
+        params.put("signature", SignatureUtil.generateSignatureFromParams(params, BenchmarkFixtures.PASSPHRASE));
+        validBody = BenchmarkFixtures.toPostBody(params).getBytes(StandardCharsets.UTF_8);
+        params.put("signature", "00000000000000000000000000000000");
+        forgedBody = BenchmarkFixtures.toPostBody(params).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        ch.qos.logback.classic.Logger sdk = context.getLogger("com.recceda.payfast");
+        sdk.detachAppender(appender);
+        sdk.setAdditive(true);
+        sdk.setLevel(null);
+        appender.stop();
+    }
+
+    @Benchmark
+    public PayFastFormData createPaymentFormData() throws PayFastException {
+        return service.createPaymentFormData(paymentRequest);
+    }
+
+    @Benchmark
+    public ITNResult validateAndParse() throws PayFastException {
+        return service.getITNHandler().validateAndParse(validBody);
+    }
+
+    /**
+     * A flood of forged notifications, each of which used to log a line
+     */
+    @Benchmark
+    public ITNResult validateAndParseForged() throws PayFastException {
+        return service.getITNHandler().validateAndParse(forgedBody);
+    }
+}
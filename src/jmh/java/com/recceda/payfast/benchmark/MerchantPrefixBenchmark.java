@@ -0,0 +1,76 @@
+package com.recceda.payfast.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.SignatureException;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.PaymentRequestFieldWriter;
+import com.recceda.payfast.util.MerchantSigningState;
+import com.recceda.payfast.util.SignatureEngine;
+
+/**
+ * Signing a checkout request from scratch against resuming from the per-merchant digest
+ * prefix (merchant fields and URLs hashed once), and with URLs that miss the prefix
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MerchantPrefixBenchmark {
+
+    @Param({"ascii", "utf8"})
+    public String charset;
+
+    private MerchantSigningState merchant;
+    private PaymentRequest paymentRequest;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws PayFastException {
+        merchant = MerchantSigningState.of(new PayFastConfig(
+            BenchmarkFixtures.MERCHANT_ID, BenchmarkFixtures.MERCHANT_KEY, BenchmarkFixtures.PASSPHRASE, true));
+        paymentRequest = BenchmarkFixtures.paymentRequest(charset);
+        paymentRequest.setMerchantId(BenchmarkFixtures.MERCHANT_ID);
+        paymentRequest.setMerchantKey(BenchmarkFixtures.MERCHANT_KEY);
+    }
+
+    @Benchmark
+    public String signFromScratch() throws SignatureException {
+        SignatureEngine engine = SignatureEngine.current();
+        PaymentRequestFieldWriter.INSTANCE.write(paymentRequest, engine);
+        return engine.addPassphrase(BenchmarkFixtures.PASSPHRASE).sign();
+    }
+
+    @Benchmark
+    public String signFromMerchantPrefix() throws SignatureException {
+        SignatureEngine engine = merchant.begin(
+            paymentRequest.getReturnUrl(), paymentRequest.getCancelUrl(), paymentRequest.getNotifyUrl());
+        PaymentRequestFieldWriter.INSTANCE.write(paymentRequest, merchant.requestFields(engine));
+        return merchant.sign(engine);
+    }
+
+    @Benchmark
+    public String signWithChangingUrls() throws SignatureException {
+        SignatureEngine engine = merchant.begin(
+            paymentRequest.getReturnUrl() + "?n=" + (sequence++ & 7),
+            paymentRequest.getCancelUrl(), paymentRequest.getNotifyUrl());
+        PaymentRequestFieldWriter.INSTANCE.write(paymentRequest, merchant.requestFields(engine));
+        return merchant.sign(engine);
+    }
+}
@@ -0,0 +1,69 @@
+package com.recceda.payfast.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.recceda.payfast.exception.SignatureException;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.util.SignatureUtil;
+
+/**
+ * Signature generation and validation as used by checkout and ITN handling
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SignatureBenchmark {
+
+    @Param({"ascii", "utf8"})
+    public String charset;
+
+    @Param({"", BenchmarkFixtures.PASSPHRASE})
+    public String passphrase;
+
+    private Map<String, String> checkoutParams;
+    private Map<String, String> notificationParams;
+    private String notificationSignature;
+    private PaymentRequest paymentRequest;
+
+    @Setup
+    public void setUp() throws SignatureException {
+        checkoutParams = BenchmarkFixtures.checkoutParams(charset);
+        notificationParams = BenchmarkFixtures.notificationParams(charset);
+        paymentRequest = BenchmarkFixtures.paymentRequest(charset);
+        paymentRequest.setMerchantId(BenchmarkFixtures.MERCHANT_ID);
+        paymentRequest.setMerchantKey(BenchmarkFixtures.MERCHANT_KEY);
+        notificationSignature = SignatureUtil.generateSignatureFromParams(notificationParams, passphrase);
+        notificationParams.put("signature", notificationSignature);
+    }
+
+    @Benchmark
+    public String generateSignatureFromParams() throws SignatureException {
+        return SignatureUtil.generateSignatureFromParams(checkoutParams, passphrase);
+    }
+
+    @Benchmark
+    public String generateSignatureFromRequest() throws SignatureException {
+        return SignatureUtil.generateSignature(paymentRequest, passphrase);
+    }
+
+    @Benchmark
+    public boolean validateSignature() throws SignatureException {
+        return SignatureUtil.validateSignature(notificationParams, notificationSignature, passphrase);
+    }
+}
@@ -0,0 +1,190 @@
+package com.recceda.payfast;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.handler.ITNBody;
+import com.recceda.payfast.handler.ITNConfirmationClient;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.model.NotificationData;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.SubscriptionRequest;
+
+/**
+ * Non-blocking facade over {@link PayFastService} and {@link ITNHandler}.
+ * <p>
+ * Every call is run on the executor given to the constructor and returns immediately.
+ * Failures complete the future exceptionally with the same {@link PayFastException} the
+ * synchronous API throws, so {@code join()} reports it wrapped in a
+ * {@link java.util.concurrent.CompletionException}. A rejected task fails its future
+ * instead of running on the calling thread.
+ */
+public class PayFastAsyncService {
+    private static final Logger log = LoggerFactory.getLogger(PayFastAsyncService.class);
+
+    private final PayFastService service;
+    private final ITNHandler itnHandler;
+    private final Executor executor;
+
+    /**
+     * Create an async service running on {@link #defaultExecutor()}
+     */
+    public PayFastAsyncService(PayFastConfig config) {
+        this(new PayFastService(config), DefaultExecutor.INSTANCE);
+    }
+
+    public PayFastAsyncService(PayFastService service, Executor executor) {
+        if (service == null || executor == null) {
+            throw new IllegalArgumentException("Service and executor cannot be null");
+        }
+        this.service = service;
+        this.itnHandler = service.getITNHandler();
+        this.executor = executor;
+    }
+
+    /**
+     * Shared executor used when none is supplied: one virtual thread per task when the
+     * runtime supports them (Java 21+), otherwise a cached pool of daemon threads.
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    public PayFastService getService() {
+        return service;
+    }
+
+    public CompletableFuture<PayFastFormData> createPaymentFormData(PaymentRequest request) {
+        return supply(() -> service.createPaymentFormData(request));
+    }
+
+    public CompletableFuture<PayFastFormData> createSubscriptionFormData(SubscriptionRequest request) {
+        return supply(() -> service.createSubscriptionFormData(request));
+    }
+
+    /**
+     * The map is copied in its iteration order before returning, so the caller can reuse it
+     * @see ITNHandler#validateITN(Map)
+     */
+    public CompletableFuture<Boolean> validateITN(Map<String, String> params) {
+        Map<String, String> copy = params == null ? null : new LinkedHashMap<>(params);
+        return supply(() -> itnHandler.validateITN(copy));
+    }
+
+    /**
+     * The body is read on the executor, so the caller must not modify it until the future completes
+     * @see ITNHandler#validateITN(ITNBody)
+     */
+    public CompletableFuture<Boolean> validateITN(ITNBody body) {
+        return supply(() -> itnHandler.validateITN(body));
+    }
+
+    /**
+     * The body is read on the executor, so the caller must not modify it until the future completes
+     * @see ITNHandler#validateAndParse(byte[])
+     */
+    public CompletableFuture<ITNResult> validateAndParse(byte[] body) {
+        return supply(() -> itnHandler.validateAndParse(body));
+    }
+
+    /**
+     * The remaining bytes are copied before returning, so event-loop buffers can be
+     * released or reused straight away
+     * @see ITNHandler#validateAndParse(ByteBuffer)
+     */
+    public CompletableFuture<ITNResult> validateAndParse(ByteBuffer body) {
+        if (body == null) {
+            return supply(() -> itnHandler.validateAndParse((ByteBuffer) null));
+        }
+        byte[] copy = new byte[body.remaining()];
+        body.duplicate().get(copy);
+        return supply(() -> itnHandler.validateAndParse(copy));
+    }
+
+    public CompletableFuture<ITNResult> validateAndParse(String itnData) {
+        return supply(() -> itnHandler.validateAndParse(itnData));
+    }
+
+    /**
+     * Confirm the ITN with PayFast. This is the only network call of the facade.
+     * The body is read on the executor, so the caller must not modify it until the future completes
+     * @see ITNConfirmationClient#confirm(ITNBody)
+     */
+    public CompletableFuture<Boolean> confirmITN(ITNBody body) {
+        return supply(() -> service.getITNConfirmationClient().confirm(body));
+    }
+
+    /**
+     * @see #confirmITN(ITNBody)
+     */
+    public CompletableFuture<Boolean> confirmITN(byte[] body) {
+        return supply(() -> service.getITNConfirmationClient().confirm(body));
+    }
+
+    public CompletableFuture<NotificationData> parseNotification(Map<String, String> params) {
+        // Copy so the caller can recycle its map once this returns
+        Map<String, String> copy = params == null ? null : new HashMap<>(params);
+        return supply(() -> itnHandler.parseNotification(copy));
+    }
+
+    public CompletableFuture<Map<String, String>> parseNotificationString(String itnData) {
+        return supply(() -> itnHandler.parseNotificationString(itnData));
+    }
+
+    private <T> CompletableFuture<T> supply(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("PayFast async task rejected by executor");
+            future.completeExceptionally(new PayFastException("PayFast async task rejected", e));
+        }
+        return future;
+    }
+
+    private interface Task<T> {
+        T call() throws PayFastException;
+    }
+
+    private static final class DefaultExecutor {
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                // Looked up reflectively so the SDK still runs on Java 8
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                log.debug("Using virtual threads for PayFast async tasks");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                AtomicInteger count = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "payfast-async-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+}
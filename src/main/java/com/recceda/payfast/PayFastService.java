@@ -1,33 +1,108 @@
 package com.recceda.payfast;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ConfigurationException;
 import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.SignatureException;
 import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNConfirmationClient;
 import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.metrics.Operation;
+import com.recceda.payfast.metrics.PayFastMetrics;
+import com.recceda.payfast.model.BatchResult;
+import com.recceda.payfast.model.EncodedRequest;
 import com.recceda.payfast.model.PayFastFormData;
 import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.PaymentRequestFieldWriter;
+import com.recceda.payfast.model.RequestValidator;
+import com.recceda.payfast.model.Subscriber;
+import com.recceda.payfast.model.SubscriptionPlan;
 import com.recceda.payfast.model.SubscriptionRequest;
-import com.recceda.payfast.util.SignatureUtil;
+import com.recceda.payfast.model.SubscriptionRequestFieldWriter;
+import com.recceda.payfast.util.MerchantSigningState;
+import com.recceda.payfast.util.SignatureEngine;
 
 public class PayFastService {
     private static final Logger log = LoggerFactory.getLogger(PayFastService.class);
+    // Work is split into a few chunks per core so uneven items still balance across threads
+    private static final int BATCH_CHUNKS_PER_THREAD = 4;
     private final PayFastConfig config;
+    private final MerchantSigningState merchant;
     private final ITNHandler itnHandler;
+    private final PayFastMetrics metrics;
+    private final boolean timed;
+    private volatile ITNConfirmationClient itnConfirmationClient;
     
     public PayFastService(PayFastConfig config) {
+        this(config, PayFastMetrics.NOOP);
+    }
+    
+    /**
+     * Create a service reporting timings and counts, shared with its ITN handler
+     */
+    public PayFastService(PayFastConfig config, PayFastMetrics metrics) {
         this.config = config;
-        this.itnHandler = new ITNHandler(config);
+        this.merchant = MerchantSigningState.of(config);
+        this.metrics = metrics == null ? PayFastMetrics.NOOP : metrics;
+        this.timed = this.metrics.isEnabled();
+        this.itnHandler = new ITNHandler(config, merchant, this.metrics);
     }
     
     public ITNHandler getITNHandler() {
         return itnHandler;
     }
     
+    public PayFastMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * @return the merchant credentials and URLs precomputed from the config
+     */
+    public MerchantSigningState getMerchantSigningState() {
+        return merchant;
+    }
+    
+    /**
+     * @return the client confirming ITNs with PayFast, created with default settings on first use
+     * @throws ConfigurationException if the client cannot be created
+     */
+    public ITNConfirmationClient getITNConfirmationClient() throws ConfigurationException {
+        ITNConfirmationClient client = itnConfirmationClient;
+        if (client == null) {
+            synchronized (this) {
+                client = itnConfirmationClient;
+                if (client == null) {
+                    client = new ITNConfirmationClient(config);
+                    itnConfirmationClient = client;
+                }
+            }
+        }
+        return client;
+    }
+    
+    /**
+     * Use a client with custom timeouts or concurrency limits for ITN confirmation
+     */
+    public void setITNConfirmationClient(ITNConfirmationClient itnConfirmationClient) {
+        this.itnConfirmationClient = itnConfirmationClient;
+    }
+    
     /**
      * Create payment form data with flexible fields and proper signature generation
      * @param request The payment request
@@ -35,45 +110,67 @@ public class PayFastService {
      * @throws PayFastException if form data generation fails
      */
     public PayFastFormData createPaymentFormData(PaymentRequest request) throws PayFastException {
+        return paymentFormData(request, true);
+    }
+    
+    /**
+     * Same as {@link #createPaymentFormData(PaymentRequest)}, but a failure is only thrown,
+     * not logged, for bulk callers that collect and report failures themselves
+     */
+    public PayFastFormData createPaymentFormDataQuietly(PaymentRequest request) throws PayFastException {
+        return paymentFormData(request, false);
+    }
+    
+    /**
+     * @param logFailure false inside batches, which report failures once for the whole batch
+     */
+    private PayFastFormData paymentFormData(PaymentRequest request, boolean logFailure) throws PayFastException {
+        if (!timed) {
+            return buildPaymentFormData(request, logFailure);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            PayFastFormData formData = buildPaymentFormData(request, logFailure);
+            success = true;
+            return formData;
+        } finally {
+            metrics.recordTime(Operation.PAYMENT_FORM, System.nanoTime() - start, success);
+        }
+    }
+    
+    private PayFastFormData buildPaymentFormData(PaymentRequest request, boolean logFailure) throws PayFastException {
         validatePaymentRequest(request);
         
         try {
             // Set merchant credentials
-            request.setMerchantId(config.getMerchantId());
-            request.setMerchantKey(config.getMerchantKey());
+            request.setMerchantId(merchant.getMerchantId());
+            request.setMerchantKey(merchant.getMerchantKey());
             
             // Create form data with PayFast process URL
-            PayFastFormData formData = new PayFastFormData(config.getBaseUrl() + "/eng/process");
+            PayFastFormData formData = new PayFastFormData(merchant.getActionUrl());
             
-            // Add fields in PayFast expected order for proper signature generation
-            addFieldIfPresent(formData, "merchant_id", request.getMerchantId());
-            addFieldIfPresent(formData, "merchant_key", request.getMerchantKey());
-            addFieldIfPresent(formData, "return_url", request.getReturnUrl());
-            addFieldIfPresent(formData, "cancel_url", request.getCancelUrl());
-            addFieldIfPresent(formData, "notify_url", request.getNotifyUrl());
+            // Add fields in PayFast expected order using the generated writer
+            PaymentRequestFieldWriter.INSTANCE.write(request, formData);
             
-            // Buyer details
-            addFieldIfPresent(formData, "name_first", request.getNameFirst());
-            addFieldIfPresent(formData, "name_last", request.getNameLast());
-            addFieldIfPresent(formData, "email_address", request.getEmailAddress());
+            // Generate signature by feeding the same fields straight into the digest, resuming
+            // after the merchant fields and URLs hashed for earlier requests (signature will be added last)
+            SignatureEngine engine = merchant.begin(request.getReturnUrl(), request.getCancelUrl(), request.getNotifyUrl());
+            PaymentRequestFieldWriter.INSTANCE.write(request, merchant.requestFields(engine));
+            formData.addSignature(merchant.sign(engine));
             
-            // Transaction details
-            addFieldIfPresent(formData, "m_payment_id", request.getMPaymentId());
-            if (request.getAmount() != null) {
-                formData.addField("amount", request.getAmount().toString());
+            if (log.isDebugEnabled()) {
+                log.debug("Payment form data created for amount: {}", request.getAmount());
             }
-            addFieldIfPresent(formData, "item_name", request.getItemName());
-            addFieldIfPresent(formData, "item_description", request.getItemDescription());
-            
-            // Generate signature from the fields (signature will be added last)
-            String signature = SignatureUtil.generateSignatureFromParams(formData.getFields(), config.getPassphrase());
-            formData.addSignature(signature);
-            
-            log.info("Payment form data created for amount: {}", request.getAmount());
             return formData;
             
         } catch (Exception e) {
-            log.error("Failed to create payment form data", e);
+            if (timed && e instanceof SignatureException) {
+                metrics.signatureFailure(Operation.PAYMENT_FORM);
+            }
+            if (logFailure) {
+                log.error("Failed to create payment form data", e);
+            }
             throw new PayFastException("Failed to create payment form data", e);
         }
     }
@@ -85,90 +182,364 @@ public class PayFastService {
      * @throws PayFastException if form data generation fails
      */
     public PayFastFormData createSubscriptionFormData(SubscriptionRequest request) throws PayFastException {
+        return subscriptionFormData(request, true);
+    }
+    
+    /**
+     * @param logFailure false inside batches, which report failures once for the whole batch
+     */
+    private PayFastFormData subscriptionFormData(SubscriptionRequest request, boolean logFailure) throws PayFastException {
+        if (!timed) {
+            return buildSubscriptionFormData(request, logFailure);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            PayFastFormData formData = buildSubscriptionFormData(request, logFailure);
+            success = true;
+            return formData;
+        } finally {
+            metrics.recordTime(Operation.SUBSCRIPTION_FORM, System.nanoTime() - start, success);
+        }
+    }
+    
+    private PayFastFormData buildSubscriptionFormData(SubscriptionRequest request, boolean logFailure) throws PayFastException {
         validateSubscriptionRequest(request);
         
         try {
             // Set merchant credentials
-            request.setMerchantId(config.getMerchantId());
-            request.setMerchantKey(config.getMerchantKey());
+            request.setMerchantId(merchant.getMerchantId());
+            request.setMerchantKey(merchant.getMerchantKey());
             
             // Create form data with PayFast process URL
-            PayFastFormData formData = new PayFastFormData(config.getBaseUrl() + "/eng/process");
+            PayFastFormData formData = new PayFastFormData(merchant.getActionUrl());
             
-            // Add fields in PayFast expected order for proper signature generation
-            addFieldIfPresent(formData, "merchant_id", request.getMerchantId());
-            addFieldIfPresent(formData, "merchant_key", request.getMerchantKey());
-            addFieldIfPresent(formData, "return_url", request.getReturnUrl());
-            addFieldIfPresent(formData, "cancel_url", request.getCancelUrl());
-            addFieldIfPresent(formData, "notify_url", request.getNotifyUrl());
+            // Add fields in PayFast expected order using the generated writer
+            SubscriptionRequestFieldWriter.INSTANCE.write(request, formData);
             
-            // Buyer details
-            addFieldIfPresent(formData, "name_first", request.getNameFirst());
-            addFieldIfPresent(formData, "name_last", request.getNameLast());
-            addFieldIfPresent(formData, "email_address", request.getEmailAddress());
+            // Generate signature by feeding the same fields straight into the digest, resuming
+            // after the merchant fields and URLs hashed for earlier requests (signature will be added last)
+            SignatureEngine engine = merchant.begin(request.getReturnUrl(), request.getCancelUrl(), request.getNotifyUrl());
+            SubscriptionRequestFieldWriter.INSTANCE.write(request, merchant.requestFields(engine));
+            formData.addSignature(merchant.sign(engine));
             
-            // Transaction details
-            addFieldIfPresent(formData, "m_payment_id", request.getMPaymentId());
-            if (request.getAmount() != null) {
-                formData.addField("amount", request.getAmount().toString());
+            if (log.isDebugEnabled()) {
+                log.debug("Subscription form data created for amount: {} with frequency: {}", request.getAmount(), request.getFrequency());
             }
-            addFieldIfPresent(formData, "item_name", request.getItemName());
-            addFieldIfPresent(formData, "item_description", request.getItemDescription());
+            return formData;
             
-            // Subscription specific fields
-            addFieldIfPresent(formData, "subscription_type", request.getSubscriptionType());
-            addFieldIfPresent(formData, "billing_date", request.getBillingDate());
-            if (request.getRecurringAmount() != null) {
-                formData.addField("recurring_amount", request.getRecurringAmount().toString());
-            }
-            if (request.getFrequency() != null) {
-                formData.addField("frequency", request.getFrequency().toString());
-            }
-            if (request.getCycles() != null) {
-                formData.addField("cycles", request.getCycles().toString());
-            }
-            if (request.getSubscriptionNotifyEmail() != null) {
-                formData.addField("subscription_notify_email", request.getSubscriptionNotifyEmail().toString());
-            }
-            if (request.getSubscriptionNotifyWebhook() != null) {
-                formData.addField("subscription_notify_webhook", request.getSubscriptionNotifyWebhook().toString());
+        } catch (Exception e) {
+            if (timed && e instanceof SignatureException) {
+                metrics.signatureFailure(Operation.SUBSCRIPTION_FORM);
             }
-            if (request.getSubscriptionNotifyBuyer() != null) {
-                formData.addField("subscription_notify_buyer", request.getSubscriptionNotifyBuyer().toString());
+            if (logFailure) {
+                log.error("Failed to create subscription form data", e);
             }
+            throw new PayFastException("Failed to create subscription form data", e);
+        }
+    }
+    
+    /**
+     * Create subscription form data for one customer of a plan. The plan was validated and
+     * its constant fields encoded when it was created, so only the subscriber's fields are
+     * encoded here.
+     * @param plan The subscription plan
+     * @param subscriber The customer-specific fields
+     * @return PayFastFormData with action URL, method, and ordered fields including signature
+     * @throws PayFastException if form data generation fails
+     */
+    public PayFastFormData createSubscriptionFormData(SubscriptionPlan plan, Subscriber subscriber) throws PayFastException {
+        if (!timed) {
+            return buildSubscriptionFormData(plan, subscriber);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            PayFastFormData formData = buildSubscriptionFormData(plan, subscriber);
+            success = true;
+            return formData;
+        } finally {
+            metrics.recordTime(Operation.SUBSCRIPTION_FORM, System.nanoTime() - start, success);
+        }
+    }
+    
+    private PayFastFormData buildSubscriptionFormData(SubscriptionPlan plan, Subscriber subscriber) throws PayFastException {
+        if (plan == null) {
+            throw new ValidationException("Subscription plan cannot be null");
+        }
+        requirePassphrase();
+        
+        try {
+            PayFastFormData formData = new PayFastFormData(merchant.getActionUrl());
+            formData.addField("merchant_id", merchant.getMerchantId());
+            formData.addField("merchant_key", merchant.getMerchantKey());
+            formData.addField("return_url", plan.getReturnUrl());
+            formData.addField("cancel_url", plan.getCancelUrl());
+            formData.addField("notify_url", plan.getNotifyUrl());
             
-            // Generate signature from the fields (signature will be added last)
-            String signature = SignatureUtil.generateSignatureFromParams(formData.getFields(), config.getPassphrase());
-            formData.addSignature(signature);
+            SignatureEngine engine = merchant.begin(plan.getReturnUrl(), plan.getCancelUrl(), plan.getNotifyUrl());
+            plan.write(subscriber, formData, engine);
+            formData.addSignature(merchant.sign(engine));
             
-            log.info("Subscription form data created for amount: {} with frequency: {}", request.getAmount(), request.getFrequency());
+            if (log.isDebugEnabled()) {
+                log.debug("Subscription form data created from plan for payment ID: {}", subscriber == null ? null : subscriber.getMPaymentId());
+            }
             return formData;
             
         } catch (Exception e) {
+            if (timed && e instanceof SignatureException) {
+                metrics.signatureFailure(Operation.SUBSCRIPTION_FORM);
+            }
             log.error("Failed to create subscription form data", e);
             throw new PayFastException("Failed to create subscription form data", e);
         }
     }
     
     /**
-     * Helper method to add field to form data only if value is present and not empty
+     * Create form data for an immutable payment or subscription. Its fields were encoded
+     * when it was built, so signing only replays them; the same request can be signed
+     * from many threads at once.
+     * @param request The pre-encoded request
+     * @return PayFastFormData with action URL, method, and ordered fields including signature
+     * @throws PayFastException if form data generation fails
      */
-    private void addFieldIfPresent(PayFastFormData formData, String fieldName, String value) {
-        if (value != null && !value.trim().isEmpty()) {
-            formData.addField(fieldName, value);
+    public PayFastFormData createFormData(EncodedRequest request) throws PayFastException {
+        if (!timed) {
+            return buildFormData(request);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            PayFastFormData formData = buildFormData(request);
+            success = true;
+            return formData;
+        } finally {
+            Operation operation = request != null && request.isSubscription() ? Operation.SUBSCRIPTION_FORM : Operation.PAYMENT_FORM;
+            metrics.recordTime(operation, System.nanoTime() - start, success);
         }
     }
     
-    private void validatePaymentRequest(PaymentRequest request) throws ValidationException {
+    private PayFastFormData buildFormData(EncodedRequest request) throws PayFastException {
         if (request == null) {
             throw new ValidationException("Payment request cannot be null");
         }
-        if (request.getAmount() == null || request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new ValidationException("Payment amount must be greater than zero");
+        if (request.isSubscription()) {
+            requirePassphrase();
         }
-        if (request.getItemName() == null || request.getItemName().trim().isEmpty()) {
-            throw new ValidationException("Item name cannot be null or empty");
+        
+        try {
+            PayFastFormData formData = new PayFastFormData(merchant.getActionUrl());
+            formData.addField("merchant_id", merchant.getMerchantId());
+            formData.addField("merchant_key", merchant.getMerchantKey());
+            // Already trimmed and in PayFast order
+            formData.getFields().putAll(request.getFields());
+            
+            SignatureEngine engine = merchant.begin(request.getReturnUrl(), request.getCancelUrl(), request.getNotifyUrl());
+            formData.addSignature(merchant.sign(request.hashFields(engine)));
+            
+            if (log.isDebugEnabled()) {
+                log.debug("Form data created from encoded request for amount: {}", request.get("amount"));
+            }
+            return formData;
+            
+        } catch (Exception e) {
+            if (timed && e instanceof SignatureException) {
+                metrics.signatureFailure(request.isSubscription() ? Operation.SUBSCRIPTION_FORM : Operation.PAYMENT_FORM);
+            }
+            log.error("Failed to create form data", e);
+            throw new PayFastException("Failed to create form data", e);
+        }
+    }
+    
+    /**
+     * Create payment form data for many requests in parallel on the common ForkJoinPool.
+     * Called from a common pool worker, the caller takes part in the work instead of blocking.
+     * @see #createPaymentFormDataBatch(List, Executor)
+     */
+    public BatchResult<PayFastFormData> createPaymentFormDataBatch(List<? extends PaymentRequest> requests) throws PayFastException {
+        return createPaymentFormDataBatch(requests, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create payment form data for many requests, validating and signing them in parallel.
+     * A request that fails does not abort the batch; it is reported in the result instead,
+     * and the failures are logged once for the batch rather than per request.
+     * @param requests The payment requests
+     * @param executor The executor to run the work on
+     * @return The form data for every request in input order, plus per-item failures
+     * @throws PayFastException if the batch itself cannot be run
+     */
+    public BatchResult<PayFastFormData> createPaymentFormDataBatch(List<? extends PaymentRequest> requests, Executor executor) throws PayFastException {
+        return processBatch(requests, executor, request -> paymentFormData(request, false), Operation.PAYMENT_FORM_BATCH);
+    }
+    
+    /**
+     * @see #createPaymentFormDataBatch(List, Executor)
+     */
+    public BatchResult<PayFastFormData> createPaymentFormDataBatch(Stream<? extends PaymentRequest> requests, Executor executor) throws PayFastException {
+        return createPaymentFormDataBatch(collect(requests), executor);
+    }
+    
+    /**
+     * Create subscription form data for many requests in parallel on the common ForkJoinPool.
+     * Called from a common pool worker, the caller takes part in the work instead of blocking.
+     * @see #createSubscriptionFormDataBatch(List, Executor)
+     */
+    public BatchResult<PayFastFormData> createSubscriptionFormDataBatch(List<? extends SubscriptionRequest> requests) throws PayFastException {
+        return createSubscriptionFormDataBatch(requests, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Create subscription form data for many requests, validating and signing them in parallel.
+     * A request that fails does not abort the batch; it is reported in the result instead,
+     * and the failures are logged once for the batch rather than per request.
+     * @param requests The subscription requests
+     * @param executor The executor to run the work on
+     * @return The form data for every request in input order, plus per-item failures
+     * @throws PayFastException if the batch itself cannot be run
+     */
+    public BatchResult<PayFastFormData> createSubscriptionFormDataBatch(List<? extends SubscriptionRequest> requests, Executor executor) throws PayFastException {
+        return processBatch(requests, executor, request -> subscriptionFormData(request, false), Operation.SUBSCRIPTION_FORM_BATCH);
+    }
+    
+    /**
+     * @see #createSubscriptionFormDataBatch(List, Executor)
+     */
+    public BatchResult<PayFastFormData> createSubscriptionFormDataBatch(Stream<? extends SubscriptionRequest> requests, Executor executor) throws PayFastException {
+        return createSubscriptionFormDataBatch(collect(requests), executor);
+    }
+    
+    private <T> List<T> collect(Stream<T> requests) throws ValidationException {
+        if (requests == null) {
+            throw new ValidationException("Batch requests cannot be null");
         }
+        return requests.collect(Collectors.toList());
+    }
+    
+    private <T> BatchResult<PayFastFormData> processBatch(List<? extends T> requests, Executor executor, FormDataFactory<T> factory, Operation operation) throws PayFastException {
+        if (requests == null) {
+            throw new ValidationException("Batch requests cannot be null");
+        }
+        if (executor == null) {
+            throw new ValidationException("Batch executor cannot be null");
+        }
+        
+        long start = timed ? System.nanoTime() : 0L;
+        final Object[] items = requests.toArray();
+        final PayFastFormData[] results = new PayFastFormData[items.length];
+        final Queue<BatchResult.Failure> failures = new ConcurrentLinkedQueue<>();
+        int chunks = Math.min(items.length, Runtime.getRuntime().availableProcessors() * BATCH_CHUNKS_PER_THREAD);
+        Runnable[] tasks = new Runnable[chunks];
+        
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            final int from = (int) ((long) items.length * chunk / chunks);
+            final int to = (int) ((long) items.length * (chunk + 1) / chunks);
+            tasks[chunk] = () -> {
+                for (int i = from; i < to; i++) {
+                    results[i] = createBatchItem(factory, items[i], i, failures);
+                }
+            };
+        }
+        
+        try {
+            runAll(tasks, executor);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PayFastException("Batch form data creation interrupted", e);
+        }
+        
+        if (timed) {
+            metrics.recordTime(operation, System.nanoTime() - start, true);
+            metrics.batchCompleted(operation, items.length, failures.size());
+        }
+        BatchResult<PayFastFormData> result = new BatchResult<>(results, new ArrayList<>(failures));
+        if (!result.isAllSuccessful()) {
+            // One line for the whole batch instead of a stack trace per item
+            BatchResult.Failure first = result.getFailures().get(0);
+            log.warn("Batch form data creation failed for {} of {} requests, first at index {}: {}",
+                failures.size(), items.length, first.getIndex(), first.getException().getMessage());
+        } else if (log.isDebugEnabled()) {
+            log.debug("Batch form data created for {} requests", items.length);
+        }
+        return result;
+    }
+    
+    /**
+     * Run the chunks and wait for all of them. On a ForkJoinPool the chunks are forked and
+     * joined, so a worker of that pool calling in helps with them instead of blocking one
+     * of its threads. On other executors the caller waits through a ManagedBlocker, which
+     * lets a calling ForkJoinPool worker be compensated.
+     */
+    private static void runAll(Runnable[] tasks, Executor executor) throws InterruptedException {
+        if (executor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+            List<ForkJoinTask<?>> forks = new ArrayList<>(tasks.length);
+            for (Runnable task : tasks) {
+                forks.add(ForkJoinTask.adapt(task));
+            }
+            if (ForkJoinTask.getPool() == pool) {
+                ForkJoinTask.invokeAll(forks);
+                return;
+            }
+            try {
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(forks)));
+            } catch (RejectedExecutionException e) {
+                // Pool shut down: do the work on the calling thread instead of failing the batch
+                for (Runnable task : tasks) {
+                    task.run();
+                }
+            }
+            return;
+        }
+        
+        CountDownLatch done = new CountDownLatch(tasks.length);
+        for (Runnable chunk : tasks) {
+            Runnable task = () -> {
+                try {
+                    chunk.run();
+                } finally {
+                    done.countDown();
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Saturated executor: do the chunk on the calling thread instead of failing the batch
+                task.run();
+            }
+        }
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                done.await();
+                return true;
+            }
+            
+            @Override
+            public boolean isReleasable() {
+                return done.getCount() == 0;
+            }
+        });
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> PayFastFormData createBatchItem(FormDataFactory<T> factory, Object item, int index, Queue<BatchResult.Failure> failures) {
+        try {
+            return factory.create((T) item);
+        } catch (PayFastException e) {
+            failures.add(new BatchResult.Failure(index, e));
+        } catch (RuntimeException e) {
+            failures.add(new BatchResult.Failure(index, new PayFastException("Failed to create form data", e)));
+        }
+        return null;
+    }
+    
+    private interface FormDataFactory<T> {
+        PayFastFormData create(T request) throws PayFastException;
+    }
+    
+    private void validatePaymentRequest(PaymentRequest request) throws ValidationException {
+        RequestValidator.validatePayment(request);
     }
     
     private void validateSubscriptionRequest(SubscriptionRequest request) throws ValidationException {
@@ -176,19 +547,15 @@ public class PayFastService {
         validatePaymentRequest(request);
         
         // PayFast requires passphrase for subscriptions
-        if (config.getPassphrase() == null || config.getPassphrase().trim().isEmpty()) {
-            throw new ValidationException("Passphrase is REQUIRED for subscription payments. Please set it in PayFastConfig.");
-        }
+        requirePassphrase();
         
         // Additional subscription-specific validations
-        if (request.getFrequency() != null && (request.getFrequency() < 1 || request.getFrequency() > 6)) {
-            throw new ValidationException("Frequency must be between 1 and 6 (1=Daily, 2=Weekly, 3=Monthly, 4=Quarterly, 5=Biannually, 6=Annual)");
-        }
-        if (request.getCycles() != null && request.getCycles() < 0) {
-            throw new ValidationException("Cycles must be 0 (infinite) or a positive number");
-        }
-        if (request.getRecurringAmount() != null && request.getRecurringAmount() <= 0) {
-            throw new ValidationException("Recurring amount must be greater than zero");
+        RequestValidator.validateSubscriptionSettings(request);
+    }
+    
+    private void requirePassphrase() throws ValidationException {
+        if (!merchant.hasPassphrase()) {
+            throw new ValidationException("Passphrase is REQUIRED for subscription payments. Please set it in PayFastConfig.");
         }
     }
-}
\ No newline at end of file
+}
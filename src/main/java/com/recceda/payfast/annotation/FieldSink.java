@@ -0,0 +1,13 @@
+package com.recceda.payfast.annotation;
+
+/**
+ * Receives the PayFast parameters of a request in PayFast order
+ */
+public interface FieldSink {
+    /**
+     * @param name The PayFast parameter name
+     * @param value The value as a string, or null if the field is not set. Sinks are
+     *              expected to skip null and blank values.
+     */
+    void field(String name, String value);
+}
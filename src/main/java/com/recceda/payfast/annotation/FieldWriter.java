@@ -0,0 +1,18 @@
+package com.recceda.payfast.annotation;
+
+/**
+ * Writes the {@link PayFastField} parameters of a request model to a {@link FieldSink}.
+ * Implementations are generated at compile time and are stateless.
+ * @param <T> The request model type
+ */
+public interface FieldWriter<T> {
+    /**
+     * @return the request model type this writer was generated for
+     */
+    Class<T> type();
+
+    /**
+     * Emit every PayFast parameter of the request, in PayFast order
+     */
+    void write(T request, FieldSink sink);
+}
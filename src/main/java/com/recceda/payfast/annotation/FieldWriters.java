@@ -0,0 +1,35 @@
+package com.recceda.payfast.annotation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the generated {@link FieldWriter}s, discovered through
+ * {@code META-INF/services/com.recceda.payfast.annotation.FieldWriter} which the
+ * annotation processor writes alongside them.
+ */
+public final class FieldWriters {
+    private static final Map<Class<?>, FieldWriter<?>> WRITERS = load();
+
+    private FieldWriters() {
+    }
+
+    /**
+     * @return the writer generated for exactly this type, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> FieldWriter<T> forType(Class<T> type) {
+        return (FieldWriter<T>) WRITERS.get(type);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static Map<Class<?>, FieldWriter<?>> load() {
+        Map<Class<?>, FieldWriter<?>> writers = new HashMap<>();
+        for (FieldWriter writer : ServiceLoader.load(FieldWriter.class, FieldWriters.class.getClassLoader())) {
+            writers.put(writer.type(), writer);
+        }
+        return Collections.unmodifiableMap(writers);
+    }
+}
@@ -0,0 +1,30 @@
+package com.recceda.payfast.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a request model field as a PayFast form parameter.
+ * <p>
+ * At compile time a {@link FieldWriter} is generated for every class declaring such fields.
+ * It emits the fields of the class and its superclasses in ascending {@link #order()}, which
+ * must follow PayFast's parameter order since the signature is computed over that sequence.
+ * The field must have a getter following JavaBean naming.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface PayFastField {
+    /**
+     * @return the PayFast parameter name, e.g. {@code merchant_id}
+     */
+    String name();
+
+    /**
+     * @return the position of the parameter in PayFast order; lower values come first
+     */
+    int order();
+}
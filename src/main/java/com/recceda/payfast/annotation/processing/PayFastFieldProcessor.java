@@ -0,0 +1,252 @@
+package com.recceda.payfast.annotation.processing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import com.recceda.payfast.annotation.PayFastField;
+
+/**
+ * Generates a {@code <Model>FieldWriter} for every class declaring {@link PayFastField}
+ * fields, plus the service registration used by
+ * {@link com.recceda.payfast.annotation.FieldWriters}.
+ * <p>
+ * The generated writer calls the field getters directly in PayFast order, so emitting
+ * form fields or feeding the signature digest needs no reflection at runtime.
+ */
+@SupportedAnnotationTypes("com.recceda.payfast.annotation.PayFastField")
+public class PayFastFieldProcessor extends AbstractProcessor {
+    private static final String SERVICE_FILE = "META-INF/services/com.recceda.payfast.annotation.FieldWriter";
+
+    private final Set<String> writers = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeServiceFile();
+            return false;
+        }
+
+        Set<TypeElement> models = new LinkedHashSet<>();
+        for (Element element : roundEnv.getElementsAnnotatedWith(PayFastField.class)) {
+            models.add((TypeElement) element.getEnclosingElement());
+        }
+        for (TypeElement model : models) {
+            try {
+                generateWriter(model);
+            } catch (IOException e) {
+                error(model, "Failed to generate field writer: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generateWriter(TypeElement model) throws IOException {
+        List<Property> properties = collectProperties(model);
+        if (properties == null) {
+            return;
+        }
+
+        String packageName = processingEnv.getElementUtils().getPackageOf(model).getQualifiedName().toString();
+        String modelName = model.getQualifiedName().toString();
+        String writerName = writerSimpleName(model);
+        String qualifiedWriterName = packageName.isEmpty() ? writerName : packageName + "." + writerName;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+            .append(" * Generated by ").append(PayFastFieldProcessor.class.getSimpleName())
+            .append(" from the @PayFastField declarations of {@link ").append(modelName).append("}.\n")
+            .append(" * Do not edit.\n")
+            .append(" */\n")
+            .append("public final class ").append(writerName)
+            .append(" implements com.recceda.payfast.annotation.FieldWriter<").append(modelName).append("> {\n")
+            .append("    public static final ").append(writerName).append(" INSTANCE = new ").append(writerName).append("();\n\n")
+            .append("    // Public for ServiceLoader, use INSTANCE otherwise\n")
+            .append("    public ").append(writerName).append("() {\n    }\n\n")
+            .append("    @Override\n")
+            .append("    public Class<").append(modelName).append("> type() {\n")
+            .append("        return ").append(modelName).append(".class;\n")
+            .append("    }\n\n")
+            .append("    @Override\n")
+            .append("    public void write(").append(modelName)
+            .append(" request, com.recceda.payfast.annotation.FieldSink sink) {\n");
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            String call = "request." + property.getter + "()";
+            if (property.type.getKind().isPrimitive()) {
+                source.append("        sink.field(\"").append(property.name).append("\", String.valueOf(").append(call).append("));\n");
+            } else if (isString(property.type)) {
+                source.append("        sink.field(\"").append(property.name).append("\", ").append(call).append(");\n");
+            } else {
+                String local = "v" + i;
+                source.append("        Object ").append(local).append(" = ").append(call).append(";\n")
+                    .append("        sink.field(\"").append(property.name).append("\", ")
+                    .append(local).append(" == null ? null : ").append(local).append(".toString());\n");
+            }
+        }
+        source.append("    }\n}\n");
+
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedWriterName, model);
+        try (Writer writer = file.openWriter()) {
+            writer.write(source.toString());
+        }
+        writers.add(binaryName(packageName, writerName));
+    }
+
+    /**
+     * Collect the annotated fields of the model and its superclasses, sorted by order
+     * @return null if an error was reported
+     */
+    private List<Property> collectProperties(TypeElement model) {
+        List<Property> properties = new ArrayList<>();
+        Map<String, Element> names = new HashMap<>();
+        Map<Integer, Element> orders = new HashMap<>();
+        boolean valid = true;
+
+        for (TypeElement type = model; type != null; type = superclassOf(type)) {
+            for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+                PayFastField annotation = field.getAnnotation(PayFastField.class);
+                if (annotation == null) {
+                    continue;
+                }
+                if (names.put(annotation.name(), field) != null) {
+                    error(field, "Duplicate PayFast field name '" + annotation.name() + "' in " + model);
+                    valid = false;
+                }
+                if (orders.put(annotation.order(), field) != null) {
+                    error(field, "Duplicate PayFast field order " + annotation.order() + " in " + model);
+                    valid = false;
+                }
+                String getter = findGetter(model, field);
+                if (getter == null) {
+                    error(field, "No accessible getter for @PayFastField " + field.getSimpleName());
+                    valid = false;
+                    continue;
+                }
+                properties.add(new Property(annotation.name(), annotation.order(), getter, field.asType()));
+            }
+        }
+
+        Collections.sort(properties, new Comparator<Property>() {
+            @Override
+            public int compare(Property a, Property b) {
+                return Integer.compare(a.order, b.order);
+            }
+        });
+        return valid ? properties : null;
+    }
+
+    private String findGetter(TypeElement model, VariableElement field) {
+        String fieldName = field.getSimpleName().toString();
+        String suffix = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        boolean primitiveBoolean = field.asType().getKind() == TypeKind.BOOLEAN;
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(model));
+        for (ExecutableElement method : methods) {
+            String name = method.getSimpleName().toString();
+            boolean matches = name.equals("get" + suffix) || (primitiveBoolean && name.equals("is" + suffix));
+            if (matches && method.getParameters().isEmpty()
+                    && !method.getModifiers().contains(Modifier.PRIVATE)
+                    && !method.getModifiers().contains(Modifier.STATIC)) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return (TypeElement) ((DeclaredType) superclass).asElement();
+    }
+
+    private boolean isString(TypeMirror type) {
+        return type.getKind() == TypeKind.DECLARED
+            && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.String");
+    }
+
+    private String writerSimpleName(TypeElement model) {
+        StringBuilder name = new StringBuilder(model.getSimpleName());
+        for (Element enclosing = model.getEnclosingElement();
+                enclosing.getKind() != ElementKind.PACKAGE;
+                enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+        }
+        return name.append("FieldWriter").toString();
+    }
+
+    private String binaryName(String packageName, String simpleName) {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    private void writeServiceFile() {
+        if (writers.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+            try (Writer writer = file.openWriter()) {
+                for (String name : writers) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Failed to write " + SERVICE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class Property {
+        final String name;
+        final int order;
+        final String getter;
+        final TypeMirror type;
+
+        Property(String name, int order, String getter, TypeMirror type) {
+            this.name = name;
+            this.order = order;
+            this.getter = getter;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.recceda.payfast.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * One persistent HTTP/1.1 connection to the API host.
+ * <p>
+ * {@code HttpURLConnection} cannot send {@code PATCH} and gives no control over
+ * pipelining, so requests are written straight to the socket. Requests are buffered by
+ * {@link #write(byte[])} until {@link #flush()}, so several can go out in one packet, and
+ * responses are read back in the same order by {@link #read()}. Not thread-safe; the
+ * pool hands each connection to one caller at a time.
+ */
+final class ApiConnection implements Closeable {
+    private static final int MAX_LINE_BYTES = 8192;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final int maxResponseBytes;
+    private boolean reusable = true;
+    private int responses;
+    private long idleSince;
+
+    private ApiConnection(Socket socket, int maxResponseBytes) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream(), 8192);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 8192);
+        this.maxResponseBytes = maxResponseBytes;
+    }
+
+    static ApiConnection open(String host, int port, boolean tls, int connectTimeoutMillis, int readTimeoutMillis,
+                              int maxResponseBytes) throws IOException {
+        return open(host, port, tls ? (SSLSocketFactory) SSLSocketFactory.getDefault() : null,
+            connectTimeoutMillis, readTimeoutMillis, maxResponseBytes);
+    }
+
+    /**
+     * @param tls Factory for the TLS layer, or null for plain HTTP
+     */
+    static ApiConnection open(String host, int port, SSLSocketFactory tls, int connectTimeoutMillis, int readTimeoutMillis,
+                              int maxResponseBytes) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+            socket.setSoTimeout(readTimeoutMillis);
+            if (tls != null) {
+                SSLSocket ssl = (SSLSocket) tls.createSocket(socket, host, port, true);
+                // A raw SSLSocket accepts any trusted certificate; check it was issued for this host
+                SSLParameters parameters = ssl.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                ssl.setSSLParameters(parameters);
+                ssl.startHandshake();
+                socket = ssl;
+            }
+            return new ApiConnection(socket, maxResponseBytes);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Buffer an encoded request
+     */
+    void write(byte[] request) throws IOException {
+        out.write(request);
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Read the next response in full
+     */
+    Response read() throws IOException {
+        String statusLine = readLine();
+        if (statusLine == null) {
+            reusable = false;
+            throw new EOFException("Connection closed before the response");
+        }
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/1.")) {
+            reusable = false;
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+        int status;
+        try {
+            status = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            reusable = false;
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+
+        long contentLength = -1;
+        boolean chunked = false;
+        boolean close = "HTTP/1.0".equals(parts[0]);
+        String line;
+        while ((line = readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if ("content-length".equals(name)) {
+                try {
+                    contentLength = Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    contentLength = -1;
+                }
+                if (contentLength < 0) {
+                    // The body cannot be delimited, so nothing after it can be read either
+                    reusable = false;
+                    throw new IOException("Malformed Content-Length: " + value);
+                }
+            } else if ("transfer-encoding".equals(name)) {
+                chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+            } else if ("connection".equals(name)) {
+                close = "close".equalsIgnoreCase(value);
+            }
+        }
+        if (line == null) {
+            reusable = false;
+            throw new EOFException("Connection closed in the response headers");
+        }
+
+        byte[] body;
+        if (status / 100 == 1 || status == 204 || status == 304) {
+            body = new byte[0];
+        } else if (chunked) {
+            body = readChunked();
+        } else if (contentLength >= 0) {
+            if (contentLength > maxResponseBytes) {
+                reusable = false;
+                throw new IOException("Response of " + contentLength + " bytes exceeds the limit");
+            }
+            body = readFully((int) contentLength);
+        } else {
+            // No length: the body runs to the end of the connection
+            close = true;
+            body = readToEnd();
+        }
+        if (close) {
+            reusable = false;
+        }
+        responses++;
+        return new Response(status, body);
+    }
+
+    /**
+     * @return true if a response has already been read, so a failure may just mean the
+     *         server closed an idle connection
+     */
+    boolean hasServedResponses() {
+        return responses > 0;
+    }
+
+    boolean isReusable() {
+        return reusable && !socket.isClosed();
+    }
+
+    void markIdle(long now) {
+        idleSince = now;
+    }
+
+    long getIdleSince() {
+        return idleSince;
+    }
+
+    @Override
+    public void close() {
+        reusable = false;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private byte[] readChunked() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        while (true) {
+            String sizeLine = readLine();
+            if (sizeLine == null) {
+                throw new EOFException("Connection closed in a chunked body");
+            }
+            int extension = sizeLine.indexOf(';');
+            int size;
+            try {
+                size = Integer.parseInt((extension < 0 ? sizeLine : sizeLine.substring(0, extension)).trim(), 16);
+            } catch (NumberFormatException e) {
+                reusable = false;
+                throw new IOException("Malformed chunk size: " + sizeLine);
+            }
+            if (size == 0) {
+                // Skip trailers up to the blank line
+                String trailer;
+                while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                    // ignored
+                }
+                return body.toByteArray();
+            }
+            if (body.size() + size > maxResponseBytes) {
+                reusable = false;
+                throw new IOException("Response exceeds " + maxResponseBytes + " bytes");
+            }
+            body.write(readFully(size));
+            readLine();
+        }
+    }
+
+    private byte[] readFully(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int n = in.read(bytes, read, length - read);
+            if (n < 0) {
+                reusable = false;
+                throw new EOFException("Connection closed in the response body");
+            }
+            read += n;
+        }
+        return bytes;
+    }
+
+    private byte[] readToEnd() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            if (body.size() + n > maxResponseBytes) {
+                throw new IOException("Response exceeds " + maxResponseBytes + " bytes");
+            }
+            body.write(buffer, 0, n);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * @return the next CRLF or LF terminated line without its terminator, or null at the end of the stream
+     */
+    private String readLine() throws IOException {
+        byte[] line = new byte[128];
+        int length = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                if (length > 0 && line[length - 1] == '\r') {
+                    length--;
+                }
+                return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+            }
+            if (length == line.length) {
+                if (length == MAX_LINE_BYTES) {
+                    reusable = false;
+                    throw new IOException("Response line longer than " + MAX_LINE_BYTES + " bytes");
+                }
+                byte[] grown = new byte[Math.min(MAX_LINE_BYTES, length * 2)];
+                System.arraycopy(line, 0, grown, 0, length);
+                line = grown;
+            }
+            line[length++] = (byte) b;
+        }
+        return length == 0 ? null : new String(line, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    static final class Response {
+        final int status;
+        final byte[] body;
+
+        Response(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
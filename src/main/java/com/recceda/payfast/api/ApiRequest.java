@@ -0,0 +1,130 @@
+package com.recceda.payfast.api;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.recceda.payfast.model.Money;
+import com.recceda.payfast.util.QuotePlusEncoder;
+
+/**
+ * A call to the PayFast REST API: the method, the path and the body parameters.
+ * <p>
+ * Build requests with the factory methods and run them with {@link PayFastApiClient}.
+ * Amounts are sent in cents, as the API expects. Instances are immutable.
+ */
+public final class ApiRequest {
+    private final String method;
+    private final String path;
+    private final Map<String, String> params;
+
+    private ApiRequest(String method, String path, Map<String, String> params) {
+        this.method = method;
+        this.path = path;
+        this.params = Collections.unmodifiableMap(params);
+    }
+
+    /**
+     * Check the credentials and that the API is reachable
+     */
+    public static ApiRequest ping() {
+        return new ApiRequest("GET", "/ping", Collections.<String, String>emptyMap());
+    }
+
+    public static ApiRequest fetchSubscription(String token) {
+        return subscription("GET", token, "fetch", Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * @param cycles Number of billing cycles to skip, or null for one
+     */
+    public static ApiRequest pauseSubscription(String token, Integer cycles) {
+        Map<String, String> params = new LinkedHashMap<>();
+        put(params, "cycles", cycles);
+        return subscription("PUT", token, "pause", params);
+    }
+
+    public static ApiRequest unpauseSubscription(String token) {
+        return subscription("PUT", token, "unpause", Collections.<String, String>emptyMap());
+    }
+
+    public static ApiRequest cancelSubscription(String token) {
+        return subscription("PUT", token, "cancel", Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Change a subscription; null arguments are left as they are
+     * @param frequency 1=Daily, 2=Weekly, 3=Monthly, 4=Quarterly, 5=Biannually, 6=Annual
+     * @param runDate The next billing date
+     */
+    public static ApiRequest updateSubscription(String token, Integer cycles, Integer frequency, LocalDate runDate, Money amount) {
+        Map<String, String> params = new LinkedHashMap<>();
+        put(params, "cycles", cycles);
+        put(params, "frequency", frequency);
+        put(params, "run_date", runDate);
+        put(params, "amount", amount == null ? null : amount.getCents());
+        if (params.isEmpty()) {
+            throw new IllegalArgumentException("Subscription update must change at least one setting");
+        }
+        return subscription("PATCH", token, "update", params);
+    }
+
+    /**
+     * Charge a tokenized card once. Charges are not retried, even on a connection
+     * failure, because PayFast may already have taken the payment.
+     */
+    public static ApiRequest chargeAdhoc(String token, Money amount, String itemName, String itemDescription) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new IllegalArgumentException("Charge amount must be greater than zero");
+        }
+        if (itemName == null || itemName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Item name cannot be null or empty");
+        }
+        Map<String, String> params = new LinkedHashMap<>();
+        put(params, "amount", amount.getCents());
+        put(params, "item_name", itemName);
+        put(params, "item_description", itemDescription);
+        return subscription("POST", token, "adhoc", params);
+    }
+
+    private static ApiRequest subscription(String method, String token, String action, Map<String, String> params) {
+        if (token == null || token.trim().isEmpty()) {
+            throw new IllegalArgumentException("Subscription token cannot be null or empty");
+        }
+        return new ApiRequest(method, "/subscriptions/" + QuotePlusEncoder.encode(token.trim()) + "/" + action, params);
+    }
+
+    private static void put(Map<String, String> params, String name, Object value) {
+        if (value != null) {
+            params.put(name, value.toString());
+        }
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return the body parameters in the order they are sent
+     */
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    /**
+     * @return false for calls that must not be sent twice, such as charges
+     */
+    public boolean isIdempotent() {
+        return !"POST".equals(method);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + path;
+    }
+}
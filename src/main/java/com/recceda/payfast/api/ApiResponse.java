@@ -0,0 +1,88 @@
+package com.recceda.payfast.api;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.recceda.payfast.util.JsonParser;
+
+/**
+ * A successful PayFast API response.
+ * <p>
+ * PayFast wraps results as {@code {"code":200,"status":"success","data":{"response":...}}}.
+ * {@link #getData()} returns the {@code response} value, parsed on first use: a map for
+ * objects, a list for arrays, and text for everything else, numbers included.
+ */
+public final class ApiResponse {
+    private final ApiRequest request;
+    private final int statusCode;
+    private final String body;
+    private Map<String, Object> json;
+
+    ApiResponse(ApiRequest request, int statusCode, String body) {
+        this.request = request;
+        this.statusCode = statusCode;
+        this.body = body;
+    }
+
+    public ApiRequest getRequest() {
+        return request;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the response body as sent
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return the {@code status} field, e.g. {@code success}, or null if there is none
+     */
+    public String getStatus() {
+        Object status = getJson().get("status");
+        return status instanceof String ? (String) status : null;
+    }
+
+    /**
+     * @return the {@code data.response} value, or null if the body has none
+     */
+    public Object getData() {
+        Object data = getJson().get("data");
+        return data instanceof Map ? ((Map<?, ?>) data).get("response") : null;
+    }
+
+    /**
+     * @return the {@code data.response} object, empty if the response is not an object
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getDataObject() {
+        Object data = getData();
+        return data instanceof Map ? (Map<String, Object>) data : Collections.<String, Object>emptyMap();
+    }
+
+    /**
+     * @return the whole body as a map, empty if the body is not a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Map<String, Object> getJson() {
+        if (json == null) {
+            Object parsed;
+            try {
+                parsed = body.trim().isEmpty() ? null : JsonParser.parse(body);
+            } catch (IllegalArgumentException e) {
+                parsed = null;
+            }
+            json = parsed instanceof Map ? (Map<String, Object>) parsed : Collections.<String, Object>emptyMap();
+        }
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return request + " -> " + statusCode;
+    }
+}
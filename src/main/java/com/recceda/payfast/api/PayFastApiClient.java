@@ -0,0 +1,637 @@
+package com.recceda.payfast.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.PayFastAsyncService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ConfigurationException;
+import com.recceda.payfast.exception.HttpException;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.model.BatchResult;
+import com.recceda.payfast.model.Money;
+import com.recceda.payfast.util.QuotePlusEncoder;
+import com.recceda.payfast.util.SignatureUtil;
+
+/**
+ * Client for the PayFast REST API, e.g. to fetch, pause, unpause, cancel or update
+ * subscriptions and to charge tokenized cards.
+ * <p>
+ * Every call carries the {@code merchant-id}, {@code version}, {@code timestamp} and
+ * {@code signature} headers, signed by {@link SignatureUtil#generateApiSignature(Map, String)}
+ * with the config's passphrase. Sandbox configs add {@code testing=true} to each call.
+ * <p>
+ * Calls share a pool of persistent HTTP/1.1 connections; at most {@code maxConnections}
+ * are open at a time and callers beyond that wait up to {@code acquireTimeout} for one.
+ * {@link #executeAll(List)} spreads many calls over the pool and, with a
+ * {@code pipelineDepth} above 1, writes that many requests on a connection before
+ * reading their responses. Charges are never pipelined. A call that fails on a connection the server has dropped is
+ * retried once on a new one, unless it is a charge.
+ * <p>
+ * Instances are thread-safe and meant to be shared; close the client to close its connections.
+ */
+public class PayFastApiClient implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PayFastApiClient.class);
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssxxx");
+    private static final String VERSION = "v1";
+    private static final int MAX_RESPONSE_BYTES = 1 << 20;
+
+    private final String merchantId;
+    private final String passphrase;
+    private final String host;
+    private final int port;
+    private final boolean tls;
+    private final String hostHeader;
+    private final String basePath;
+    private final String query;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final int maxConnections;
+    private final int pipelineDepth;
+    private final Executor executor;
+    private final Clock clock;
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<ApiConnection> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    private PayFastApiClient(Builder builder) throws ConfigurationException {
+        if (builder.config == null) {
+            throw new ConfigurationException("PayFast config cannot be null");
+        }
+        if (builder.connectTimeoutMillis < 0 || builder.readTimeoutMillis < 0 || builder.acquireTimeoutMillis < 0
+                || builder.idleTimeoutMillis < 0) {
+            throw new ConfigurationException("Timeouts cannot be negative");
+        }
+        if (builder.maxConnections < 1) {
+            throw new ConfigurationException("Max connections must be at least 1");
+        }
+        if (builder.pipelineDepth < 1) {
+            throw new ConfigurationException("Pipeline depth must be at least 1");
+        }
+        if (builder.executor == null || builder.clock == null) {
+            throw new ConfigurationException("Executor and clock cannot be null");
+        }
+        URI uri;
+        try {
+            uri = new URI(builder.baseUrl == null ? "" : builder.baseUrl.trim());
+        } catch (URISyntaxException e) {
+            throw new ConfigurationException("Invalid PayFast API URL: " + builder.baseUrl, e);
+        }
+        if (!"https".equalsIgnoreCase(uri.getScheme()) && !"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            throw new ConfigurationException("PayFast API URL must be an absolute http or https URL: " + builder.baseUrl);
+        }
+        this.merchantId = builder.config.getMerchantId();
+        this.passphrase = builder.config.getPassphrase();
+        this.tls = "https".equalsIgnoreCase(uri.getScheme());
+        this.host = uri.getHost();
+        this.port = uri.getPort() < 0 ? (tls ? 443 : 80) : uri.getPort();
+        this.hostHeader = uri.getPort() < 0 ? host : host + ":" + port;
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+        this.basePath = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        this.query = builder.config.isSandbox() ? "?testing=true" : "";
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.readTimeoutMillis = builder.readTimeoutMillis;
+        this.acquireTimeoutMillis = builder.acquireTimeoutMillis;
+        this.idleTimeoutMillis = builder.idleTimeoutMillis;
+        this.maxConnections = builder.maxConnections;
+        this.pipelineDepth = builder.pipelineDepth;
+        this.executor = builder.executor;
+        this.clock = builder.clock;
+        this.permits = new Semaphore(builder.maxConnections, true);
+    }
+
+    public static Builder builder(PayFastConfig config) {
+        return new Builder(config);
+    }
+
+    public ApiResponse ping() throws PayFastException {
+        return execute(ApiRequest.ping());
+    }
+
+    public ApiResponse fetchSubscription(String token) throws PayFastException {
+        return execute(ApiRequest.fetchSubscription(token));
+    }
+
+    /**
+     * @see ApiRequest#pauseSubscription(String, Integer)
+     */
+    public ApiResponse pauseSubscription(String token, Integer cycles) throws PayFastException {
+        return execute(ApiRequest.pauseSubscription(token, cycles));
+    }
+
+    public ApiResponse unpauseSubscription(String token) throws PayFastException {
+        return execute(ApiRequest.unpauseSubscription(token));
+    }
+
+    public ApiResponse cancelSubscription(String token) throws PayFastException {
+        return execute(ApiRequest.cancelSubscription(token));
+    }
+
+    /**
+     * @see ApiRequest#updateSubscription(String, Integer, Integer, LocalDate, Money)
+     */
+    public ApiResponse updateSubscription(String token, Integer cycles, Integer frequency, LocalDate runDate, Money amount) throws PayFastException {
+        return execute(ApiRequest.updateSubscription(token, cycles, frequency, runDate, amount));
+    }
+
+    /**
+     * @see ApiRequest#chargeAdhoc(String, Money, String, String)
+     */
+    public ApiResponse chargeAdhoc(String token, Money amount, String itemName, String itemDescription) throws PayFastException {
+        return execute(ApiRequest.chargeAdhoc(token, amount, itemName, itemDescription));
+    }
+
+    /**
+     * Run one call
+     * @throws HttpException if PayFast could not be reached or answered with an error status
+     * @throws PayFastException if no connection became free in time or the call could not be signed
+     */
+    public ApiResponse execute(ApiRequest request) throws PayFastException {
+        if (request == null) {
+            throw new ValidationException("API request cannot be null");
+        }
+        byte[] encoded = encode(request);
+        ApiConnection connection = borrow();
+        try {
+            while (true) {
+                try {
+                    connection.write(encoded);
+                    connection.flush();
+                    return toResponse(request, connection.read());
+                } catch (IOException e) {
+                    boolean stale = connection.hasServedResponses();
+                    connection.close();
+                    if (!stale || !request.isIdempotent()) {
+                        throw failed(request, e);
+                    }
+                    // The server closed the idle connection; try once on a new one
+                    connection = open();
+                }
+            }
+        } finally {
+            giveBack(connection);
+        }
+    }
+
+    /**
+     * Run one call on the client's executor
+     */
+    public CompletableFuture<ApiResponse> executeAsync(ApiRequest request) {
+        CompletableFuture<ApiResponse> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(execute(request));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new PayFastException("PayFast API call rejected by executor", e));
+        }
+        return future;
+    }
+
+    /**
+     * Run many calls, such as one per subscription token, in parallel over the connection
+     * pool. A call that fails does not abort the batch; it is reported in the result instead.
+     * @return the response for every request in input order, plus per-item failures
+     * @throws PayFastException if the batch itself cannot be run
+     */
+    public BatchResult<ApiResponse> executeAll(List<ApiRequest> requests) throws PayFastException {
+        if (requests == null) {
+            throw new ValidationException("Batch requests cannot be null");
+        }
+        ApiRequest[] items = requests.toArray(new ApiRequest[0]);
+        ApiResponse[] results = new ApiResponse[items.length];
+        Queue<BatchResult.Failure> failures = new ConcurrentLinkedQueue<>();
+        AtomicInteger cursor = new AtomicInteger();
+        int workers = Math.min(items.length, maxConnections);
+        CountDownLatch done = new CountDownLatch(workers);
+
+        for (int w = 0; w < workers; w++) {
+            Runnable task = () -> {
+                try {
+                    runBatchWorker(items, results, failures, cursor);
+                } finally {
+                    done.countDown();
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Saturated executor: work on the calling thread instead of failing the batch
+                task.run();
+            }
+        }
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PayFastException("PayFast API batch interrupted", e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("PayFast API batch of {} calls completed with {} failures", items.length, failures.size());
+        }
+        return new BatchResult<>(results, new ArrayList<>(failures));
+    }
+
+    /**
+     * @return the number of connections that can be taken right now without waiting
+     */
+    public int availableConnections() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ApiConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Take windows of {@code pipelineDepth} requests from the shared cursor until none are left
+     */
+    private void runBatchWorker(ApiRequest[] items, ApiResponse[] results, Queue<BatchResult.Failure> failures,
+                                AtomicInteger cursor) {
+        ApiConnection connection = null;
+        try {
+            int from;
+            while ((from = cursor.getAndAdd(pipelineDepth)) < items.length) {
+                int to = Math.min(items.length, from + pipelineDepth);
+                if (connection == null) {
+                    try {
+                        connection = borrow();
+                    } catch (PayFastException e) {
+                        for (int i = from; i < to; i++) {
+                            failures.add(new BatchResult.Failure(i, e));
+                        }
+                        continue;
+                    }
+                }
+                connection = runWindow(connection, items, from, to, results, failures);
+            }
+        } finally {
+            if (connection != null) {
+                giveBack(connection);
+            }
+        }
+    }
+
+    /**
+     * Run the requests of {@code [from, to)}, pipelining runs of idempotent ones. A charge
+     * is sent on its own: RFC 7230 says not to pipeline after a non-idempotent request,
+     * and one in a window would be reported as possibly processed whenever an earlier
+     * request broke the connection before it was sent.
+     * @return the connection to carry on with, or null if none could be opened and the permit was released
+     */
+    private ApiConnection runWindow(ApiConnection connection, ApiRequest[] items, int from, int to,
+                                    ApiResponse[] results, Queue<BatchResult.Failure> failures) {
+        int start = from;
+        while (start < to) {
+            int end = start + 1;
+            if (isIdempotent(items[start])) {
+                while (end < to && isIdempotent(items[end])) {
+                    end++;
+                }
+            }
+            if (connection == null) {
+                try {
+                    connection = borrow();
+                } catch (PayFastException e) {
+                    for (int i = start; i < to; i++) {
+                        failures.add(new BatchResult.Failure(i, e));
+                    }
+                    return null;
+                }
+            }
+            connection = pipeline(connection, items, start, end, results, failures);
+            start = end;
+        }
+        return connection;
+    }
+
+    private static boolean isIdempotent(ApiRequest request) {
+        // A null request is failed without being sent
+        return request == null || request.isIdempotent();
+    }
+
+    /**
+     * Write the requests of {@code [from, to)} together, then read their responses
+     * @return the connection to carry on with, or null if none could be opened and the permit was released
+     */
+    private ApiConnection pipeline(ApiConnection connection, ApiRequest[] items, int from, int to,
+                                   ApiResponse[] results, Queue<BatchResult.Failure> failures) {
+        byte[][] encoded = new byte[to - from][];
+        for (int i = from; i < to; i++) {
+            try {
+                if (items[i] == null) {
+                    throw new ValidationException("API request cannot be null");
+                }
+                encoded[i - from] = encode(items[i]);
+            } catch (PayFastException e) {
+                failures.add(new BatchResult.Failure(i, e));
+            }
+        }
+
+        int next = from;
+        try {
+            for (byte[] request : encoded) {
+                if (request != null) {
+                    connection.write(request);
+                }
+            }
+            connection.flush();
+            for (; next < to; next++) {
+                if (encoded[next - from] != null) {
+                    complete(items, next, connection.read(), results, failures);
+                }
+            }
+            return connection;
+        } catch (IOException e) {
+            connection.close();
+            return retryWindow(items, encoded, from, next, to, e, results, failures);
+        }
+    }
+
+    /**
+     * Resend the unanswered requests of a window one at a time on a new connection.
+     * Charges are failed instead, as PayFast may have processed them.
+     */
+    private ApiConnection retryWindow(ApiRequest[] items, byte[][] encoded, int from, int next, int to, IOException cause,
+                                      ApiResponse[] results, Queue<BatchResult.Failure> failures) {
+        ApiConnection connection = null;
+        for (int i = next; i < to; i++) {
+            if (encoded[i - from] == null) {
+                continue;
+            }
+            if (!items[i].isIdempotent()) {
+                failures.add(new BatchResult.Failure(i, new HttpException(
+                    "PayFast API " + items[i] + " failed and may have been processed: " + cause.getMessage(), cause)));
+                continue;
+            }
+            try {
+                if (connection == null) {
+                    connection = open();
+                }
+                connection.write(encoded[i - from]);
+                connection.flush();
+                complete(items, i, connection.read(), results, failures);
+            } catch (IOException | PayFastException e) {
+                if (connection != null) {
+                    connection.close();
+                    connection = null;
+                }
+                failures.add(new BatchResult.Failure(i, e instanceof PayFastException ? (PayFastException) e : failed(items[i], (IOException) e)));
+            }
+        }
+        if (connection == null) {
+            // The broken connection's permit is still held
+            try {
+                return open();
+            } catch (HttpException e) {
+                permits.release();
+                return null;
+            }
+        }
+        return connection;
+    }
+
+    private void complete(ApiRequest[] items, int index, ApiConnection.Response response, ApiResponse[] results,
+                          Queue<BatchResult.Failure> failures) {
+        try {
+            results[index] = toResponse(items[index], response);
+        } catch (HttpException e) {
+            failures.add(new BatchResult.Failure(index, e));
+        }
+    }
+
+    private ApiResponse toResponse(ApiRequest request, ApiConnection.Response response) throws HttpException {
+        String body = new String(response.body, StandardCharsets.UTF_8);
+        if (response.status / 100 != 2) {
+            String detail = body.length() > 200 ? body.substring(0, 200) + "..." : body;
+            throw new HttpException("PayFast API " + request + " failed with HTTP status " + response.status
+                + (detail.isEmpty() ? "" : ": " + detail), response.status);
+        }
+        return new ApiResponse(request, response.status, body);
+    }
+
+    private static HttpException failed(ApiRequest request, IOException e) {
+        return new HttpException("PayFast API " + request + " failed: " + e.getMessage(), e);
+    }
+
+    /**
+     * Sign and encode a request with its headers and form body
+     */
+    byte[] encode(ApiRequest request) throws PayFastException {
+        String timestamp = ZonedDateTime.now(clock).truncatedTo(ChronoUnit.SECONDS).format(TIMESTAMP);
+        Map<String, String> signed = new LinkedHashMap<>(request.getParams());
+        signed.put("merchant-id", merchantId);
+        signed.put("version", VERSION);
+        signed.put("timestamp", timestamp);
+        String signature = SignatureUtil.generateApiSignature(signed, passphrase);
+
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, String> param : request.getParams().entrySet()) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(param.getKey()).append('=').append(QuotePlusEncoder.encode(param.getValue().trim()));
+        }
+        byte[] bodyBytes = body.toString().getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder head = new StringBuilder(320);
+        head.append(request.getMethod()).append(' ').append(basePath).append(request.getPath()).append(query).append(" HTTP/1.1\r\n")
+            .append("Host: ").append(hostHeader).append("\r\n")
+            .append("merchant-id: ").append(merchantId).append("\r\n")
+            .append("version: ").append(VERSION).append("\r\n")
+            .append("timestamp: ").append(timestamp).append("\r\n")
+            .append("signature: ").append(signature).append("\r\n")
+            .append("Accept: application/json\r\n");
+        if (!"GET".equals(request.getMethod())) {
+            head.append("Content-Type: application/x-www-form-urlencoded\r\n")
+                .append("Content-Length: ").append(bodyBytes.length).append("\r\n");
+        }
+        head.append("\r\n");
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(head.length() + bodyBytes.length);
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.UTF_8);
+        encoded.write(headBytes, 0, headBytes.length);
+        encoded.write(bodyBytes, 0, bodyBytes.length);
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Take a permit and an idle connection, or open a new one
+     */
+    private ApiConnection borrow() throws PayFastException {
+        if (closed) {
+            throw new PayFastException("PayFast API client is closed");
+        }
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new PayFastException("Too many PayFast API calls in flight, no connection free after "
+                    + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PayFastException("PayFast API call interrupted", e);
+        }
+        long now = System.nanoTime();
+        ApiConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (connection.isReusable() && now - connection.getIdleSince() < TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis)) {
+                return connection;
+            }
+            connection.close();
+        }
+        try {
+            return open();
+        } catch (HttpException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a connection under a permit the caller already holds
+     */
+    private ApiConnection open() throws HttpException {
+        try {
+            return ApiConnection.open(host, port, tls, connectTimeoutMillis, readTimeoutMillis, MAX_RESPONSE_BYTES);
+        } catch (IOException e) {
+            throw new HttpException("Could not connect to PayFast API at " + hostHeader + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void giveBack(ApiConnection connection) {
+        if (!closed && connection.isReusable()) {
+            connection.markIdle(System.nanoTime());
+            idle.offerFirst(connection);
+        } else {
+            connection.close();
+        }
+        permits.release();
+    }
+
+    public static class Builder {
+        private final PayFastConfig config;
+        private String baseUrl = "https://api.payfast.co.za";
+        private int connectTimeoutMillis = 5000;
+        private int readTimeoutMillis = 30000;
+        private long acquireTimeoutMillis = 30000;
+        private long idleTimeoutMillis = 30000;
+        private int maxConnections = 16;
+        private int pipelineDepth = 1;
+        private Executor executor = PayFastAsyncService.defaultExecutor();
+        private Clock clock = Clock.systemDefaultZone();
+
+        private Builder(PayFastConfig config) {
+            this.config = config;
+        }
+
+        /**
+         * Call another host instead of the PayFast API, such as a local stub in tests
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+            return this;
+        }
+
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+            return this;
+        }
+
+        /**
+         * @param timeout How long a caller waits for a free connection once all are in use
+         */
+        public Builder acquireTimeout(long timeout, TimeUnit unit) {
+            this.acquireTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param timeout How long an unused connection is kept; keep it below the server's keep-alive timeout
+         */
+        public Builder idleTimeout(long timeout, TimeUnit unit) {
+            this.idleTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * @param maxConnections Connections open at most, which is also the number of calls in flight
+         */
+        public Builder maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param pipelineDepth Requests {@link PayFastApiClient#executeAll(List)} writes on a
+         *                      connection before reading their responses; 1, the default, turns pipelining off
+         */
+        public Builder pipelineDepth(int pipelineDepth) {
+            this.pipelineDepth = pipelineDepth;
+            return this;
+        }
+
+        /**
+         * @param executor Runs batch workers and async calls; defaults to {@link PayFastAsyncService#defaultExecutor()}
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param clock Source of the {@code timestamp} header
+         */
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public PayFastApiClient build() throws ConfigurationException {
+            return new PayFastApiClient(this);
+        }
+    }
+}
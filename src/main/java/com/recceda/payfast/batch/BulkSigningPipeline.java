@@ -0,0 +1,385 @@
+package com.recceda.payfast.batch;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.metrics.Operation;
+import com.recceda.payfast.metrics.PayFastMetrics;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.util.QuotePlusEncoder;
+
+/**
+ * Turns a large file of payment requests into signed PayFast payloads, one output line per row.
+ * <p>
+ * Rows are read incrementally and signed in chunks on a worker pool. At most
+ * {@code maxChunksInFlight} chunks are read ahead of the writer; when that limit is reached
+ * the reader waits for the oldest chunk to be written, so memory stays bounded regardless of
+ * input size. Output is written in input order through a channel. Rows that cannot be parsed
+ * or fail mapping or validation are counted and sampled in the stats without stopping the
+ * run or logging each one.
+ */
+public class BulkSigningPipeline {
+    private static final Logger log = LoggerFactory.getLogger(BulkSigningPipeline.class);
+    private static final int MAX_FAILURE_SAMPLES = 100;
+
+    private final PayFastService service;
+    private final PaymentRequestMapper mapper;
+    private final OutputFormat outputFormat;
+    private final int workers;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final Consumer<BulkSigningStats> progressListener;
+    private final PayFastMetrics metrics;
+    private final boolean timed;
+
+    private BulkSigningPipeline(Builder builder) {
+        this.service = builder.service;
+        this.metrics = service.getMetrics();
+        this.timed = metrics.isEnabled();
+        this.mapper = builder.mapper;
+        this.outputFormat = builder.outputFormat;
+        this.workers = builder.workers;
+        this.chunkSize = builder.chunkSize;
+        this.maxChunksInFlight = builder.maxChunksInFlight;
+        this.progressListener = builder.progressListener;
+    }
+
+    public static Builder builder(PayFastService service) {
+        return new Builder(service);
+    }
+
+    /**
+     * Sign every row of the input file and write the results to the output file, replacing it
+     * @return the final stats of the run
+     * @throws IOException if the input cannot be read or the output cannot be written;
+     *                     malformed rows are counted as failures instead
+     * @throws PayFastException if the run is interrupted or a worker fails unexpectedly
+     */
+    public BulkSigningStats run(Path input, InputFormat format, Path output) throws IOException, PayFastException {
+        try (RowReader reader = format.open(input);
+             FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return run(reader, channel);
+        }
+    }
+
+    /**
+     * Sign every row from the reader and write the results to the channel. Neither is closed.
+     * @see #run(Path, InputFormat, Path)
+     */
+    public BulkSigningStats run(RowReader reader, WritableByteChannel output) throws IOException, PayFastException {
+        Run run = new Run(output);
+        ExecutorService pool = Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+        try {
+            List<Row> rows = new ArrayList<>(chunkSize);
+            while (true) {
+                Row row;
+                try {
+                    Map<String, String> fields = reader.next();
+                    if (fields == null) {
+                        break;
+                    }
+                    row = new Row(reader.lineNumber(), fields, null);
+                } catch (MalformedRowException e) {
+                    // Reported in order with the chunk like any other failed row
+                    row = new Row(e.getLine(), null, e.getReason());
+                }
+                run.rowsRead++;
+                rows.add(row);
+                if (rows.size() == chunkSize) {
+                    run.submit(pool, rows);
+                    rows = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!rows.isEmpty()) {
+                run.submit(pool, rows);
+            }
+            while (!run.inFlight.isEmpty()) {
+                run.writeOldest();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BulkSigningStats stats = run.snapshot();
+        log.info("Bulk signing completed: {}", stats);
+        return stats;
+    }
+
+    private Chunk sign(List<Row> rows) {
+        long start = timed ? System.nanoTime() : 0L;
+        Chunk chunk = new Chunk();
+        StringBuilder line = new StringBuilder(512);
+        for (Row row : rows) {
+            if (row.error != null) {
+                chunk.failures.add("Line " + row.line + ": " + row.error);
+                continue;
+            }
+            try {
+                PayFastFormData formData = service.createPaymentFormDataQuietly(mapper.map(row.fields));
+                line.setLength(0);
+                appendOutput(line, formData);
+                chunk.append(line);
+                chunk.signed++;
+            } catch (PayFastException | RuntimeException e) {
+                chunk.failures.add("Line " + row.line + ": " + describe(e));
+            }
+        }
+        if (timed) {
+            metrics.recordTime(Operation.BULK_SIGNING_CHUNK, System.nanoTime() - start, true);
+            metrics.batchCompleted(Operation.BULK_SIGNING_CHUNK, rows.size(), chunk.failures.size());
+        }
+        return chunk;
+    }
+
+    private void appendOutput(StringBuilder line, PayFastFormData formData) {
+        if (outputFormat == OutputFormat.REDIRECT_URL) {
+            line.append(formData.getAction());
+            char separator = '?';
+            for (Map.Entry<String, String> field : formData.getFields().entrySet()) {
+                line.append(separator).append(field.getKey()).append('=').append(QuotePlusEncoder.encode(field.getValue()));
+                separator = '&';
+            }
+        } else {
+            line.append("{\"action\":");
+            appendJsonString(line, formData.getAction());
+            line.append(",\"fields\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> field : formData.getFields().entrySet()) {
+                if (!first) line.append(',');
+                appendJsonString(line, field.getKey());
+                line.append(':');
+                appendJsonString(line, field.getValue());
+                first = false;
+            }
+            line.append("}}");
+        }
+        line.append('\n');
+    }
+
+    private static void appendJsonString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static String describe(Exception e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getMessage() != null && cause.getMessage().startsWith("Failed to")) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+    }
+
+    /**
+     * State of a single run, only touched by the thread calling {@link #run(RowReader, WritableByteChannel)}
+     */
+    private final class Run {
+        final WritableByteChannel output;
+        final Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        final List<String> failureSamples = new ArrayList<>();
+        final long started = System.nanoTime();
+        long rowsRead;
+        long rowsSigned;
+        long rowsFailed;
+        long bytesWritten;
+
+        Run(WritableByteChannel output) {
+            this.output = output;
+        }
+
+        void submit(ExecutorService pool, List<Row> rows) throws IOException, PayFastException {
+            // Backpressure: never read further ahead of the writer than the in-flight limit
+            if (inFlight.size() >= maxChunksInFlight) {
+                writeOldest();
+            }
+            inFlight.addLast(pool.submit(() -> sign(rows)));
+        }
+
+        void writeOldest() throws IOException, PayFastException {
+            Chunk chunk;
+            try {
+                chunk = inFlight.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PayFastException("Bulk signing interrupted", e);
+            } catch (ExecutionException e) {
+                throw new PayFastException("Bulk signing worker failed", e.getCause());
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(chunk.bytes, 0, chunk.length);
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+            rowsSigned += chunk.signed;
+            rowsFailed += chunk.failures.size();
+            bytesWritten += chunk.length;
+            for (String failure : chunk.failures) {
+                if (failureSamples.size() == MAX_FAILURE_SAMPLES) break;
+                failureSamples.add(failure);
+            }
+            if (progressListener != null) {
+                progressListener.accept(snapshot());
+            }
+        }
+
+        BulkSigningStats snapshot() {
+            return new BulkSigningStats(rowsRead, rowsSigned, rowsFailed, bytesWritten,
+                System.nanoTime() - started, new ArrayList<>(failureSamples));
+        }
+    }
+
+    private static final class Row {
+        final long line;
+        final Map<String, String> fields;
+        // Why the row could not be parsed, null for parsed rows
+        final String error;
+
+        Row(long line, Map<String, String> fields, String error) {
+            this.line = line;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Encoded output lines of a chunk, in row order
+     */
+    private static final class Chunk {
+        byte[] bytes = new byte[8192];
+        int length;
+        int signed;
+        final List<String> failures = new ArrayList<>();
+
+        void append(CharSequence line) {
+            byte[] encoded = line.toString().getBytes(StandardCharsets.UTF_8);
+            if (length + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + encoded.length));
+            }
+            System.arraycopy(encoded, 0, bytes, length, encoded.length);
+            length += encoded.length;
+        }
+    }
+
+    private static final class WorkerThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "payfast-bulk-signer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public static class Builder {
+        private final PayFastService service;
+        private PaymentRequestMapper mapper = PaymentRequestMapper.PAYFAST_FIELDS;
+        private OutputFormat outputFormat = OutputFormat.FORM_FIELDS;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private int chunkSize = 1000;
+        private int maxChunksInFlight;
+        private Consumer<BulkSigningStats> progressListener;
+
+        private Builder(PayFastService service) {
+            this.service = service;
+        }
+
+        public Builder mapper(PaymentRequestMapper mapper) {
+            this.mapper = mapper;
+            return this;
+        }
+
+        public Builder outputFormat(OutputFormat outputFormat) {
+            this.outputFormat = outputFormat;
+            return this;
+        }
+
+        /**
+         * @param workers Number of signing threads, defaults to the number of processors
+         */
+        public Builder workers(int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param chunkSize Rows signed per task, defaults to 1000
+         */
+        public Builder chunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /**
+         * @param maxChunksInFlight Chunks read ahead of the writer before the reader waits,
+         *                          defaults to twice the number of workers
+         */
+        public Builder maxChunksInFlight(int maxChunksInFlight) {
+            this.maxChunksInFlight = maxChunksInFlight;
+            return this;
+        }
+
+        /**
+         * @param progressListener Called on the running thread after every chunk is written
+         */
+        public Builder progressListener(Consumer<BulkSigningStats> progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        public BulkSigningPipeline build() throws ValidationException {
+            if (service == null) {
+                throw new ValidationException("PayFastService cannot be null");
+            }
+            if (mapper == null || outputFormat == null) {
+                throw new ValidationException("Mapper and output format cannot be null");
+            }
+            if (workers < 1 || chunkSize < 1) {
+                throw new ValidationException("Workers and chunk size must be at least 1");
+            }
+            if (maxChunksInFlight < 1) {
+                maxChunksInFlight = workers * 2;
+            }
+            return new BulkSigningPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.recceda.payfast.batch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of a bulk signing run, reported as progress while it runs and returned when it completes
+ */
+public class BulkSigningStats {
+    private final long rowsRead;
+    private final long rowsSigned;
+    private final long rowsFailed;
+    private final long bytesWritten;
+    private final long elapsedNanos;
+    private final List<String> failureSamples;
+
+    public BulkSigningStats(long rowsRead, long rowsSigned, long rowsFailed, long bytesWritten,
+                            long elapsedNanos, List<String> failureSamples) {
+        this.rowsRead = rowsRead;
+        this.rowsSigned = rowsSigned;
+        this.rowsFailed = rowsFailed;
+        this.bytesWritten = bytesWritten;
+        this.elapsedNanos = elapsedNanos;
+        this.failureSamples = Collections.unmodifiableList(failureSamples);
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsSigned() { return rowsSigned; }
+    public long getRowsFailed() { return rowsFailed; }
+    public long getBytesWritten() { return bytesWritten; }
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /**
+     * @return a bounded sample of failure messages, each prefixed with the input line number
+     */
+    public List<String> getFailureSamples() { return failureSamples; }
+
+    /**
+     * @return rows signed or failed per second since the run started
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (rowsSigned + rowsFailed) * 1_000_000_000d / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("read=%d signed=%d failed=%d bytes=%d rate=%.0f rows/s",
+            rowsRead, rowsSigned, rowsFailed, bytesWritten, getRowsPerSecond());
+    }
+}
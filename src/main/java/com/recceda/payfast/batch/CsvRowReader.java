@@ -0,0 +1,132 @@
+package com.recceda.payfast.batch;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads RFC 4180 CSV with a header row naming the columns. Quoted fields may contain
+ * commas, doubled quotes and line breaks. Empty lines are skipped. A row with more
+ * columns than the header is reported as malformed and reading continues with the next one.
+ */
+public class CsvRowReader implements RowReader {
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private List<String> header;
+    private long line = 1;
+    private long rowLine;
+    private int pending = -2;
+
+    public CsvRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        if (header == null) {
+            header = readRecord();
+            if (header == null) {
+                return null;
+            }
+        }
+        List<String> record;
+        do {
+            record = readRecord();
+        } while (record != null && record.size() == 1 && record.get(0).isEmpty());
+        if (record == null) {
+            return null;
+        }
+        if (record.size() > header.size()) {
+            throw new MalformedRowException(rowLine, "expected " + header.size() + " columns but found " + record.size());
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < record.size(); i++) {
+            row.put(header.get(i), record.get(i));
+        }
+        return row;
+    }
+
+    @Override
+    public long lineNumber() {
+        return rowLine;
+    }
+
+    private List<String> readRecord() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return null;
+        }
+        rowLine = line;
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new MalformedRowException(rowLine, "unterminated quoted field");
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                record.add(field.toString());
+                return record;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pending != -2) {
+            c = pending;
+            pending = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        if (c == '\n') {
+            line--;
+        }
+        pending = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
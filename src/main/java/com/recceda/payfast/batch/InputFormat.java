@@ -0,0 +1,28 @@
+package com.recceda.payfast.batch;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Supported bulk input file formats, read as UTF-8
+ */
+public enum InputFormat {
+    /** Comma separated values with a header row of PayFast field names */
+    CSV {
+        @Override
+        public RowReader open(Path path) throws IOException {
+            return new CsvRowReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        }
+    },
+    /** One flat JSON object per line keyed by PayFast field names */
+    JSON_LINES {
+        @Override
+        public RowReader open(Path path) throws IOException {
+            return new JsonLinesRowReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+        }
+    };
+
+    public abstract RowReader open(Path path) throws IOException;
+}
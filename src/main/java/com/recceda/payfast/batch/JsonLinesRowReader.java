@@ -0,0 +1,53 @@
+package com.recceda.payfast.batch;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Map;
+
+import com.recceda.payfast.util.JsonParser;
+
+/**
+ * Reads one flat JSON object per line, e.g. {@code {"m_payment_id":"INV-1","amount":100.00}}.
+ * String, number and boolean values are taken as their text; null values are skipped.
+ * Blank lines are ignored. A line that is not such an object is reported as malformed
+ * and reading continues with the next line.
+ */
+public class JsonLinesRowReader implements RowReader {
+    private final BufferedReader reader;
+    private final JsonParser parser = new JsonParser();
+    private long line;
+
+    public JsonLinesRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+        } while (text.trim().isEmpty());
+        try {
+            parser.reset(text);
+            Map<String, String> row = parser.readFlatObject();
+            parser.end();
+            return row;
+        } catch (IllegalArgumentException e) {
+            throw new MalformedRowException(line, "column " + (parser.position() + 1) + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long lineNumber() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
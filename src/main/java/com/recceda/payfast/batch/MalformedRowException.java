@@ -0,0 +1,34 @@
+package com.recceda.payfast.batch;
+
+import java.io.IOException;
+
+/**
+ * A row of the input could not be parsed. The reader has moved past it, so the next
+ * call to {@link RowReader#next()} continues with the following row.
+ */
+public class MalformedRowException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final long line;
+    private final String reason;
+
+    public MalformedRowException(long line, String reason) {
+        super("Line " + line + ": " + reason);
+        this.line = line;
+        this.reason = reason;
+    }
+
+    /**
+     * @return the line the malformed row started on
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * @return what is wrong with the row, without the line number
+     */
+    public String getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,11 @@
+package com.recceda.payfast.batch;
+
+/**
+ * What the bulk pipeline writes for each signed request, one line per request
+ */
+public enum OutputFormat {
+    /** A JSON object with the form action and the ordered, signed fields */
+    FORM_FIELDS,
+    /** A GET redirect URL to the PayFast process page with the signed fields as query parameters */
+    REDIRECT_URL
+}
@@ -0,0 +1,41 @@
+package com.recceda.payfast.batch;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.model.PaymentRequest;
+
+/**
+ * Maps an input row to the payment request to sign
+ */
+public interface PaymentRequestMapper {
+
+    /**
+     * Maps columns named after PayFast fields ({@code m_payment_id}, {@code amount},
+     * {@code item_name}, ...) onto a PaymentRequest. Unknown columns are ignored.
+     */
+    PaymentRequestMapper PAYFAST_FIELDS = row -> {
+        PaymentRequest request = new PaymentRequest();
+        request.setReturnUrl(row.get("return_url"));
+        request.setCancelUrl(row.get("cancel_url"));
+        request.setNotifyUrl(row.get("notify_url"));
+        request.setNameFirst(row.get("name_first"));
+        request.setNameLast(row.get("name_last"));
+        request.setEmailAddress(row.get("email_address"));
+        request.setMPaymentId(row.get("m_payment_id"));
+        request.setItemName(row.get("item_name"));
+        request.setItemDescription(row.get("item_description"));
+        String amount = row.get("amount");
+        if (amount != null && !amount.trim().isEmpty()) {
+            try {
+                request.setAmount(new BigDecimal(amount.trim()));
+            } catch (NumberFormatException e) {
+                throw new ValidationException("Invalid amount: " + amount, e);
+            }
+        }
+        return request;
+    };
+
+    PaymentRequest map(Map<String, String> row) throws ValidationException;
+}
@@ -0,0 +1,22 @@
+package com.recceda.payfast.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Reads input rows one at a time so arbitrarily large files can be processed with bounded memory
+ */
+public interface RowReader extends Closeable {
+    /**
+     * @return the next row keyed by column name, or null at the end of the input
+     * @throws MalformedRowException if the row cannot be parsed; the reader moves past it
+     * @throws IOException if the input cannot be read
+     */
+    Map<String, String> next() throws IOException;
+
+    /**
+     * @return the line number the last returned row started on, for error reporting
+     */
+    long lineNumber();
+}
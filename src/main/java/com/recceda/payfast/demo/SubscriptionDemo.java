@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 
 import com.recceda.payfast.PayFastService;
 import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.model.Money;
 import com.recceda.payfast.model.PayFastFormData;
 import com.recceda.payfast.model.SubscriptionRequest;
 
@@ -33,7 +34,7 @@ public class SubscriptionDemo {
             
             // Subscription specific settings
             subscription.setSubscriptionType("1");      // Subscription
-            subscription.setRecurringAmount(5000);      // 50.00 in cents
+            subscription.setRecurringAmountMoney(Money.parse("50.00")); // R50.00 per cycle
             subscription.setFrequency(3);               // Monthly (1=Daily, 2=Weekly, 3=Monthly, 4=Quarterly, 5=Biannually, 6=Annual)
             subscription.setCycles(12);                 // 12 months
             
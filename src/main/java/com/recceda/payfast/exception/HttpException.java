@@ -0,0 +1,26 @@
+package com.recceda.payfast.exception;
+
+public class HttpException extends PayFastException {
+    private final int statusCode;
+    
+    public HttpException(String message) {
+        this(message, -1);
+    }
+    
+    public HttpException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+    
+    public HttpException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = -1;
+    }
+    
+    /**
+     * @return the HTTP status returned by the server, or -1 if no response was received
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
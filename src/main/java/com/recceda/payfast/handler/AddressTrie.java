@@ -0,0 +1,120 @@
+package com.recceda.payfast.handler;
+
+import java.util.Arrays;
+
+/**
+ * Immutable binary prefix trie over IP addresses of one family.
+ * <p>
+ * Nodes live in flat int arrays: the children of node {@code n} are at {@code 2n} and
+ * {@code 2n + 1} of {@link #children}, and 0 means no child (the root is node 0 and is
+ * never a child). A lookup walks at most one node per address bit and allocates nothing.
+ */
+final class AddressTrie {
+    static final AddressTrie EMPTY = new Builder(32).build();
+
+    private final int bits;
+    private final int[] children;
+    private final boolean[] terminal;
+
+    private AddressTrie(int bits, int[] children, boolean[] terminal) {
+        this.bits = bits;
+        this.children = children;
+        this.terminal = terminal;
+    }
+
+    /**
+     * @return true if the address starts with any prefix in the trie
+     */
+    boolean contains(byte[] address) {
+        if (address.length * 8 != bits) {
+            return false;
+        }
+        int node = 0;
+        for (int i = 0; i < bits; i++) {
+            if (terminal[node]) {
+                return true;
+            }
+            int bit = (address[i >> 3] >> (7 - (i & 7))) & 1;
+            node = children[2 * node + bit];
+            if (node == 0) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    /**
+     * IPv4 lookup on the address packed into an int, most significant byte first
+     */
+    boolean contains(int ipv4) {
+        if (bits != 32) {
+            return false;
+        }
+        int node = 0;
+        for (int i = 31; i >= 0; i--) {
+            if (terminal[node]) {
+                return true;
+            }
+            node = children[2 * node + ((ipv4 >>> i) & 1)];
+            if (node == 0) {
+                return false;
+            }
+        }
+        return terminal[node];
+    }
+
+    /**
+     * @return the number of nodes, for sizing diagnostics
+     */
+    int nodeCount() {
+        return terminal.length;
+    }
+
+    static final class Builder {
+        private final int bits;
+        private int[] children = new int[64];
+        private boolean[] terminal = new boolean[32];
+        private int size = 1;
+
+        Builder(int bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * Add every address starting with the first {@code prefixLength} bits of {@code address}
+         */
+        Builder add(byte[] address, int prefixLength) {
+            if (address.length * 8 != bits || prefixLength < 0 || prefixLength > bits) {
+                throw new IllegalArgumentException("Invalid prefix /" + prefixLength + " for a " + bits + "-bit address");
+            }
+            int node = 0;
+            for (int i = 0; i < prefixLength; i++) {
+                if (terminal[node]) {
+                    // Already covered by a shorter prefix
+                    return this;
+                }
+                int bit = (address[i >> 3] >> (7 - (i & 7))) & 1;
+                int child = children[2 * node + bit];
+                if (child == 0) {
+                    child = newNode();
+                    children[2 * node + bit] = child;
+                }
+                node = child;
+            }
+            terminal[node] = true;
+            return this;
+        }
+
+        private int newNode() {
+            if (size == terminal.length) {
+                terminal = Arrays.copyOf(terminal, size * 2);
+                children = Arrays.copyOf(children, size * 4);
+            }
+            return size++;
+        }
+
+        AddressTrie build() {
+            return new AddressTrie(bits, Arrays.copyOf(children, size * 2), Arrays.copyOf(terminal, size));
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.recceda.payfast.handler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.recceda.payfast.exception.SignatureException;
+import com.recceda.payfast.model.PayFastFields;
+import com.recceda.payfast.util.SignatureEngine;
+
+/**
+ * Flyweight view over a raw ITN POST body ({@code application/x-www-form-urlencoded}).
+ * <p>
+ * The body is scanned once to record where each field starts and ends; names and values
+ * are only decoded when they are read and the decoded value is cached. Heap buffers are
+ * used in place, direct buffers are copied once. The view keeps a reference to the body,
+ * so the caller must not modify it while the view is in use.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class ITNBody {
+    private static final int INITIAL_FIELDS = 32;
+
+    private final byte[] body;
+    private final int length;
+    private int size;
+    private int[] fieldStart = new int[INITIAL_FIELDS];
+    private int[] separator = new int[INITIAL_FIELDS];
+    private int[] fieldEnd = new int[INITIAL_FIELDS];
+    private String[] names;
+    private String[] values;
+
+    private ITNBody(byte[] body, int offset, int length) {
+        this.body = body;
+        this.length = length;
+        scan(offset, offset + length);
+    }
+
+    public static ITNBody parse(byte[] body) {
+        return parse(body, 0, body.length);
+    }
+
+    public static ITNBody parse(byte[] body, int offset, int length) {
+        if (body == null) {
+            throw new IllegalArgumentException("ITN body cannot be null");
+        }
+        if (offset < 0 || length < 0 || offset + length > body.length) {
+            throw new IndexOutOfBoundsException("Invalid body range");
+        }
+        return new ITNBody(body, offset, length);
+    }
+
+    /**
+     * Parse the remaining bytes of the buffer. The buffer position is not changed.
+     */
+    public static ITNBody parse(ByteBuffer body) {
+        if (body == null) {
+            throw new IllegalArgumentException("ITN body cannot be null");
+        }
+        if (body.hasArray()) {
+            return new ITNBody(body.array(), body.arrayOffset() + body.position(), body.remaining());
+        }
+        byte[] copy = new byte[body.remaining()];
+        body.duplicate().get(copy);
+        return new ITNBody(copy, 0, copy.length);
+    }
+
+    private void scan(int from, int to) {
+        int start = from;
+        int equals = -1;
+        for (int i = from; i <= to; i++) {
+            byte b = i < to ? body[i] : (byte) '&';
+            if (b == '=' && equals < 0) {
+                equals = i;
+            } else if (b == '&') {
+                if (i > start) {
+                    addField(start, equals < 0 ? i : equals, i);
+                }
+                start = i + 1;
+                equals = -1;
+            }
+        }
+    }
+
+    private void addField(int start, int equals, int end) {
+        if (size == fieldStart.length) {
+            int capacity = size * 2;
+            fieldStart = Arrays.copyOf(fieldStart, capacity);
+            separator = Arrays.copyOf(separator, capacity);
+            fieldEnd = Arrays.copyOf(fieldEnd, capacity);
+        }
+        fieldStart[size] = start;
+        separator[size] = equals;
+        fieldEnd[size] = end;
+        size++;
+    }
+
+    /**
+     * @return the number of fields in the body, in the order they were posted
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the length of the raw body in bytes
+     */
+    public int byteLength() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the decoded name of the field at {@code index}
+     */
+    public String name(int index) {
+        checkIndex(index);
+        if (names == null) {
+            names = new String[size];
+        }
+        String name = names[index];
+        if (name == null) {
+            name = decode(fieldStart[index], separator[index]);
+            names[index] = name;
+        }
+        return name;
+    }
+
+    /**
+     * @return the decoded value of the field at {@code index}, empty if the field has no value
+     * @throws IllegalArgumentException if the value contains a malformed percent-escape
+     */
+    public String value(int index) {
+        checkIndex(index);
+        if (values == null) {
+            values = new String[size];
+        }
+        String value = values[index];
+        if (value == null) {
+            int end = fieldEnd[index];
+            int start = separator[index] < end ? separator[index] + 1 : end;
+            value = decode(start, end);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * @return the index of the first field named {@code name}, or -1 if there is none
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (nameEquals(i, name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * @return the decoded value of the first field named {@code name}, or null if there is none
+     */
+    public String get(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : value(index);
+    }
+
+    /**
+     * Decode every field into an insertion-ordered map. Later fields with the same name win.
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(name(i), value(i));
+        }
+        return map;
+    }
+
+    /**
+     * Check the posted signature against the fields exactly as they were received: every
+     * field except {@code signature} is hashed from the original encoded bytes in posted
+     * order, followed by the passphrase, without decoding or re-encoding any value. A
+     * field posted without {@code =} is hashed as {@code name=}.
+     * @return false if there is no signature field or it does not match
+     */
+    public boolean validateSignature(String passphrase) throws SignatureException {
+        int signatureIndex = indexOf("signature");
+        if (signatureIndex < 0) {
+            return false;
+        }
+        return signatureMatches(signatureIndex, passphrase);
+    }
+
+    boolean signatureMatches(int signatureIndex, String passphrase) throws SignatureException {
+        SignatureEngine engine = SignatureEngine.current();
+        hashSignedFields(engine, signatureIndex);
+        engine.addPassphrase(passphrase);
+        return engine.matches(value(signatureIndex));
+    }
+
+    /**
+     * Feed every field except the signature into the engine as it was posted
+     */
+    void hashSignedFields(SignatureEngine engine, int signatureIndex) {
+        for (int i = 0; i < size; i++) {
+            if (i != signatureIndex && !nameEquals(i, "signature")) {
+                hashField(engine, i);
+            }
+        }
+    }
+
+    /**
+     * Feed the field at {@code index} into the engine as it was posted
+     */
+    void hashField(SignatureEngine engine, int index) {
+        if (separator[index] == fieldEnd[index]) {
+            // Posted without '=': hashed as an empty value, as the decoded map has it
+            engine.addEncodedName(body, fieldStart[index], fieldEnd[index] - fieldStart[index]);
+        } else {
+            engine.addEncodedParam(body, fieldStart[index], fieldEnd[index] - fieldStart[index]);
+        }
+    }
+
+    /**
+     * Join the fields as they were posted, leaving out every field named {@code excluded}
+     */
+    byte[] encodedWithout(String excluded) {
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            if (!nameEquals(i, excluded)) {
+                length += (length > 0 ? 1 : 0) + fieldEnd[i] - fieldStart[i];
+            }
+        }
+        byte[] encoded = new byte[length];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            if (!nameEquals(i, excluded)) {
+                if (position > 0) {
+                    encoded[position++] = '&';
+                }
+                System.arraycopy(body, fieldStart[i], encoded, position, fieldEnd[i] - fieldStart[i]);
+                position += fieldEnd[i] - fieldStart[i];
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * @return the {@link PayFastFields} ordinal of the field's name, or -1 if it is not a
+     *         known PayFast field. Plain names are looked up from the posted bytes.
+     */
+    int knownField(int index) {
+        checkIndex(index);
+        if (names != null && names[index] != null) {
+            return PayFastFields.ordinal(names[index]);
+        }
+        int start = fieldStart[index];
+        int ordinal = PayFastFields.ordinal(body, start, separator[index] - start);
+        if (ordinal < 0 && needsDecoding(start, separator[index])) {
+            return PayFastFields.ordinal(name(index));
+        }
+        return ordinal;
+    }
+
+    /**
+     * Compare the name of a field with an ASCII name without decoding it
+     */
+    boolean nameEquals(int index, String name) {
+        int start = fieldStart[index];
+        int length = separator[index] - start;
+        if (names != null && names[index] != null) {
+            return names[index].equals(name);
+        }
+        if (length != name.length()) {
+            // An escaped name can only match once it is decoded
+            return needsDecoding(start, separator[index]) && name(index).equals(name);
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = body[start + i];
+            if (b == '%' || b == '+') {
+                return name(index).equals(name);
+            }
+            if (b != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean needsDecoding(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (body[i] == '%' || body[i] == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String decode(int start, int end) {
+        if (!needsDecoding(start, end)) {
+            return new String(body, start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] decoded = new byte[end - start];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = body[i];
+            if (b == '+') {
+                decoded[length++] = ' ';
+            } else if (b == '%') {
+                if (i + 2 >= end) {
+                    throw new IllegalArgumentException("Incomplete trailing escape (%) pattern");
+                }
+                int high = Character.digit(body[i + 1], 16);
+                int low = Character.digit(body[i + 2], 16);
+                if (high < 0 || low < 0) {
+                    throw new IllegalArgumentException("Illegal hex characters in escape (%) pattern");
+                }
+                decoded[length++] = (byte) ((high << 4) | low);
+                i += 2;
+            } else {
+                decoded[length++] = b;
+            }
+        }
+        return new String(decoded, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Field index: " + index + ", size: " + size);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.recceda.payfast.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ConfigurationException;
+import com.recceda.payfast.exception.HttpException;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.ValidationException;
+
+/**
+ * Confirms an ITN with PayFast by posting its fields back to {@code /eng/query/validate}.
+ * <p>
+ * Connections are kept alive and reused across calls through the JDK's HTTP keep-alive
+ * cache: every response is read to the end and closed, never disconnected, so the socket
+ * goes back to the pool. At most {@code maxConcurrentRequests} confirmations are in flight
+ * at a time; callers beyond that wait up to {@code acquireTimeout} for a slot.
+ * <p>
+ * Instances are thread-safe and meant to be shared.
+ */
+public class ITNConfirmationClient {
+    private static final Logger log = LoggerFactory.getLogger(ITNConfirmationClient.class);
+    private static final String VALIDATE_PATH = "/eng/query/validate";
+    private static final int MAX_RESPONSE_BYTES = 1024;
+
+    private final URL validateUrl;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final Semaphore permits;
+
+    /**
+     * Create a client for the PayFast host of the config with default settings
+     */
+    public ITNConfirmationClient(PayFastConfig config) throws ConfigurationException {
+        this(builder(config));
+    }
+
+    private ITNConfirmationClient(Builder builder) throws ConfigurationException {
+        if (builder.baseUrl == null || builder.baseUrl.trim().isEmpty()) {
+            throw new ConfigurationException("PayFast base URL cannot be null or empty");
+        }
+        if (builder.connectTimeoutMillis < 0 || builder.readTimeoutMillis < 0 || builder.acquireTimeoutMillis < 0) {
+            throw new ConfigurationException("Timeouts cannot be negative");
+        }
+        if (builder.maxConcurrentRequests < 1) {
+            throw new ConfigurationException("Max concurrent requests must be at least 1");
+        }
+        try {
+            this.validateUrl = new URL(builder.baseUrl + VALIDATE_PATH);
+        } catch (IOException e) {
+            throw new ConfigurationException("Invalid PayFast base URL: " + builder.baseUrl, e);
+        }
+        this.connectTimeoutMillis = builder.connectTimeoutMillis;
+        this.readTimeoutMillis = builder.readTimeoutMillis;
+        this.acquireTimeoutMillis = builder.acquireTimeoutMillis;
+        this.permits = new Semaphore(builder.maxConcurrentRequests, true);
+    }
+
+    public static Builder builder(PayFastConfig config) {
+        return new Builder(config);
+    }
+
+    /**
+     * Confirm a parsed ITN body. The fields are posted exactly as they were received,
+     * without the signature.
+     * @return true if PayFast answered {@code VALID}
+     * @throws HttpException if PayFast could not be reached or returned an error status
+     * @throws PayFastException if no request slot became free in time or the call was interrupted
+     */
+    public boolean confirm(ITNBody body) throws PayFastException {
+        if (body == null || body.isEmpty()) {
+            throw new ValidationException("ITN body cannot be null or empty");
+        }
+        return post(body.encodedWithout("signature"));
+    }
+
+    /**
+     * @see #confirm(ITNBody)
+     */
+    public boolean confirm(byte[] body) throws PayFastException {
+        if (body == null || body.length == 0) {
+            throw new ValidationException("ITN body cannot be null or empty");
+        }
+        return confirm(ITNBody.parse(body));
+    }
+
+    /**
+     * @see #confirm(ITNBody)
+     */
+    public boolean confirm(String itnData) throws PayFastException {
+        if (itnData == null || itnData.trim().isEmpty()) {
+            throw new ValidationException("ITN data string cannot be null or empty");
+        }
+        return confirm(itnData.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the number of confirmations that can start right now without waiting
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private boolean post(byte[] payload) throws PayFastException {
+        acquire();
+        try {
+            long started = System.nanoTime();
+            String response = send(payload);
+            boolean valid = "VALID".equals(response);
+            if (!valid && !"INVALID".equals(response)) {
+                log.warn("Unexpected ITN confirmation response: {}", response);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("ITN confirmation {} in {} ms", valid ? "VALID" : "INVALID",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+            return valid;
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() throws PayFastException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new PayFastException("Too many ITN confirmations in flight, no slot free after "
+                    + acquireTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PayFastException("ITN confirmation interrupted", e);
+        }
+    }
+
+    private String send(byte[] payload) throws HttpException {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) validateUrl.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(connectTimeoutMillis);
+            connection.setReadTimeout(readTimeoutMillis);
+            connection.setUseCaches(false);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(payload.length);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(payload);
+            }
+
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                drain(connection.getErrorStream());
+                throw new HttpException("ITN confirmation failed with HTTP status " + status, status);
+            }
+            return drain(connection.getInputStream()).trim();
+        } catch (IOException e) {
+            if (connection != null) {
+                // The connection is in an unknown state, do not return it to the pool
+                connection.disconnect();
+            }
+            throw new HttpException("ITN confirmation request failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the stream to the end and close it so the connection can be reused
+     * @return the first {@value #MAX_RESPONSE_BYTES} bytes as text
+     */
+    private static String drain(InputStream in) throws IOException {
+        if (in == null) {
+            return "";
+        }
+        try (InputStream stream = in) {
+            ByteArrayOutputStream response = new ByteArrayOutputStream(16);
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                int keep = Math.min(read, MAX_RESPONSE_BYTES - response.size());
+                if (keep > 0) {
+                    response.write(buffer, 0, keep);
+                }
+            }
+            return new String(response.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    public static class Builder {
+        private String baseUrl;
+        private int connectTimeoutMillis = 5000;
+        private int readTimeoutMillis = 10000;
+        private long acquireTimeoutMillis = 10000;
+        private int maxConcurrentRequests = 20;
+
+        private Builder(PayFastConfig config) {
+            this.baseUrl = config == null ? null : config.getBaseUrl();
+        }
+
+        /**
+         * Post to another host instead of the PayFast one, such as a local stub in tests
+         */
+        public Builder baseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+            return this;
+        }
+
+        public Builder connectTimeout(long timeout, TimeUnit unit) {
+            this.connectTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+            return this;
+        }
+
+        public Builder readTimeout(long timeout, TimeUnit unit) {
+            this.readTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+            return this;
+        }
+
+        /**
+         * @param timeout How long a caller waits for a free slot once the concurrency limit is reached
+         */
+        public Builder acquireTimeout(long timeout, TimeUnit unit) {
+            this.acquireTimeoutMillis = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder maxConcurrentRequests(int maxConcurrentRequests) {
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
+        public ITNConfirmationClient build() throws ConfigurationException {
+            return new ITNConfirmationClient(this);
+        }
+    }
+}
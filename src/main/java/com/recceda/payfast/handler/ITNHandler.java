@@ -2,45 +2,274 @@ package com.recceda.payfast.handler;
 
 import com.recceda.payfast.config.PayFastConfig;
 import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.metrics.Operation;
+import com.recceda.payfast.metrics.PayFastMetrics;
+import com.recceda.payfast.model.Money;
 import com.recceda.payfast.model.NotificationData;
+import com.recceda.payfast.model.PayFastFields;
 
+import com.recceda.payfast.util.MerchantSigningState;
+import com.recceda.payfast.util.RateLimitedLogger;
+import com.recceda.payfast.util.SignatureEngine;
 import com.recceda.payfast.util.SignatureUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class ITNHandler {
     private static final Logger log = LoggerFactory.getLogger(ITNHandler.class);
+    // Rejections can be triggered by anyone posting to the notify URL, so they are rate limited
+    private static final RateLimitedLogger rejections = RateLimitedLogger.forClass(ITNHandler.class);
+    
+    // Fields mapped onto NotificationData, dispatched by position in validateAndParse
+    private static final String[] NOTIFICATION_FIELDS = {
+        "signature", "m_payment_id", "pf_payment_id", "payment_status", "item_name", "item_description",
+        "amount_gross", "amount_fee", "amount_net", "name_first", "name_last", "email_address", "merchant_id"
+    };
+    // Position in NOTIFICATION_FIELDS by PayFastFields ordinal, -1 for fields that are only hashed
+    private static final int[] NOTIFICATION_FIELD_BY_ORDINAL = new int[PayFastFields.KNOWN_FIELDS];
+
+    static {
+        Arrays.fill(NOTIFICATION_FIELD_BY_ORDINAL, -1);
+        for (int i = 0; i < NOTIFICATION_FIELDS.length; i++) {
+            NOTIFICATION_FIELD_BY_ORDINAL[PayFastFields.ordinal(NOTIFICATION_FIELDS[i])] = i;
+        }
+    }
+
     private final PayFastConfig config;
+    private final MerchantSigningState merchant;
+    private final PayFastMetrics metrics;
+    private final boolean timed;
     
     public ITNHandler(PayFastConfig config) {
+        this(config, MerchantSigningState.of(config));
+    }
+    
+    /**
+     * Create a handler sharing signing state already computed for the config
+     */
+    public ITNHandler(PayFastConfig config, MerchantSigningState merchant) {
+        this(config, merchant, PayFastMetrics.NOOP);
+    }
+    
+    /**
+     * Create a handler sharing signing state and reporting validations to the metrics
+     */
+    public ITNHandler(PayFastConfig config, MerchantSigningState merchant, PayFastMetrics metrics) {
         this.config = config;
+        this.merchant = merchant;
+        this.metrics = metrics == null ? PayFastMetrics.NOOP : metrics;
+        this.timed = this.metrics.isEnabled();
     }
     
+    public PayFastMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Validate an ITN from its decoded fields. The signature covers the fields in the order
+     * they were posted, so the map must keep that order, like the one returned by
+     * {@link #parseNotificationString(String)}. Gives the same result as
+     * {@link #validateITN(ITNBody)} on the raw body.
+     * @param params The posted fields, including {@code signature}
+     * @return true if the posted signature matches
+     * @throws ValidationException if the map is empty or validation fails
+     */
     public boolean validateITN(Map<String, String> params) throws ValidationException {
+        if (!timed) {
+            return checkSignature(params);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            boolean isValid = checkSignature(params);
+            success = true;
+            return isValid;
+        } finally {
+            metrics.recordTime(Operation.ITN_VALIDATE_MAP, System.nanoTime() - start, success);
+        }
+    }
+    
+    private boolean checkSignature(Map<String, String> params) throws ValidationException {
         if (params == null || params.isEmpty()) {
             throw new ValidationException("ITN parameters cannot be null or empty");
         }
         
         String signature = params.get("signature");
         if (signature == null) {
-            log.warn("ITN validation failed: No signature provided");
+            rejections.warn("ITN validation failed: No signature provided");
+            signatureMissing(Operation.ITN_VALIDATE_MAP);
+            return false;
+        }
+        
+        try {
+            boolean isValid = SignatureUtil.validateITNSignature(params, signature, config.getPassphrase());
+            logValidation(isValid);
+            if (timed) metrics.itnValidated(isValid);
+            return isValid;
+        } catch (Exception e) {
+            if (timed) metrics.signatureFailure(Operation.ITN_VALIDATE_MAP);
+            log.error("ITN validation failed", e);
+            throw new ValidationException("ITN validation failed", e);
+        }
+    }
+    
+    /**
+     * Validate an ITN from its raw POST body. The signature is checked against the fields
+     * as they were posted, hashing the original encoded bytes.
+     * @param body The parsed ITN body
+     * @return true if the posted signature matches
+     * @throws ValidationException if the body is empty or validation fails
+     */
+    public boolean validateITN(ITNBody body) throws ValidationException {
+        if (!timed) {
+            return checkSignature(body);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            boolean isValid = checkSignature(body);
+            success = true;
+            return isValid;
+        } finally {
+            metrics.recordTime(Operation.ITN_VALIDATE, System.nanoTime() - start, success);
+        }
+    }
+    
+    private boolean checkSignature(ITNBody body) throws ValidationException {
+        if (body == null || body.isEmpty()) {
+            throw new ValidationException("ITN parameters cannot be null or empty");
+        }
+        
+        if (timed) metrics.itnBodySize(body.byteLength());
+        int signatureIndex = body.indexOf("signature");
+        if (signatureIndex < 0) {
+            rejections.warn("ITN validation failed: No signature provided");
+            signatureMissing(Operation.ITN_VALIDATE);
             return false;
         }
         
         try {
-            boolean isValid = SignatureUtil.validateSignature(params, signature, config.getPassphrase());
-            log.info("ITN signature validation: {}", isValid ? "VALID" : "INVALID");
+            SignatureEngine engine = SignatureEngine.current();
+            body.hashSignedFields(engine, signatureIndex);
+            boolean isValid = merchant.matches(engine, body.value(signatureIndex));
+            logValidation(isValid);
+            if (timed) metrics.itnValidated(isValid);
             return isValid;
         } catch (Exception e) {
+            if (timed) metrics.signatureFailure(Operation.ITN_VALIDATE);
             log.error("ITN validation failed", e);
             throw new ValidationException("ITN validation failed", e);
         }
     }
     
+    /**
+     * Validate the signature and map the notification from a raw ITN POST body in a single
+     * pass over its fields. Nothing is copied into an intermediate map and values are only
+     * decoded for the fields NotificationData carries.
+     * @param body The request body bytes
+     * @return The validity, typed notification and raw fields
+     * @throws ValidationException if the body is empty or cannot be parsed
+     */
+    public ITNResult validateAndParse(byte[] body) throws ValidationException {
+        return validateAndParse(parseNotificationBody(body));
+    }
+    
+    /**
+     * @see #validateAndParse(byte[])
+     */
+    public ITNResult validateAndParse(ByteBuffer body) throws ValidationException {
+        return validateAndParse(parseNotificationBody(body));
+    }
+    
+    /**
+     * @see #validateAndParse(byte[])
+     */
+    public ITNResult validateAndParse(String itnData) throws ValidationException {
+        validateItnData(itnData);
+        return validateAndParse(ITNBody.parse(itnData.getBytes(StandardCharsets.UTF_8)), Operation.ITN_VALIDATE_AND_PARSE_STRING);
+    }
+    
+    /**
+     * @see #validateAndParse(byte[])
+     */
+    public ITNResult validateAndParse(ITNBody body) throws ValidationException {
+        return validateAndParse(body, Operation.ITN_VALIDATE_AND_PARSE);
+    }
+    
+    private ITNResult validateAndParse(ITNBody body, Operation operation) throws ValidationException {
+        if (!timed) {
+            return parseAndVerify(body, operation);
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            ITNResult result = parseAndVerify(body, operation);
+            success = true;
+            return result;
+        } finally {
+            metrics.recordTime(operation, System.nanoTime() - start, success);
+        }
+    }
+    
+    private ITNResult parseAndVerify(ITNBody body, Operation operation) throws ValidationException {
+        if (body == null || body.isEmpty()) {
+            throw new ValidationException("ITN body cannot be null or empty");
+        }
+        if (timed) metrics.itnBodySize(body.byteLength());
+        try {
+            SignatureEngine engine = SignatureEngine.current();
+            NotificationData data = new NotificationData();
+            int signatureIndex = -1;
+            
+            for (int i = 0; i < body.size(); i++) {
+                int ordinal = body.knownField(i);
+                int field = ordinal < 0 ? -1 : NOTIFICATION_FIELD_BY_ORDINAL[ordinal];
+                if (field == 0) {
+                    if (signatureIndex < 0) signatureIndex = i;
+                    continue;
+                }
+                body.hashField(engine, i);
+                switch (field) {
+                    case 1: data.setMPaymentId(body.value(i)); break;
+                    case 2: data.setPfPaymentId(body.value(i)); break;
+                    case 3: data.setPaymentStatus(body.value(i)); break;
+                    case 4: data.setItemName(body.value(i)); break;
+                    case 5: data.setItemDescription(body.value(i)); break;
+                    case 6: data.setAmountGrossMoney(Money.parse(body.value(i))); break;
+                    case 7: data.setAmountFeeMoney(Money.parse(body.value(i))); break;
+                    case 8: data.setAmountNetMoney(Money.parse(body.value(i))); break;
+                    case 9: data.setNameFirst(body.value(i)); break;
+                    case 10: data.setNameLast(body.value(i)); break;
+                    case 11: data.setEmailAddress(body.value(i)); break;
+                    case 12: data.setMerchantId(body.value(i)); break;
+                    default: break;
+                }
+            }
+            
+            boolean isValid = false;
+            if (signatureIndex < 0) {
+                rejections.warn("ITN validation failed: No signature provided");
+                signatureMissing(operation);
+            } else {
+                data.setSignature(body.value(signatureIndex));
+                isValid = merchant.matches(engine, data.getSignature());
+                if (timed) metrics.itnValidated(isValid);
+                logValidation(isValid);
+            }
+            return new ITNResult(isValid, data, body);
+        } catch (Exception e) {
+            if (timed) metrics.signatureFailure(operation);
+            log.error("Failed to validate and parse ITN notification", e);
+            throw new ValidationException("Failed to validate and parse ITN notification", e);
+        }
+    }
+    
     public NotificationData parseNotification(Map<String, String> params) throws ValidationException {
         if (params == null || params.isEmpty()) {
             throw new ValidationException("ITN parameters cannot be null or empty");
@@ -55,13 +284,13 @@ public class ITNHandler {
             data.setItemDescription(params.get("item_description"));
 
             String amountGross = params.get("amount_gross");
-            if (amountGross != null) data.setAmountGross(new BigDecimal(amountGross));
+            if (amountGross != null) data.setAmountGrossMoney(Money.parse(amountGross));
 
             String amountFee = params.get("amount_fee");
-            if (amountFee != null) data.setAmountFee(new BigDecimal(amountFee));
+            if (amountFee != null) data.setAmountFeeMoney(Money.parse(amountFee));
 
             String amountNet = params.get("amount_net");
-            if (amountNet != null) data.setAmountNet(new BigDecimal(amountNet));
+            if (amountNet != null) data.setAmountNetMoney(Money.parse(amountNet));
 
             data.setNameFirst(params.get("name_first"));
             data.setNameLast(params.get("name_last"));
@@ -77,11 +306,15 @@ public class ITNHandler {
         }
     }
     
+    /**
+     * Decode a raw ITN POST body into its fields
+     * @return the fields in the order they were posted
+     */
     public Map<String, String> parseNotificationString(String itnData) throws ValidationException {
         validateItnData(itnData);
 
         try {
-            Map<String, String> params = new HashMap<>();
+            Map<String, String> params = new LinkedHashMap<>();
             String[] pairs = splitPairs(itnData);
 
             for (String pair : pairs) {
@@ -96,6 +329,47 @@ public class ITNHandler {
         }
     }
 
+    /**
+     * Parse a raw ITN POST body without copying or decoding it up front
+     * @param body The request body bytes
+     * @return A view over the body that decodes fields as they are read
+     * @throws ValidationException if the body is null or empty
+     */
+    public ITNBody parseNotificationBody(byte[] body) throws ValidationException {
+        if (body == null || body.length == 0) {
+            throw new ValidationException("ITN body cannot be null or empty");
+        }
+        return ITNBody.parse(body);
+    }
+    
+    /**
+     * Parse the remaining bytes of a raw ITN POST body without copying heap buffers
+     * @param body The request body buffer
+     * @return A view over the body that decodes fields as they are read
+     * @throws ValidationException if the body is null or empty
+     */
+    public ITNBody parseNotificationBody(ByteBuffer body) throws ValidationException {
+        if (body == null || !body.hasRemaining()) {
+            throw new ValidationException("ITN body cannot be null or empty");
+        }
+        return ITNBody.parse(body);
+    }
+
+    private void logValidation(boolean isValid) {
+        if (!isValid) {
+            rejections.warn("ITN signature validation: INVALID");
+        } else if (log.isDebugEnabled()) {
+            log.debug("ITN signature validation: VALID");
+        }
+    }
+
+    private void signatureMissing(Operation operation) {
+        if (timed) {
+            metrics.signatureFailure(operation);
+            metrics.itnValidated(false);
+        }
+    }
+
     private void validateItnData(String itnData) throws ValidationException {
         if (itnData == null || itnData.trim().isEmpty()) {
             throw new ValidationException("ITN data string cannot be null or empty");
@@ -0,0 +1,33 @@
+package com.recceda.payfast.handler;
+
+import com.recceda.payfast.model.NotificationData;
+
+/**
+ * Outcome of validating and parsing an ITN in one pass
+ */
+public final class ITNResult {
+    private final boolean valid;
+    private final NotificationData notification;
+    private final ITNBody fields;
+    
+    public ITNResult(boolean valid, NotificationData notification, ITNBody fields) {
+        this.valid = valid;
+        this.notification = notification;
+        this.fields = fields;
+    }
+    
+    /**
+     * @return true if the posted signature matched the notification fields
+     */
+    public boolean isValid() { return valid; }
+    
+    /**
+     * @return the typed notification, populated whether or not the signature was valid
+     */
+    public NotificationData getNotification() { return notification; }
+    
+    /**
+     * @return the raw posted fields, including any the notification does not map
+     */
+    public ITNBody getFields() { return fields; }
+}
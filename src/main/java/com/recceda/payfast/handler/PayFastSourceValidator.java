@@ -0,0 +1,334 @@
+package com.recceda.payfast.handler;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.exception.ConfigurationException;
+
+/**
+ * Checks that an ITN request comes from a PayFast server.
+ * <p>
+ * The PayFast host names are resolved when the validator is built and then again in the
+ * background on a schedule, so no check waits for DNS. Resolved addresses and the
+ * configured CIDR ranges are compiled into prefix tries that are swapped in atomically.
+ * A check walks one trie node per address bit. Checking a textual IPv4 address or an
+ * address byte array allocates nothing.
+ * <p>
+ * If a host cannot be resolved, its last known addresses are kept. The address to check
+ * is the peer of the connection; resolving proxy headers such as
+ * {@code X-Forwarded-For} is up to the caller.
+ */
+public class PayFastSourceValidator implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PayFastSourceValidator.class);
+
+    /**
+     * Host names PayFast sends ITNs from
+     */
+    public static final List<String> PAYFAST_HOSTS = Collections.unmodifiableList(Arrays.asList(
+        "www.payfast.co.za", "sandbox.payfast.co.za", "w1w.payfast.co.za", "w2w.payfast.co.za"));
+
+    /**
+     * Address ranges PayFast publishes for its ITN servers
+     */
+    public static final List<String> PAYFAST_RANGES = Collections.unmodifiableList(Arrays.asList(
+        "197.97.145.144/28", "41.74.179.192/27", "102.216.36.0/28", "102.216.36.128/28", "144.126.193.139/32"));
+
+    private final List<String> hosts;
+    private final List<Cidr> ranges;
+    private final Resolver resolver;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final Map<String, InetAddress[]> resolved = new LinkedHashMap<>();
+    private volatile AddressTrie ipv4 = AddressTrie.EMPTY;
+    private volatile AddressTrie ipv6 = AddressTrie.EMPTY;
+
+    private PayFastSourceValidator(Builder builder) throws ConfigurationException {
+        this.hosts = new ArrayList<>(builder.hosts);
+        this.ranges = new ArrayList<>();
+        for (String range : builder.ranges) {
+            ranges.add(Cidr.parse(range));
+        }
+        this.resolver = builder.resolver;
+        refresh();
+
+        if (builder.refreshIntervalMillis > 0 && !hosts.isEmpty()) {
+            this.ownsScheduler = builder.scheduler == null;
+            this.scheduler = ownsScheduler ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "payfast-source-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }) : builder.scheduler;
+            scheduler.scheduleWithFixedDelay(this::refreshQuietly, builder.refreshIntervalMillis,
+                builder.refreshIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.ownsScheduler = false;
+            this.scheduler = null;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param address An IPv4 or IPv6 address literal; host names are never resolved
+     * @return true if the address belongs to PayFast
+     */
+    public boolean isAllowed(String address) {
+        if (address == null) {
+            return false;
+        }
+        long packed = parseIpv4(address);
+        if (packed >= 0) {
+            return ipv4.contains((int) packed);
+        }
+        if (!isIpv6Literal(address)) {
+            return false;
+        }
+        try {
+            // Only ever given a literal here, so this parses and never looks anything up
+            return isAllowed(InetAddress.getByName(address).getAddress());
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    public boolean isAllowed(InetAddress address) {
+        return address != null && isAllowed(address.getAddress());
+    }
+
+    /**
+     * @param address The raw address, 4 bytes for IPv4 and 16 for IPv6
+     */
+    public boolean isAllowed(byte[] address) {
+        if (address == null) {
+            return false;
+        }
+        if (address.length == 16 && isIpv4Mapped(address)) {
+            int packed = (address[12] & 0xff) << 24 | (address[13] & 0xff) << 16
+                | (address[14] & 0xff) << 8 | (address[15] & 0xff);
+            return ipv4.contains(packed);
+        }
+        return address.length == 4 ? ipv4.contains(address) : ipv6.contains(address);
+    }
+
+    /**
+     * Resolve the PayFast hosts now and swap in the new address list. Hosts that fail to
+     * resolve keep their previous addresses.
+     */
+    public synchronized void refresh() {
+        for (String host : hosts) {
+            try {
+                resolved.put(host, resolver.resolve(host));
+            } catch (UnknownHostException e) {
+                log.warn("Could not resolve PayFast host {}, keeping {} known addresses", host,
+                    resolved.containsKey(host) ? resolved.get(host).length : 0);
+            }
+        }
+
+        AddressTrie.Builder v4 = new AddressTrie.Builder(32);
+        AddressTrie.Builder v6 = new AddressTrie.Builder(128);
+        for (Cidr range : ranges) {
+            (range.address.length == 4 ? v4 : v6).add(range.address, range.prefixLength);
+        }
+        for (InetAddress[] addresses : resolved.values()) {
+            for (InetAddress address : addresses) {
+                byte[] bytes = address.getAddress();
+                (bytes.length == 4 ? v4 : v6).add(bytes, bytes.length * 8);
+            }
+        }
+        ipv4 = v4.build();
+        ipv6 = v6.build();
+        log.debug("PayFast source addresses refreshed: {} IPv4 and {} IPv6 trie nodes",
+            ipv4.nodeCount(), ipv6.nodeCount());
+    }
+
+    @Override
+    public void close() {
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // An escaping exception would cancel the schedule
+            log.error("Failed to refresh PayFast source addresses", e);
+        }
+    }
+
+    private static boolean isIpv6Literal(String address) {
+        int end = address.indexOf('%');
+        end = end < 0 ? address.length() : end;
+        boolean colon = false;
+        for (int i = 0; i < end; i++) {
+            char c = address.charAt(i);
+            if (c == ':') {
+                colon = true;
+            } else if (c != '.' && Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return colon;
+    }
+
+    private static boolean isIpv4Mapped(byte[] address) {
+        for (int i = 0; i < 10; i++) {
+            if (address[i] != 0) return false;
+        }
+        return address[10] == (byte) 0xff && address[11] == (byte) 0xff;
+    }
+
+    /**
+     * Parse a dotted-quad IPv4 address without allocating
+     * @return the packed address as an unsigned int, or -1 if it is not one
+     */
+    static long parseIpv4(CharSequence address) {
+        int length = address.length();
+        if (length < 7 || length > 15) {
+            return -1;
+        }
+        long packed = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            char c = address.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (digits == 3 || (digits == 1 && octet == 0)) {
+                    return -1;
+                }
+                octet = octet * 10 + (c - '0');
+                digits++;
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                if (octet > 255) return -1;
+                packed = packed << 8 | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0 || octet > 255) {
+            return -1;
+        }
+        return packed << 8 | octet;
+    }
+
+    /**
+     * Looks up the addresses of a host; swappable for tests
+     */
+    public interface Resolver {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    private static final class Cidr {
+        final byte[] address;
+        final int prefixLength;
+
+        private Cidr(byte[] address, int prefixLength) {
+            this.address = address;
+            this.prefixLength = prefixLength;
+        }
+
+        static Cidr parse(String range) throws ConfigurationException {
+            try {
+                int slash = range.indexOf('/');
+                String literal = slash < 0 ? range : range.substring(0, slash);
+                if (parseIpv4(literal) < 0 && !isIpv6Literal(literal)) {
+                    throw new IllegalArgumentException("not an address literal");
+                }
+                byte[] address = InetAddress.getByName(literal).getAddress();
+                int prefixLength = slash < 0 ? address.length * 8 : Integer.parseInt(range.substring(slash + 1));
+                if (prefixLength < 0 || prefixLength > address.length * 8) {
+                    throw new IllegalArgumentException("prefix length out of range");
+                }
+                return new Cidr(address, prefixLength);
+            } catch (UnknownHostException | IllegalArgumentException e) {
+                throw new ConfigurationException("Invalid address range: " + range, e);
+            }
+        }
+    }
+
+    public static class Builder {
+        private List<String> hosts = PAYFAST_HOSTS;
+        private final List<String> ranges = new ArrayList<>(PAYFAST_RANGES);
+        private Resolver resolver = InetAddress::getAllByName;
+        private ScheduledExecutorService scheduler;
+        private long refreshIntervalMillis = TimeUnit.MINUTES.toMillis(10);
+
+        private Builder() {
+        }
+
+        /**
+         * @param hosts Host names to resolve, replacing {@link #PAYFAST_HOSTS}
+         */
+        public Builder hosts(List<String> hosts) {
+            this.hosts = hosts;
+            return this;
+        }
+
+        /**
+         * @param range An extra address or CIDR range to allow, e.g. a load balancer
+         */
+        public Builder allowRange(String range) {
+            this.ranges.add(range);
+            return this;
+        }
+
+        /**
+         * Allow only the given ranges and resolved hosts, dropping {@link #PAYFAST_RANGES}
+         */
+        public Builder clearRanges() {
+            this.ranges.clear();
+            return this;
+        }
+
+        public Builder resolver(Resolver resolver) {
+            this.resolver = resolver;
+            return this;
+        }
+
+        /**
+         * @param interval How often to re-resolve the hosts, 0 to never refresh. Defaults to 10 minutes.
+         */
+        public Builder refreshInterval(long interval, TimeUnit unit) {
+            this.refreshIntervalMillis = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * @param scheduler Runs the refresh instead of a dedicated thread; not shut down on close
+         */
+        public Builder scheduler(ScheduledExecutorService scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public PayFastSourceValidator build() throws ConfigurationException {
+            if (hosts == null || resolver == null) {
+                throw new ConfigurationException("Hosts and resolver cannot be null");
+            }
+            if (refreshIntervalMillis < 0) {
+                throw new ConfigurationException("Refresh interval cannot be negative");
+            }
+            return new PayFastSourceValidator(this);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.recceda.payfast.idempotency;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ITNStore} persisted to an append-only file, so processed ITNs are remembered
+ * across restarts.
+ * <p>
+ * Every change is appended as one line ({@code P<tab>expiry<tab>key} or {@code R<tab>key})
+ * and, by default, forced to disk before the call returns. The live entries are kept in
+ * memory for lookups. The file is rewritten with only the live entries when it is opened
+ * and whenever dead lines outnumber live ones.
+ * <p>
+ * Only one instance may use a file at a time.
+ */
+public class FileITNStore implements ITNStore {
+    private static final Logger log = LoggerFactory.getLogger(FileITNStore.class);
+    private static final int MIN_COMPACTION_LINES = 1024;
+
+    private final Path file;
+    private final boolean sync;
+    private final LongSupplier clock;
+    private final Map<String, Long> entries = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private int lines;
+
+    /**
+     * Open or create the store, forcing every write to disk
+     */
+    public FileITNStore(Path file) throws IOException {
+        this(file, true);
+    }
+
+    /**
+     * @param sync Force every write to disk. Without it a crash may lose the most recent entries.
+     */
+    public FileITNStore(Path file, boolean sync) throws IOException {
+        this(file, sync, System::currentTimeMillis);
+    }
+
+    FileITNStore(Path file, boolean sync, LongSupplier clock) throws IOException {
+        this.file = file;
+        this.sync = sync;
+        this.clock = clock;
+        load();
+        compact();
+    }
+
+    @Override
+    public synchronized boolean putIfAbsent(String key, long expiresAtMillis) throws IOException {
+        checkKey(key);
+        Long existing = entries.get(key);
+        if (existing != null && existing > clock.getAsLong()) {
+            return false;
+        }
+        append("P\t" + expiresAtMillis + "\t" + key + "\n");
+        entries.put(key, expiresAtMillis);
+        return true;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        Long expiresAt = entries.get(key);
+        return expiresAt != null && expiresAt > clock.getAsLong();
+    }
+
+    @Override
+    public synchronized void remove(String key) throws IOException {
+        if (entries.remove(key) != null) {
+            append("R\t" + key + "\n");
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void append(String line) throws IOException {
+        if (channel == null) {
+            throw new IOException("ITN store is closed: " + file);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+        if (++lines > Math.max(MIN_COMPACTION_LINES, entries.size() * 2)) {
+            compact();
+        }
+    }
+
+    private void load() throws IOException {
+        long now = clock.getAsLong();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("R\t")) {
+                    // The key is the rest of the line, tabs included
+                    entries.remove(line.substring(2));
+                    continue;
+                }
+                String[] parts = line.split("\t", 3);
+                if (parts.length == 3 && "P".equals(parts[0])) {
+                    long expiresAt = Long.parseLong(parts[1]);
+                    if (expiresAt > now) {
+                        entries.put(parts[2], expiresAt);
+                    } else {
+                        entries.remove(parts[2]);
+                    }
+                } else if (!line.isEmpty()) {
+                    // Most likely a line torn by a crash mid-write
+                    log.warn("Skipping malformed line in ITN store {}", file);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // A new store
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt ITN store: " + file, e);
+        }
+    }
+
+    /**
+     * Rewrite the file with the live entries only and reopen it for appending
+     */
+    private void compact() throws IOException {
+        long now = clock.getAsLong();
+        entries.values().removeIf(expiresAt -> expiresAt <= now);
+
+        StringBuilder content = new StringBuilder(entries.size() * 40);
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            content.append("P\t").append(entry.getValue()).append('\t').append(entry.getKey()).append('\n');
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                if (sync) {
+                    out.force(false);
+                }
+            }
+            close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        lines = entries.size();
+    }
+
+    private static void checkKey(String key) {
+        if (key == null || key.indexOf('\n') >= 0 || key.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("ITN store keys cannot be null or contain line breaks");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.recceda.payfast.idempotency;
+
+import com.recceda.payfast.handler.ITNResult;
+
+/**
+ * What {@link IdempotentITNHandler} decided about a notification
+ */
+public final class ITNOutcome {
+
+    public enum Status {
+        /** First valid delivery of this notification: fulfil it */
+        NEW,
+        /** Already processed: acknowledge it and do nothing else */
+        DUPLICATE,
+        /** The signature did not match: nothing was recorded */
+        INVALID
+    }
+
+    private final Status status;
+    private final String key;
+    private final ITNResult result;
+
+    ITNOutcome(Status status, String key, ITNResult result) {
+        this.status = status;
+        this.key = key;
+        this.result = result;
+    }
+
+    public Status getStatus() { return status; }
+
+    public boolean isNew() { return status == Status.NEW; }
+
+    public boolean isDuplicate() { return status == Status.DUPLICATE; }
+
+    /**
+     * @return the idempotency key, or null if the notification has no {@code pf_payment_id}
+     */
+    public String getKey() { return key; }
+
+    /**
+     * @return the validated notification, or null for a duplicate caught before validation
+     */
+    public ITNResult getResult() { return result; }
+}
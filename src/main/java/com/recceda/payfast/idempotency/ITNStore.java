@@ -0,0 +1,35 @@
+package com.recceda.payfast.idempotency;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Records which ITNs have already been processed, so a retried notification is only
+ * fulfilled once. Implementations must be thread-safe.
+ * <p>
+ * Keys are built by {@link IdempotentITNHandler#key(String, String)}; an entry may be
+ * dropped once its expiry time has passed.
+ */
+public interface ITNStore extends Closeable {
+
+    /**
+     * Atomically record the key unless a live entry for it already exists
+     * @param expiresAtMillis Epoch millis after which the entry may be forgotten
+     * @return true if the key was recorded, false if it was already present
+     */
+    boolean putIfAbsent(String key, long expiresAtMillis) throws IOException;
+
+    /**
+     * @return true if a live entry exists for the key
+     */
+    boolean contains(String key) throws IOException;
+
+    /**
+     * Forget the key, so the next notification with it is processed again
+     */
+    void remove(String key) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
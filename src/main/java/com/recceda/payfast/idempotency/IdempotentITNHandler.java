@@ -0,0 +1,197 @@
+package com.recceda.payfast.idempotency;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNBody;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.metrics.PayFastMetrics;
+import com.recceda.payfast.util.RateLimitedLogger;
+
+/**
+ * Deduplicates ITN retries in front of {@link ITNHandler}, keyed on
+ * {@code pf_payment_id} and {@code payment_status}.
+ * <p>
+ * A notification seen recently is reported as {@link ITNOutcome.Status#DUPLICATE} straight
+ * from an in-memory cache, before its signature is validated. Anything else is validated,
+ * and a valid notification is recorded in the cache and in the optional persistent
+ * {@link ITNStore}. Only the first delivery comes back as {@link ITNOutcome.Status#NEW},
+ * even when deliveries race or the application restarted in between. If fulfilment fails,
+ * call {@link #release(ITNOutcome)} so PayFast's next retry is processed again.
+ * Duplicates are counted in the handler's {@link PayFastMetrics}.
+ */
+public class IdempotentITNHandler {
+    private static final Logger log = LoggerFactory.getLogger(IdempotentITNHandler.class);
+    private static final RateLimitedLogger undeduplicated = RateLimitedLogger.forClass(IdempotentITNHandler.class);
+
+    private final ITNHandler handler;
+    private final InMemoryITNStore cache;
+    private final ITNStore store;
+    private final long ttlMillis;
+    private final PayFastMetrics metrics;
+
+    private IdempotentITNHandler(Builder builder) {
+        this.handler = builder.handler;
+        this.metrics = handler.getMetrics();
+        this.cache = builder.cache != null ? builder.cache : new InMemoryITNStore(builder.maxCachedKeys);
+        this.store = builder.store;
+        this.ttlMillis = builder.ttlMillis;
+    }
+
+    public static Builder builder(ITNHandler handler) {
+        return new Builder(handler);
+    }
+
+    /**
+     * @return the idempotency key for a notification
+     */
+    public static String key(String pfPaymentId, String paymentStatus) {
+        return pfPaymentId + "|" + (paymentStatus == null ? "" : paymentStatus);
+    }
+
+    public ITNOutcome process(byte[] body) throws PayFastException {
+        return process(handler.parseNotificationBody(body));
+    }
+
+    public ITNOutcome process(String itnData) throws PayFastException {
+        if (itnData == null || itnData.trim().isEmpty()) {
+            throw new ValidationException("ITN data string cannot be null or empty");
+        }
+        return process(itnData.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Validate the notification unless it was already processed
+     * @throws ValidationException if the body cannot be parsed or the persistent store
+     *         rejects its key
+     * @throws PayFastException if the persistent store fails
+     */
+    public ITNOutcome process(ITNBody body) throws PayFastException {
+        String key;
+        try {
+            String pfPaymentId = body.get("pf_payment_id");
+            key = pfPaymentId == null ? null : key(pfPaymentId, body.get("payment_status"));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Failed to validate and parse ITN notification", e);
+        }
+        if (key != null && cache.contains(key)) {
+            log.debug("Duplicate ITN {} skipped", key);
+            return duplicate(key, null);
+        }
+
+        ITNResult result = handler.validateAndParse(body);
+        if (!result.isValid()) {
+            return new ITNOutcome(ITNOutcome.Status.INVALID, key, result);
+        }
+        if (key == null) {
+            undeduplicated.warn("ITN without pf_payment_id cannot be deduplicated");
+            return new ITNOutcome(ITNOutcome.Status.NEW, null, result);
+        }
+        return record(key, result);
+    }
+
+    /**
+     * Forget a processed notification, so its next delivery is reported as new again
+     */
+    public void release(ITNOutcome outcome) throws PayFastException {
+        if (outcome == null || outcome.getKey() == null) {
+            return;
+        }
+        cache.remove(outcome.getKey());
+        if (store != null) {
+            try {
+                store.remove(outcome.getKey());
+            } catch (IOException e) {
+                throw new PayFastException("Failed to release processed ITN " + outcome.getKey(), e);
+            }
+        }
+    }
+
+    private ITNOutcome duplicate(String key, ITNResult result) {
+        metrics.itnDuplicate();
+        return new ITNOutcome(ITNOutcome.Status.DUPLICATE, key, result);
+    }
+
+    private ITNOutcome record(String key, ITNResult result) throws PayFastException {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        // The cache decides between concurrent deliveries, the store between runs
+        if (!cache.putIfAbsent(key, expiresAt)) {
+            return duplicate(key, result);
+        }
+        if (store != null) {
+            boolean recorded;
+            try {
+                recorded = store.putIfAbsent(key, expiresAt);
+            } catch (IOException e) {
+                cache.remove(key);
+                throw new PayFastException("Failed to record processed ITN " + key, e);
+            } catch (IllegalArgumentException e) {
+                // The store cannot hold this key, e.g. a pf_payment_id with a line break
+                cache.remove(key);
+                throw new ValidationException("Cannot record ITN: " + e.getMessage(), e);
+            }
+            if (!recorded) {
+                return duplicate(key, result);
+            }
+        }
+        return new ITNOutcome(ITNOutcome.Status.NEW, key, result);
+    }
+
+    public static class Builder {
+        private final ITNHandler handler;
+        private ITNStore store;
+        private InMemoryITNStore cache;
+        private long ttlMillis = TimeUnit.DAYS.toMillis(7);
+        private int maxCachedKeys = 100_000;
+
+        private Builder(ITNHandler handler) {
+            this.handler = handler;
+        }
+
+        /**
+         * @param store Persistent record of processed ITNs, such as a {@link FileITNStore}
+         */
+        public Builder store(ITNStore store) {
+            this.store = store;
+            return this;
+        }
+
+        /**
+         * @param ttl How long a processed ITN is remembered, defaults to 7 days
+         */
+        public Builder ttl(long ttl, TimeUnit unit) {
+            this.ttlMillis = unit.toMillis(ttl);
+            return this;
+        }
+
+        /**
+         * @param maxCachedKeys Size of the in-memory cache, defaults to 100 000
+         */
+        public Builder maxCachedKeys(int maxCachedKeys) {
+            this.maxCachedKeys = maxCachedKeys;
+            return this;
+        }
+
+        Builder cache(InMemoryITNStore cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        public IdempotentITNHandler build() throws ValidationException {
+            if (handler == null) {
+                throw new ValidationException("ITNHandler cannot be null");
+            }
+            if (ttlMillis <= 0 || maxCachedKeys < 1) {
+                throw new ValidationException("TTL and max cached keys must be positive");
+            }
+            return new IdempotentITNHandler(this);
+        }
+    }
+}
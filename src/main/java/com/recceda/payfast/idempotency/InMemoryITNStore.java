@@ -0,0 +1,103 @@
+package com.recceda.payfast.idempotency;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, lock-free {@link ITNStore} kept in memory.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap}, and each one is also queued in insertion
+ * order. Every entry gets the same TTL, so the queue head is always the entry that expires
+ * first. Each insert evicts from the head until it reaches an entry that is still live and
+ * the store is back under its size limit. Once full, the oldest entries are dropped first.
+ * A queued entry that was removed or replaced by a newer put of the same key is skipped.
+ */
+public class InMemoryITNStore implements ITNStore {
+    private final Map<String, Slot> entries = new ConcurrentHashMap<>();
+    private final Queue<Slot> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final LongSupplier clock;
+
+    public InMemoryITNStore(int maxEntries) {
+        this(maxEntries, System::currentTimeMillis);
+    }
+
+    InMemoryITNStore(int maxEntries, LongSupplier clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, long expiresAtMillis) {
+        long now = clock.getAsLong();
+        Slot slot = new Slot(key, expiresAtMillis);
+        while (true) {
+            Slot existing = entries.putIfAbsent(key, slot);
+            if (existing != null) {
+                if (existing.expiresAt > now) {
+                    return false;
+                }
+                // Expired but not evicted yet: take it over unless another thread got there first
+                if (!entries.replace(key, existing, slot)) {
+                    continue;
+                }
+            }
+            insertionOrder.add(slot);
+            evict(now);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        Slot slot = entries.get(key);
+        return slot != null && slot.expiresAt > clock.getAsLong();
+    }
+
+    @Override
+    public void remove(String key) {
+        // The queued slot is skipped when it reaches the head
+        entries.remove(key);
+    }
+
+    /**
+     * @return the number of entries held, including expired ones not evicted yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        Slot head;
+        while ((head = insertionOrder.peek()) != null) {
+            boolean current = entries.get(head.key) == head;
+            if (current && head.expiresAt > now && entries.size() <= maxEntries) {
+                return;
+            }
+            if (insertionOrder.remove(head) && current) {
+                // Only drop the entry this queue slot was created for, not a newer one
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    /**
+     * One put of a key. Compared by identity, so a newer put of the same key is never
+     * mistaken for it.
+     */
+    private static final class Slot {
+        final String key;
+        final long expiresAt;
+
+        Slot(String key, long expiresAt) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
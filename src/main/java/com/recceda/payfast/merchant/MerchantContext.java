@@ -0,0 +1,29 @@
+package com.recceda.payfast.merchant;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.metrics.PayFastMetrics;
+import com.recceda.payfast.util.MerchantSigningState;
+
+/**
+ * Immutable per-merchant bundle held by {@link MerchantRegistry}: the config, its
+ * precomputed signing state, and the service and ITN handler built on them
+ */
+public final class MerchantContext {
+    private final PayFastConfig config;
+    private final MerchantSigningState signingState;
+    private final PayFastService service;
+
+    MerchantContext(PayFastConfig config, PayFastMetrics metrics) {
+        this.config = config;
+        this.service = new PayFastService(config, metrics);
+        this.signingState = service.getMerchantSigningState();
+    }
+
+    public String getMerchantId() { return config.getMerchantId(); }
+    public PayFastConfig getConfig() { return config; }
+    public MerchantSigningState getSigningState() { return signingState; }
+    public PayFastService getService() { return service; }
+    public ITNHandler getITNHandler() { return service.getITNHandler(); }
+}
@@ -0,0 +1,177 @@
+package com.recceda.payfast.merchant;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ConfigurationException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNBody;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.metrics.PayFastMetrics;
+
+/**
+ * Thread-safe registry of the merchant accounts served by one application.
+ * <p>
+ * Merchants are held in an immutable map published through a volatile field. Lookups
+ * and ITN routing read it without locking. Registering, replacing or removing a merchant
+ * builds a new map and swaps it in, so credentials can be reloaded while requests are in
+ * flight. A request that already holds a {@link MerchantContext} finishes with the old
+ * credentials.
+ */
+public class MerchantRegistry {
+    private static final Logger log = LoggerFactory.getLogger(MerchantRegistry.class);
+
+    private final PayFastMetrics metrics;
+    private volatile Map<String, MerchantContext> merchants = Collections.emptyMap();
+
+    public MerchantRegistry() {
+        this(PayFastMetrics.NOOP);
+    }
+
+    /**
+     * @param metrics Shared by the services and ITN handlers of every merchant
+     */
+    public MerchantRegistry(PayFastMetrics metrics) {
+        this.metrics = metrics == null ? PayFastMetrics.NOOP : metrics;
+    }
+
+    public MerchantRegistry(Collection<PayFastConfig> configs) throws ConfigurationException {
+        this(configs, PayFastMetrics.NOOP);
+    }
+
+    public MerchantRegistry(Collection<PayFastConfig> configs, PayFastMetrics metrics) throws ConfigurationException {
+        this(metrics);
+        replaceAll(configs);
+    }
+
+    /**
+     * Add a merchant, or replace the one with the same merchant ID
+     * @return the new context for the merchant
+     */
+    public synchronized MerchantContext register(PayFastConfig config) throws ConfigurationException {
+        if (config == null) {
+            throw new ConfigurationException("Merchant config cannot be null");
+        }
+        MerchantContext context = new MerchantContext(config, metrics);
+        Map<String, MerchantContext> updated = new HashMap<>(merchants);
+        updated.put(context.getMerchantId(), context);
+        merchants = Collections.unmodifiableMap(updated);
+        log.debug("Registered merchant {}", context.getMerchantId());
+        return context;
+    }
+
+    /**
+     * Swap in a complete new set of merchants in one step, e.g. after reloading credentials
+     * @throws ConfigurationException if a config is null or a merchant ID appears twice;
+     *                                the registry is left unchanged
+     */
+    public synchronized void replaceAll(Collection<PayFastConfig> configs) throws ConfigurationException {
+        if (configs == null) {
+            throw new ConfigurationException("Merchant configs cannot be null");
+        }
+        Map<String, MerchantContext> updated = new HashMap<>();
+        for (PayFastConfig config : configs) {
+            if (config == null) {
+                throw new ConfigurationException("Merchant config cannot be null");
+            }
+            if (updated.put(config.getMerchantId(), new MerchantContext(config, metrics)) != null) {
+                throw new ConfigurationException("Duplicate merchant ID: " + config.getMerchantId());
+            }
+        }
+        merchants = Collections.unmodifiableMap(updated);
+        log.debug("Loaded {} merchants", updated.size());
+    }
+
+    /**
+     * @return true if the merchant was registered
+     */
+    public synchronized boolean remove(String merchantId) {
+        if (!merchants.containsKey(merchantId)) {
+            return false;
+        }
+        Map<String, MerchantContext> updated = new HashMap<>(merchants);
+        updated.remove(merchantId);
+        merchants = Collections.unmodifiableMap(updated);
+        return true;
+    }
+
+    /**
+     * @return the merchant's context, or null if it is not registered
+     */
+    public MerchantContext get(String merchantId) {
+        return merchantId == null ? null : merchants.get(merchantId);
+    }
+
+    /**
+     * @throws ConfigurationException if the merchant is not registered
+     */
+    public MerchantContext require(String merchantId) throws ConfigurationException {
+        MerchantContext context = get(merchantId);
+        if (context == null) {
+            throw new ConfigurationException("Unknown merchant: " + merchantId);
+        }
+        return context;
+    }
+
+    public Set<String> getMerchantIds() {
+        return merchants.keySet();
+    }
+
+    public int size() {
+        return merchants.size();
+    }
+
+    /**
+     * Find the merchant an ITN was sent for, by its {@code merchant_id} field
+     * @throws ValidationException if the field is missing or names an unknown merchant
+     */
+    public MerchantContext route(ITNBody body) throws ValidationException {
+        if (body == null || body.isEmpty()) {
+            throw new ValidationException("ITN body cannot be null or empty");
+        }
+        String merchantId;
+        try {
+            merchantId = body.get("merchant_id");
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid merchant_id in ITN", e);
+        }
+        if (merchantId == null) {
+            throw new ValidationException("ITN has no merchant_id");
+        }
+        MerchantContext context = merchants.get(merchantId);
+        if (context == null) {
+            throw new ValidationException("ITN for unknown merchant: " + merchantId);
+        }
+        return context;
+    }
+
+    /**
+     * Validate and parse an ITN with the credentials of the merchant it was sent for
+     * @see com.recceda.payfast.handler.ITNHandler#validateAndParse(byte[])
+     */
+    public ITNResult validateAndParse(byte[] body) throws ValidationException {
+        if (body == null || body.length == 0) {
+            throw new ValidationException("ITN body cannot be null or empty");
+        }
+        ITNBody parsed = ITNBody.parse(body);
+        return route(parsed).getITNHandler().validateAndParse(parsed);
+    }
+
+    /**
+     * @see #validateAndParse(byte[])
+     */
+    public ITNResult validateAndParse(String itnData) throws ValidationException {
+        if (itnData == null || itnData.trim().isEmpty()) {
+            throw new ValidationException("ITN data string cannot be null or empty");
+        }
+        return validateAndParse(itnData.getBytes(StandardCharsets.UTF_8));
+    }
+}
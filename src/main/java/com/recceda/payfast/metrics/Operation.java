@@ -0,0 +1,37 @@
+package com.recceda.payfast.metrics;
+
+/**
+ * SDK calls that are timed through {@link PayFastMetrics}
+ */
+public enum Operation {
+    PAYMENT_FORM("payment_form"),
+    SUBSCRIPTION_FORM("subscription_form"),
+    PAYMENT_FORM_BATCH("payment_form_batch"),
+    SUBSCRIPTION_FORM_BATCH("subscription_form_batch"),
+    BULK_SIGNING_CHUNK("bulk_signing_chunk"),
+    ITN_VALIDATE("itn_validate"),
+    ITN_VALIDATE_AND_PARSE("itn_validate_and_parse"),
+    /**
+     * {@link com.recceda.payfast.handler.ITNHandler#validateITN(java.util.Map)}, which
+     * re-encodes every decoded value. Traffic here is better moved to the raw body.
+     */
+    ITN_VALIDATE_MAP("itn_validate_map"),
+    /**
+     * {@link com.recceda.payfast.handler.ITNHandler#validateAndParse(String)}, which
+     * copies the body into a new byte array first
+     */
+    ITN_VALIDATE_AND_PARSE_STRING("itn_validate_and_parse_string");
+
+    private final String tag;
+
+    Operation(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return the name used as the {@code operation} tag
+     */
+    public String getTag() {
+        return tag;
+    }
+}
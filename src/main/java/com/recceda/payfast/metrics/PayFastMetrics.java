@@ -0,0 +1,71 @@
+package com.recceda.payfast.metrics;
+
+/**
+ * Receives timings and counts from the SDK.
+ * <p>
+ * Every method has an empty default, so an implementation only overrides what it records.
+ * {@link #NOOP} is used when no metrics are configured. Components check
+ * {@link #isEnabled()} once when they are created and never read the clock or call the
+ * metrics when it returns false, so disabled metrics cost one branch on a final field.
+ * <p>
+ * Implementations are called from request threads and must be thread-safe and quick;
+ * they should not block or throw.
+ */
+public interface PayFastMetrics {
+
+    /**
+     * Records nothing
+     */
+    PayFastMetrics NOOP = new PayFastMetrics() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * @return false to have callers skip timing and reporting altogether
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * @param nanos   Wall time of the call
+     * @param success false if the call threw
+     */
+    default void recordTime(Operation operation, long nanos, boolean success) {
+    }
+
+    /**
+     * An ITN signature was checked
+     */
+    default void itnValidated(boolean valid) {
+    }
+
+    /**
+     * A repeated ITN was answered without validating it again
+     */
+    default void itnDuplicate() {
+    }
+
+    /**
+     * A signature could not be produced or checked: the ITN had none, or hashing failed
+     */
+    default void signatureFailure(Operation operation) {
+    }
+
+    /**
+     * A batch of requests finished
+     * @param items    Requests in the batch
+     * @param failures Requests that could not be signed
+     */
+    default void batchCompleted(Operation operation, int items, int failures) {
+    }
+
+    /**
+     * @param bytes Size of a raw ITN body, which bounds what parsing it allocates
+     */
+    default void itnBodySize(int bytes) {
+    }
+}
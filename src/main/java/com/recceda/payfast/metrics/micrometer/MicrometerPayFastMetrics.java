@@ -0,0 +1,117 @@
+package com.recceda.payfast.metrics.micrometer;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.recceda.payfast.metrics.Operation;
+import com.recceda.payfast.metrics.PayFastMetrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publishes SDK metrics to a Micrometer {@link MeterRegistry}.
+ * <p>
+ * Micrometer is an optional dependency of the SDK; add {@code micrometer-core} to use this
+ * class. All meters are registered up front, so recording is a field lookup plus the
+ * meter update. Meters:
+ * <ul>
+ *   <li>{@code payfast.operation} timer, tagged {@code operation} and {@code outcome}
+ *       ({@code success}/{@code failure}), with a percentile histogram</li>
+ *   <li>{@code payfast.itn} counter, tagged {@code result} ({@code valid}, {@code invalid},
+ *       {@code duplicate})</li>
+ *   <li>{@code payfast.signature.failures} counter, tagged {@code operation}</li>
+ *   <li>{@code payfast.batch.size} and {@code payfast.batch.failures} summaries, tagged {@code operation}</li>
+ *   <li>{@code payfast.itn.body.size} summary in bytes</li>
+ * </ul>
+ */
+public class MicrometerPayFastMetrics implements PayFastMetrics {
+    private final Map<Operation, Timer> successTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> failureTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> signatureFailures = new EnumMap<>(Operation.class);
+    private final Map<Operation, DistributionSummary> batchSizes = new EnumMap<>(Operation.class);
+    private final Map<Operation, DistributionSummary> batchFailures = new EnumMap<>(Operation.class);
+    private final Counter validItns;
+    private final Counter invalidItns;
+    private final Counter duplicateItns;
+    private final DistributionSummary itnBodySizes;
+
+    public MicrometerPayFastMetrics(MeterRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("Meter registry cannot be null");
+        }
+        for (Operation operation : Operation.values()) {
+            successTimers.put(operation, timer(registry, operation, "success"));
+            failureTimers.put(operation, timer(registry, operation, "failure"));
+            signatureFailures.put(operation, Counter.builder("payfast.signature.failures")
+                .description("Signatures that could not be produced or checked")
+                .tag("operation", operation.getTag())
+                .register(registry));
+            batchSizes.put(operation, DistributionSummary.builder("payfast.batch.size")
+                .description("Requests per batch")
+                .tag("operation", operation.getTag())
+                .register(registry));
+            batchFailures.put(operation, DistributionSummary.builder("payfast.batch.failures")
+                .description("Failed requests per batch")
+                .tag("operation", operation.getTag())
+                .register(registry));
+        }
+        this.validItns = itnCounter(registry, "valid");
+        this.invalidItns = itnCounter(registry, "invalid");
+        this.duplicateItns = itnCounter(registry, "duplicate");
+        this.itnBodySizes = DistributionSummary.builder("payfast.itn.body.size")
+            .description("Size of raw ITN bodies")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    @Override
+    public void recordTime(Operation operation, long nanos, boolean success) {
+        (success ? successTimers : failureTimers).get(operation).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void itnValidated(boolean valid) {
+        (valid ? validItns : invalidItns).increment();
+    }
+
+    @Override
+    public void itnDuplicate() {
+        duplicateItns.increment();
+    }
+
+    @Override
+    public void signatureFailure(Operation operation) {
+        signatureFailures.get(operation).increment();
+    }
+
+    @Override
+    public void batchCompleted(Operation operation, int items, int failures) {
+        batchSizes.get(operation).record(items);
+        batchFailures.get(operation).record(failures);
+    }
+
+    @Override
+    public void itnBodySize(int bytes) {
+        itnBodySizes.record(bytes);
+    }
+
+    private static Timer timer(MeterRegistry registry, Operation operation, String outcome) {
+        return Timer.builder("payfast.operation")
+            .description("Latency of PayFast SDK calls")
+            .tag("operation", operation.getTag())
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    private static Counter itnCounter(MeterRegistry registry, String result) {
+        return Counter.builder("payfast.itn")
+            .description("ITNs received")
+            .tag("result", result)
+            .register(registry);
+    }
+}
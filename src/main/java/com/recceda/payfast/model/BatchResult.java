@@ -0,0 +1,55 @@
+package com.recceda.payfast.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.recceda.payfast.exception.PayFastException;
+
+/**
+ * Outcome of a batch operation: one slot per input item, in input order, plus the
+ * failures of the items that could not be processed
+ * @param <T> The per-item result type
+ */
+public class BatchResult<T> {
+    private final List<T> results;
+    private final List<Failure> failures;
+    
+    public BatchResult(T[] results, List<Failure> failures) {
+        this.results = Collections.unmodifiableList(Arrays.asList(results));
+        List<Failure> sorted = new ArrayList<>(failures);
+        Collections.sort(sorted, (a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+        this.failures = Collections.unmodifiableList(sorted);
+    }
+    
+    /**
+     * @return the result for every input item in input order; null for items that failed
+     */
+    public List<T> getResults() { return results; }
+    
+    /**
+     * @return the failed items ordered by index
+     */
+    public List<Failure> getFailures() { return failures; }
+    
+    public int size() { return results.size(); }
+    public int getSuccessCount() { return results.size() - failures.size(); }
+    public boolean isAllSuccessful() { return failures.isEmpty(); }
+    
+    /**
+     * A batch item that failed, with its position in the input
+     */
+    public static class Failure {
+        private final int index;
+        private final PayFastException exception;
+        
+        public Failure(int index, PayFastException exception) {
+            this.index = index;
+            this.exception = exception;
+        }
+        
+        public int getIndex() { return index; }
+        public PayFastException getException() { return exception; }
+    }
+}
@@ -0,0 +1,124 @@
+package com.recceda.payfast.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.recceda.payfast.annotation.FieldWriter;
+import com.recceda.payfast.util.SignatureEngine;
+
+/**
+ * Immutable request whose fields are trimmed and signature-encoded once, when it is built.
+ * <p>
+ * The same instance can be signed and rendered any number of times from any thread: the
+ * form fields are an unmodifiable ordered map, and signing replays the pre-encoded bytes
+ * into the digest instead of encoding each value again. Merchant credentials are not part
+ * of the request; the service signing it adds them.
+ * @see ImmutablePaymentRequest
+ * @see ImmutableSubscriptionRequest
+ */
+public abstract class EncodedRequest {
+    private final String returnUrl;
+    private final String cancelUrl;
+    private final String notifyUrl;
+    private final Map<String, String> fields;
+    private final byte[] encoded;
+
+    <T extends PaymentRequest> EncodedRequest(T request, FieldWriter<T> writer) {
+        this.returnUrl = trimmed(request.getReturnUrl());
+        this.cancelUrl = trimmed(request.getCancelUrl());
+        this.notifyUrl = trimmed(request.getNotifyUrl());
+        Map<String, String> ordered = new PayFastFields();
+        List<String> signed = new ArrayList<>();
+        writer.write(request, (name, value) -> {
+            String trimmed = trimmed(value);
+            if (trimmed == null || name.equals("merchant_id") || name.equals("merchant_key")) {
+                return;
+            }
+            ordered.put(name, trimmed);
+            // The URLs come first and are hashed with the merchant fields, see MerchantSigningState
+            if (!name.equals("return_url") && !name.equals("cancel_url") && !name.equals("notify_url")) {
+                signed.add(name);
+                signed.add(trimmed);
+            }
+        });
+        this.fields = Collections.unmodifiableMap(ordered);
+        this.encoded = SignatureEngine.encodeParams(signed.toArray(new String[0]));
+    }
+
+    public String getReturnUrl() { return returnUrl; }
+    public String getCancelUrl() { return cancelUrl; }
+    public String getNotifyUrl() { return notifyUrl; }
+
+    public BigDecimal getAmount() {
+        return new BigDecimal(fields.get("amount"));
+    }
+
+    public String getItemName() {
+        return fields.get("item_name");
+    }
+
+    /**
+     * @return the trimmed, non-blank request fields in PayFast order, without the merchant
+     *         credentials and signature
+     */
+    public Map<String, String> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return the value of a PayFast field, or null if it is not set
+     */
+    public String get(String name) {
+        return fields.get(name);
+    }
+
+    /**
+     * @return true if PayFast treats this as a subscription, which requires a passphrase
+     */
+    public abstract boolean isSubscription();
+
+    /**
+     * Replay the pre-encoded fields that follow the callback URLs into the engine
+     */
+    public SignatureEngine hashFields(SignatureEngine engine) {
+        return encoded.length == 0 ? engine : engine.addEncodedParam(encoded, 0, encoded.length);
+    }
+
+    private static String trimmed(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * Builder state shared by the payment and subscription builders
+     * @param <T> The mutable request collecting the values
+     * @param <B> The concrete builder
+     */
+    public abstract static class Builder<T extends PaymentRequest, B extends Builder<T, B>> {
+        final T request;
+
+        Builder(T request) {
+            this.request = request;
+        }
+
+        abstract B self();
+
+        public B returnUrl(String returnUrl) { request.setReturnUrl(returnUrl); return self(); }
+        public B cancelUrl(String cancelUrl) { request.setCancelUrl(cancelUrl); return self(); }
+        public B notifyUrl(String notifyUrl) { request.setNotifyUrl(notifyUrl); return self(); }
+        public B nameFirst(String nameFirst) { request.setNameFirst(nameFirst); return self(); }
+        public B nameLast(String nameLast) { request.setNameLast(nameLast); return self(); }
+        public B emailAddress(String emailAddress) { request.setEmailAddress(emailAddress); return self(); }
+        public B mPaymentId(String mPaymentId) { request.setMPaymentId(mPaymentId); return self(); }
+        public B amount(BigDecimal amount) { request.setAmount(amount); return self(); }
+        public B amount(Money amount) { request.setAmount(amount == null ? null : amount.toBigDecimal()); return self(); }
+        public B itemName(String itemName) { request.setItemName(itemName); return self(); }
+        public B itemDescription(String itemDescription) { request.setItemDescription(itemDescription); return self(); }
+    }
+}
@@ -0,0 +1,57 @@
+package com.recceda.payfast.model;
+
+import com.recceda.payfast.exception.ValidationException;
+
+/**
+ * Immutable, pre-encoded one-off payment
+ * <pre>
+ * ImmutablePaymentRequest payment = ImmutablePaymentRequest.builder()
+ *     .amount(new BigDecimal("100.00"))
+ *     .itemName("Demo Product")
+ *     .notifyUrl("https://yoursite.com/notify")
+ *     .build();
+ * </pre>
+ */
+public final class ImmutablePaymentRequest extends EncodedRequest {
+
+    private ImmutablePaymentRequest(PaymentRequest request) {
+        super(request, PaymentRequestFieldWriter.INSTANCE);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Snapshot a mutable request. Its merchant credentials and signature are ignored.
+     * @throws ValidationException if the request is not a valid payment
+     */
+    public static ImmutablePaymentRequest from(PaymentRequest request) throws ValidationException {
+        RequestValidator.validatePayment(request);
+        return new ImmutablePaymentRequest(request);
+    }
+
+    @Override
+    public boolean isSubscription() {
+        return false;
+    }
+
+    public static final class Builder extends EncodedRequest.Builder<PaymentRequest, Builder> {
+
+        private Builder() {
+            super(new PaymentRequest());
+        }
+
+        @Override
+        Builder self() {
+            return this;
+        }
+
+        /**
+         * @throws ValidationException if the amount is not positive or the item name is blank
+         */
+        public ImmutablePaymentRequest build() throws ValidationException {
+            return from(request);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.recceda.payfast.model;
+
+import java.time.LocalDate;
+
+import com.recceda.payfast.exception.ValidationException;
+
+/**
+ * Immutable, pre-encoded subscription; the subscription settings are validated when it is built
+ */
+public final class ImmutableSubscriptionRequest extends EncodedRequest {
+
+    private ImmutableSubscriptionRequest(SubscriptionRequest request) {
+        super(request, SubscriptionRequestFieldWriter.INSTANCE);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Snapshot a mutable request. Its merchant credentials and signature are ignored.
+     * @throws ValidationException if the request is not a valid subscription
+     */
+    public static ImmutableSubscriptionRequest from(SubscriptionRequest request) throws ValidationException {
+        RequestValidator.validateSubscription(request);
+        return new ImmutableSubscriptionRequest(request);
+    }
+
+    @Override
+    public boolean isSubscription() {
+        return true;
+    }
+
+    public static final class Builder extends EncodedRequest.Builder<SubscriptionRequest, Builder> {
+
+        private Builder() {
+            super(new SubscriptionRequest());
+        }
+
+        @Override
+        Builder self() {
+            return this;
+        }
+
+        public Builder subscriptionType(String subscriptionType) { request.setSubscriptionType(subscriptionType); return this; }
+        public Builder billingDate(String billingDate) { request.setBillingDate(billingDate); return this; }
+        public Builder billingDate(LocalDate billingDate) { request.setBillingDate(billingDate); return this; }
+        public Builder recurringAmount(Integer recurringAmount) { request.setRecurringAmount(recurringAmount); return this; }
+        public Builder recurringAmountMoney(Money recurringAmount) { request.setRecurringAmountMoney(recurringAmount); return this; }
+        public Builder frequency(Integer frequency) { request.setFrequency(frequency); return this; }
+        public Builder cycles(Integer cycles) { request.setCycles(cycles); return this; }
+        public Builder subscriptionNotifyEmail(Boolean notify) { request.setSubscriptionNotifyEmail(notify); return this; }
+        public Builder subscriptionNotifyWebhook(Boolean notify) { request.setSubscriptionNotifyWebhook(notify); return this; }
+        public Builder subscriptionNotifyBuyer(Boolean notify) { request.setSubscriptionNotifyBuyer(notify); return this; }
+
+        /**
+         * @throws ValidationException if the payment fields or subscription settings are invalid
+         */
+        public ImmutableSubscriptionRequest build() throws ValidationException {
+            return from(request);
+        }
+    }
+}
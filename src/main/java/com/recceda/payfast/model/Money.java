@@ -0,0 +1,169 @@
+package com.recceda.payfast.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+
+/**
+ * An amount in rand held as a {@code long} number of cents.
+ * <p>
+ * PayFast sends and expects amounts with two decimals, e.g. {@code 100.00} or
+ * {@code -4.60}. {@link #parse(CharSequence)} reads that format and {@link #toString()}
+ * writes it, both by hand, so no {@link BigDecimal} is created or rescaled on the way
+ * in or out. Instances are immutable.
+ */
+public final class Money implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    private static final long MAX_RANDS = Long.MAX_VALUE / 100;
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    public static Money ofRands(long rands) {
+        if (rands > MAX_RANDS || rands < -MAX_RANDS) {
+            throw new ArithmeticException("Amount out of range: " + rands);
+        }
+        return ofCents(rands * 100);
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has fractions of a cent or does not fit
+     */
+    public static Money of(BigDecimal amount) {
+        return ofCents(amount.movePointRight(2).longValueExact());
+    }
+
+    /**
+     * Parse an amount such as {@code 100}, {@code 99.9} or {@code -4.60}: an optional sign,
+     * rands and at most two decimals
+     * @throws NumberFormatException if the text is not such an amount
+     */
+    public static Money parse(CharSequence text) {
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parse {@code text[start, end)}
+     * @see #parse(CharSequence)
+     */
+    public static Money parse(CharSequence text, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        int digitsStart = i;
+        long rands = 0;
+        for (; i < end && text.charAt(i) != '.'; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || rands > (MAX_RANDS - digit) / 10) {
+                throw invalid(text, start, end);
+            }
+            rands = rands * 10 + digit;
+        }
+        boolean hasRands = i > digitsStart;
+        long cents = 0;
+        if (i < end) {
+            // Skip the point; one or two decimals must follow
+            int decimals = end - ++i;
+            if (decimals < 1 || decimals > 2) {
+                throw invalid(text, start, end);
+            }
+            for (int place = 10; i < end; i++, place /= 10) {
+                int digit = text.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw invalid(text, start, end);
+                }
+                cents += digit * place;
+            }
+        } else if (!hasRands) {
+            throw invalid(text, start, end);
+        }
+        if (rands == MAX_RANDS && cents > Long.MAX_VALUE % 100) {
+            throw invalid(text, start, end);
+        }
+        long total = rands * 100 + cents;
+        return ofCents(negative ? -total : total);
+    }
+
+    private static NumberFormatException invalid(CharSequence text, int start, int end) {
+        return new NumberFormatException("Invalid amount: \"" + text.subSequence(start, end) + "\"");
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    /**
+     * @return the amount with a scale of 2
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Append the amount in PayFast's format, e.g. {@code 100.00}
+     */
+    public void appendTo(Appendable out) throws IOException {
+        // Split off the sign without negating, which would overflow for Long.MIN_VALUE
+        long rands = cents / 100;
+        int fraction = (int) Math.abs(cents % 100);
+        if (cents < 0 && rands == 0) {
+            out.append('-');
+        }
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(rands);
+        } else {
+            out.append(Long.toString(rands));
+        }
+        out.append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(24);
+        try {
+            appendTo(text);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+}
@@ -1,16 +1,26 @@
 package com.recceda.payfast.model;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
+/**
+ * The fields of an ITN. Amounts are kept in the form they were set in: parsed ITNs set
+ * {@link Money}, and the {@link BigDecimal} setters keep their value exactly, so the
+ * {@code BigDecimal} getters return it unchanged. Reading a {@code BigDecimal} amount
+ * through a {@code Money} getter rounds it to cents with {@link RoundingMode#HALF_UP}.
+ */
 public class NotificationData {
     private String mPaymentId;
     private String pfPaymentId;
     private String paymentStatus;
     private String itemName;
     private String itemDescription;
-    private BigDecimal amountGross;
-    private BigDecimal amountFee;
-    private BigDecimal amountNet;
+    private Money amountGross;
+    private Money amountFee;
+    private Money amountNet;
+    private BigDecimal amountGrossDecimal;
+    private BigDecimal amountFeeDecimal;
+    private BigDecimal amountNetDecimal;
     private String nameFirst;
     private String nameLast;
     private String emailAddress;
@@ -32,14 +42,20 @@ public class NotificationData {
     public String getItemDescription() { return itemDescription; }
     public void setItemDescription(String itemDescription) { this.itemDescription = itemDescription; }
     
-    public BigDecimal getAmountGross() { return amountGross; }
-    public void setAmountGross(BigDecimal amountGross) { this.amountGross = amountGross; }
+    public Money getAmountGrossMoney() { return amountGrossDecimal == null ? amountGross : toMoney(amountGrossDecimal); }
+    public void setAmountGrossMoney(Money amountGross) { this.amountGross = amountGross; this.amountGrossDecimal = null; }
+    public BigDecimal getAmountGross() { return amountGross == null ? amountGrossDecimal : amountGross.toBigDecimal(); }
+    public void setAmountGross(BigDecimal amountGross) { this.amountGrossDecimal = amountGross; this.amountGross = null; }
     
-    public BigDecimal getAmountFee() { return amountFee; }
-    public void setAmountFee(BigDecimal amountFee) { this.amountFee = amountFee; }
+    public Money getAmountFeeMoney() { return amountFeeDecimal == null ? amountFee : toMoney(amountFeeDecimal); }
+    public void setAmountFeeMoney(Money amountFee) { this.amountFee = amountFee; this.amountFeeDecimal = null; }
+    public BigDecimal getAmountFee() { return amountFee == null ? amountFeeDecimal : amountFee.toBigDecimal(); }
+    public void setAmountFee(BigDecimal amountFee) { this.amountFeeDecimal = amountFee; this.amountFee = null; }
     
-    public BigDecimal getAmountNet() { return amountNet; }
-    public void setAmountNet(BigDecimal amountNet) { this.amountNet = amountNet; }
+    public Money getAmountNetMoney() { return amountNetDecimal == null ? amountNet : toMoney(amountNetDecimal); }
+    public void setAmountNetMoney(Money amountNet) { this.amountNet = amountNet; this.amountNetDecimal = null; }
+    public BigDecimal getAmountNet() { return amountNet == null ? amountNetDecimal : amountNet.toBigDecimal(); }
+    public void setAmountNet(BigDecimal amountNet) { this.amountNetDecimal = amountNet; this.amountNet = null; }
     
     public String getNameFirst() { return nameFirst; }
     public void setNameFirst(String nameFirst) { this.nameFirst = nameFirst; }
@@ -55,4 +71,8 @@ public class NotificationData {
     
     public String getSignature() { return signature; }
     public void setSignature(String signature) { this.signature = signature; }
-}
\ No newline at end of file
+
+    private static Money toMoney(BigDecimal amount) {
+        return Money.of(amount.setScale(2, RoundingMode.HALF_UP));
+    }
+}
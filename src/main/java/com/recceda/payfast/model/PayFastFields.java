@@ -0,0 +1,348 @@
+package com.recceda.payfast.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * String map specialised for PayFast fields.
+ * <p>
+ * The known PayFast field names have fixed slots in a value array. A name is found by a
+ * perfect hash of its {@code String.hashCode()}, which indexes a 128-entry table, then one
+ * {@code equals} check, so there is no hashing of buckets or entry allocation per field.
+ * Other names are kept in an insertion-ordered overflow map.
+ * <p>
+ * Iteration follows PayFast's checkout order whatever order fields were put in: the known
+ * fields, then any other fields, then {@code signature}. Null keys and values are not
+ * allowed. Instances are not thread-safe.
+ * <p>
+ * It is used where the SDK builds and reads a map itself. Maps handed to callers, such as
+ * {@link PayFastFormData#getFields()} and bulk-signing rows, stay ordinary insertion-ordered
+ * maps.
+ */
+public final class PayFastFields extends AbstractMap<String, String> {
+
+    /**
+     * Known field names in PayFast checkout order, followed by the fields only ITNs carry.
+     * {@code signature} must stay last.
+     */
+    private static final String[] NAMES = {
+        "merchant_id", "merchant_key", "return_url", "cancel_url", "notify_url",
+        "name_first", "name_last", "email_address", "cell_number",
+        "m_payment_id", "amount", "item_name", "item_description",
+        "custom_int1", "custom_int2", "custom_int3", "custom_int4", "custom_int5",
+        "custom_str1", "custom_str2", "custom_str3", "custom_str4", "custom_str5",
+        "email_confirmation", "confirmation_address", "payment_method",
+        "subscription_type", "billing_date", "recurring_amount", "frequency", "cycles",
+        "subscription_notify_email", "subscription_notify_webhook", "subscription_notify_buyer",
+        "pf_payment_id", "payment_status", "amount_gross", "amount_fee", "amount_net", "token",
+        "signature"
+    };
+
+    /**
+     * Number of known field names; ordinals run from 0 to {@code KNOWN_FIELDS - 1}
+     */
+    public static final int KNOWN_FIELDS = NAMES.length;
+
+    private static final int SIGNATURE = KNOWN_FIELDS - 1;
+
+    // Found offline: maps the hash codes of NAMES to distinct slots of a 128-entry table
+    private static final int MULTIPLIER = 0x5e3225eb;
+    private static final int SHIFT = 25;
+    private static final byte[] SLOTS = new byte[1 << (32 - SHIFT)];
+
+    static {
+        Arrays.fill(SLOTS, (byte) -1);
+        for (int i = 0; i < NAMES.length; i++) {
+            int slot = slot(NAMES[i].hashCode());
+            if (SLOTS[slot] >= 0) {
+                throw new IllegalStateException("Field names " + NAMES[SLOTS[slot]] + " and " + NAMES[i]
+                    + " collide, pick a new multiplier");
+            }
+            SLOTS[slot] = (byte) i;
+        }
+    }
+
+    private final String[] values = new String[KNOWN_FIELDS];
+    private int known;
+    private Map<String, String> overflow;
+    private Set<Entry<String, String>> entrySet;
+
+    public PayFastFields() {
+    }
+
+    public PayFastFields(Map<String, String> fields) {
+        putAll(fields);
+    }
+
+    private static int slot(int hash) {
+        return (hash * MULTIPLIER) >>> SHIFT;
+    }
+
+    /**
+     * @return the ordinal of a known field name, or -1 for any other name
+     */
+    public static int ordinal(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int ordinal = SLOTS[slot(name.hashCode())];
+        return ordinal >= 0 && NAMES[ordinal].equals(name) ? ordinal : -1;
+    }
+
+    /**
+     * Look up a name given as ASCII bytes, such as a field name in a posted form, without
+     * decoding it. Percent-escaped names are not decoded and do not match.
+     * @return the ordinal of a known field name, or -1 for any other name
+     */
+    public static int ordinal(byte[] ascii, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + (ascii[i] & 0xff);
+        }
+        int ordinal = SLOTS[slot(hash)];
+        if (ordinal < 0 || NAMES[ordinal].length() != length) {
+            return -1;
+        }
+        String name = NAMES[ordinal];
+        for (int i = 0; i < length; i++) {
+            if (ascii[offset + i] != name.charAt(i)) {
+                return -1;
+            }
+        }
+        return ordinal;
+    }
+
+    /**
+     * @return the known field name with the given ordinal
+     */
+    public static String name(int ordinal) {
+        return NAMES[ordinal];
+    }
+
+    @Override
+    public int size() {
+        return known + (overflow == null ? 0 : overflow.size());
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int ordinal = ordinal((String) key);
+        if (ordinal >= 0) {
+            return values[ordinal];
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    @Override
+    public String put(String key, String value) {
+        Objects.requireNonNull(key, "Field name cannot be null");
+        Objects.requireNonNull(value, "Field value cannot be null");
+        int ordinal = ordinal(key);
+        if (ordinal < 0) {
+            if (overflow == null) {
+                overflow = new LinkedHashMap<>();
+            }
+            return overflow.put(key, value);
+        }
+        String previous = values[ordinal];
+        if (previous == null) {
+            known++;
+        }
+        values[ordinal] = value;
+        return previous;
+    }
+
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int ordinal = ordinal((String) key);
+        if (ordinal < 0) {
+            return overflow == null ? null : overflow.remove(key);
+        }
+        return clearSlot(ordinal);
+    }
+
+    private String clearSlot(int ordinal) {
+        String previous = values[ordinal];
+        if (previous != null) {
+            values[ordinal] = null;
+            known--;
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        known = 0;
+        overflow = null;
+    }
+
+    /**
+     * Visit the fields in iteration order without creating entries
+     */
+    @Override
+    public void forEach(BiConsumer<? super String, ? super String> action) {
+        for (int i = 0; i < SIGNATURE; i++) {
+            if (values[i] != null) {
+                action.accept(NAMES[i], values[i]);
+            }
+        }
+        if (overflow != null) {
+            overflow.forEach(action);
+        }
+        if (values[SIGNATURE] != null) {
+            action.accept(NAMES[SIGNATURE], values[SIGNATURE]);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return PayFastFields.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    PayFastFields.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, String>> {
+        private static final int NONE = -1;
+        private static final int OVERFLOW = -2;
+
+        private int cursor;
+        private Iterator<Entry<String, String>> others;
+        private int last = NONE;
+
+        @Override
+        public boolean hasNext() {
+            while (cursor < SIGNATURE && values[cursor] == null) {
+                cursor++;
+            }
+            if (cursor < SIGNATURE) {
+                return true;
+            }
+            if (others == null) {
+                others = overflow == null ? Collections.<Entry<String, String>>emptyIterator() : overflow.entrySet().iterator();
+            }
+            return others.hasNext() || (cursor == SIGNATURE && values[SIGNATURE] != null);
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (cursor == SIGNATURE && others.hasNext()) {
+                last = OVERFLOW;
+                return others.next();
+            }
+            last = cursor++;
+            return new KnownEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == NONE) {
+                throw new IllegalStateException();
+            }
+            if (last == OVERFLOW) {
+                others.remove();
+            } else {
+                clearSlot(last);
+            }
+            last = NONE;
+        }
+    }
+
+    /**
+     * Entry of a known field; setting its value writes through to the map
+     */
+    private final class KnownEntry implements Entry<String, String> {
+        private final int ordinal;
+        private String value;
+
+        KnownEntry(int ordinal) {
+            this.ordinal = ordinal;
+            this.value = values[ordinal];
+        }
+
+        @Override
+        public String getKey() {
+            return NAMES[ordinal];
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String setValue(String value) {
+            Objects.requireNonNull(value, "Field value cannot be null");
+            if (values[ordinal] == null) {
+                known++;
+            }
+            values[ordinal] = value;
+            String previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return getKey().equals(other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + value;
+        }
+    }
+}
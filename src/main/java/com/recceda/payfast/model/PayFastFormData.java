@@ -3,10 +3,12 @@ package com.recceda.payfast.model;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import com.recceda.payfast.annotation.FieldSink;
+
 /**
  * Represents PayFast payment form data with action URL and ordered fields
  */
-public class PayFastFormData {
+public class PayFastFormData implements FieldSink {
     private String action;
     private String method;
     private Map<String, String> fields;
@@ -51,6 +53,11 @@ public class PayFastFormData {
         }
     }
     
+    @Override
+    public void field(String name, String value) {
+        addField(name, value);
+    }
+    
     public void addSignature(String signature) {
         this.fields.put("signature", signature);
     }
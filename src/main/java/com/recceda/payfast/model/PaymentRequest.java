@@ -2,18 +2,32 @@ package com.recceda.payfast.model;
 
 import java.math.BigDecimal;
 
+import com.recceda.payfast.annotation.PayFastField;
+
 public class PaymentRequest {
+    @PayFastField(name = "merchant_id", order = 10)
     private String merchantId;
+    @PayFastField(name = "merchant_key", order = 20)
     private String merchantKey;
+    @PayFastField(name = "return_url", order = 30)
     private String returnUrl;
+    @PayFastField(name = "cancel_url", order = 40)
     private String cancelUrl;
+    @PayFastField(name = "notify_url", order = 50)
     private String notifyUrl;
+    @PayFastField(name = "name_first", order = 60)
     private String nameFirst;
+    @PayFastField(name = "name_last", order = 70)
     private String nameLast;
+    @PayFastField(name = "email_address", order = 80)
     private String emailAddress;
+    @PayFastField(name = "m_payment_id", order = 100)
     private String mPaymentId;
+    @PayFastField(name = "amount", order = 110)
     private BigDecimal amount;
+    @PayFastField(name = "item_name", order = 120)
     private String itemName;
+    @PayFastField(name = "item_description", order = 130)
     private String itemDescription;
     private String signature;
     
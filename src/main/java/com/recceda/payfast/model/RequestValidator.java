@@ -0,0 +1,52 @@
+package com.recceda.payfast.model;
+
+import java.math.BigDecimal;
+
+import com.recceda.payfast.exception.ValidationException;
+
+/**
+ * Checks on request fields that do not depend on the merchant, shared by the mutable
+ * request beans and the immutable request builders
+ */
+public final class RequestValidator {
+
+    private RequestValidator() {
+    }
+
+    public static void validatePayment(PaymentRequest request) throws ValidationException {
+        if (request == null) {
+            throw new ValidationException("Payment request cannot be null");
+        }
+        if (request.getAmount() == null || request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new ValidationException("Payment amount must be greater than zero");
+        }
+        if (request.getItemName() == null || request.getItemName().trim().isEmpty()) {
+            throw new ValidationException("Item name cannot be null or empty");
+        }
+    }
+
+    /**
+     * Validate the payment fields and the subscription settings. Whether the merchant has
+     * the passphrase PayFast requires for subscriptions is checked when signing.
+     */
+    public static void validateSubscription(SubscriptionRequest request) throws ValidationException {
+        validatePayment(request);
+        validateSubscriptionSettings(request);
+    }
+
+    /**
+     * Validate only the subscription settings: frequency, cycles and recurring amount
+     */
+    public static void validateSubscriptionSettings(SubscriptionRequest request) throws ValidationException {
+        if (request.getFrequency() != null && (request.getFrequency() < 1 || request.getFrequency() > 6)) {
+            throw new ValidationException("Frequency must be between 1 and 6 (1=Daily, 2=Weekly, 3=Monthly, 4=Quarterly, 5=Biannually, 6=Annual)");
+        }
+        if (request.getCycles() != null && request.getCycles() < 0) {
+            throw new ValidationException("Cycles must be 0 (infinite) or a positive number");
+        }
+        if (request.getRecurringAmount() != null && request.getRecurringAmount() <= 0
+                || request.getRecurringAmountMoney() != null && request.getRecurringAmountMoney().signum() <= 0) {
+            throw new ValidationException("Recurring amount must be greater than zero");
+        }
+    }
+}
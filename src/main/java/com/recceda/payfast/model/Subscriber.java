@@ -0,0 +1,33 @@
+package com.recceda.payfast.model;
+
+import java.time.LocalDate;
+
+/**
+ * The customer-specific fields of a checkout for a {@link SubscriptionPlan}
+ */
+public class Subscriber {
+    private String nameFirst;
+    private String nameLast;
+    private String emailAddress;
+    private String mPaymentId;
+    private String billingDate;
+
+    public String getNameFirst() { return nameFirst; }
+    public void setNameFirst(String nameFirst) { this.nameFirst = nameFirst; }
+
+    public String getNameLast() { return nameLast; }
+    public void setNameLast(String nameLast) { this.nameLast = nameLast; }
+
+    public String getEmailAddress() { return emailAddress; }
+    public void setEmailAddress(String emailAddress) { this.emailAddress = emailAddress; }
+
+    public String getMPaymentId() { return mPaymentId; }
+    public void setMPaymentId(String mPaymentId) { this.mPaymentId = mPaymentId; }
+
+    public String getBillingDate() { return billingDate; }
+    public void setBillingDate(String billingDate) { this.billingDate = billingDate; }
+
+    public void setBillingDate(LocalDate date) {
+        this.billingDate = date == null ? null : date.toString();
+    }
+}
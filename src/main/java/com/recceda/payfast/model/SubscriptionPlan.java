@@ -0,0 +1,149 @@
+package com.recceda.payfast.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.recceda.payfast.annotation.FieldSink;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.util.SignatureEngine;
+
+/**
+ * Template for subscription checkouts that differ only in the customer.
+ * <p>
+ * The plan is validated once when it is created. Its fields are then split, in PayFast
+ * order, into runs of constant fields and slots for the {@link Subscriber} fields
+ * ({@code name_first}, {@code name_last}, {@code email_address}, {@code m_payment_id} and
+ * {@code billing_date}). Each constant run is trimmed and encoded once, so a checkout only
+ * encodes the customer's values; everything else is replayed. Plans are immutable and can
+ * be shared between threads.
+ */
+public final class SubscriptionPlan {
+    /**
+     * Fields taken from the {@link Subscriber}; the template's values for them are ignored
+     */
+    public static final Set<String> SUBSCRIBER_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        "name_first", "name_last", "email_address", "m_payment_id", "billing_date")));
+
+    private final String returnUrl;
+    private final String cancelUrl;
+    private final String notifyUrl;
+    private final Segment[] segments;
+
+    private SubscriptionPlan(SubscriptionRequest template) {
+        this.returnUrl = template.getReturnUrl();
+        this.cancelUrl = template.getCancelUrl();
+        this.notifyUrl = template.getNotifyUrl();
+
+        List<Segment> segments = new ArrayList<>();
+        List<String> run = new ArrayList<>();
+        SubscriptionRequestFieldWriter.INSTANCE.write(template, (name, value) -> {
+            switch (name) {
+                case "merchant_id":
+                case "merchant_key":
+                case "return_url":
+                case "cancel_url":
+                case "notify_url":
+                    // Added by the service, the URLs with the merchant digest prefix
+                    return;
+                default:
+                    break;
+            }
+            if (SUBSCRIBER_FIELDS.contains(name)) {
+                if (!run.isEmpty()) {
+                    segments.add(Segment.constant(run));
+                    run.clear();
+                }
+                segments.add(Segment.variable(name));
+            } else if (value != null && !value.trim().isEmpty()) {
+                run.add(name);
+                run.add(value.trim());
+            }
+        });
+        if (!run.isEmpty()) {
+            segments.add(Segment.constant(run));
+        }
+        this.segments = segments.toArray(new Segment[0]);
+    }
+
+    /**
+     * Create a plan from a template request holding the plan's amount, item, URLs and
+     * subscription settings
+     * @throws ValidationException if the template is not a valid subscription
+     */
+    public static SubscriptionPlan of(SubscriptionRequest template) throws ValidationException {
+        RequestValidator.validateSubscription(template);
+        return new SubscriptionPlan(template);
+    }
+
+    public String getReturnUrl() { return returnUrl; }
+    public String getCancelUrl() { return cancelUrl; }
+    public String getNotifyUrl() { return notifyUrl; }
+
+    /**
+     * Write the plan and subscriber fields after the callback URLs, in PayFast order: the
+     * trimmed values to the form and their encoding to the engine
+     */
+    public void write(Subscriber subscriber, FieldSink form, SignatureEngine engine) {
+        for (Segment segment : segments) {
+            if (segment.variable != null) {
+                String value = subscriberField(subscriber, segment.variable);
+                form.field(segment.variable, value);
+                engine.addParam(segment.variable, value);
+            } else {
+                for (int i = 0; i < segment.names.length; i++) {
+                    form.field(segment.names[i], segment.values[i]);
+                }
+                engine.addEncodedParam(segment.encoded, 0, segment.encoded.length);
+            }
+        }
+    }
+
+    private static String subscriberField(Subscriber subscriber, String name) {
+        if (subscriber == null) {
+            return null;
+        }
+        switch (name) {
+            case "name_first": return subscriber.getNameFirst();
+            case "name_last": return subscriber.getNameLast();
+            case "email_address": return subscriber.getEmailAddress();
+            case "m_payment_id": return subscriber.getMPaymentId();
+            case "billing_date": return subscriber.getBillingDate();
+            default: return null;
+        }
+    }
+
+    /**
+     * Either a subscriber field or a run of constant fields encoded together
+     */
+    private static final class Segment {
+        final String variable;
+        final String[] names;
+        final String[] values;
+        final byte[] encoded;
+
+        private Segment(String variable, String[] names, String[] values, byte[] encoded) {
+            this.variable = variable;
+            this.names = names;
+            this.values = values;
+            this.encoded = encoded;
+        }
+
+        static Segment variable(String name) {
+            return new Segment(name, null, null, null);
+        }
+
+        static Segment constant(List<String> namesAndValues) {
+            String[] names = new String[namesAndValues.size() / 2];
+            String[] values = new String[names.length];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = namesAndValues.get(2 * i);
+                values[i] = namesAndValues.get(2 * i + 1);
+            }
+            return new Segment(null, names, values, SignatureEngine.encodeParams(namesAndValues.toArray(new String[0])));
+        }
+    }
+}
@@ -3,14 +3,25 @@ package com.recceda.payfast.model;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 
+import com.recceda.payfast.annotation.PayFastField;
+
 public class SubscriptionRequest extends PaymentRequest {
+    @PayFastField(name = "subscription_type", order = 300)
     private String subscriptionType = "1";
+    @PayFastField(name = "billing_date", order = 310)
     private String billingDate;
-    private Integer recurringAmount;
+    // The Integer or Money recurring amount, whichever was set last
+    @PayFastField(name = "recurring_amount", order = 320)
+    private Object recurringAmountValue;
+    @PayFastField(name = "frequency", order = 330)
     private Integer frequency;
+    @PayFastField(name = "cycles", order = 340)
     private Integer cycles;
+    @PayFastField(name = "subscription_notify_email", order = 350)
     private Boolean subscriptionNotifyEmail;
+    @PayFastField(name = "subscription_notify_webhook", order = 360)
     private Boolean subscriptionNotifyWebhook;
+    @PayFastField(name = "subscription_notify_buyer", order = 370)
     private Boolean subscriptionNotifyBuyer;
     
     public String getSubscriptionType() { return subscriptionType; }
@@ -23,8 +34,36 @@ public class SubscriptionRequest extends PaymentRequest {
         this.billingDate = date.format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
     }
     
-    public Integer getRecurringAmount() { return recurringAmount; }
-    public void setRecurringAmount(Integer recurringAmount) { this.recurringAmount = recurringAmount; }
+    /**
+     * @return the amount set by {@link #setRecurringAmount(Integer)}, or null if none was
+     *         set or a {@link Money} amount replaced it
+     */
+    public Integer getRecurringAmount() {
+        return recurringAmountValue instanceof Integer ? (Integer) recurringAmountValue : null;
+    }
+
+    /**
+     * @param recurringAmount Posted as {@code recurring_amount} exactly as given, which
+     *                        PayFast reads as whole rand; use
+     *                        {@link #setRecurringAmountMoney(Money)} for amounts with cents
+     */
+    public void setRecurringAmount(Integer recurringAmount) { this.recurringAmountValue = recurringAmount; }
+
+    /**
+     * @return the amount set by {@link #setRecurringAmountMoney(Money)}, or null if none was
+     *         set or an Integer amount replaced it
+     */
+    public Money getRecurringAmountMoney() {
+        return recurringAmountValue instanceof Money ? (Money) recurringAmountValue : null;
+    }
+
+    /**
+     * @param recurringAmount Posted as {@code recurring_amount} with two decimals, e.g.
+     *                        {@code 50.00}; replaces an Integer amount
+     */
+    public void setRecurringAmountMoney(Money recurringAmount) { this.recurringAmountValue = recurringAmount; }
+
+    Object getRecurringAmountValue() { return recurringAmountValue; }
     
     public Integer getFrequency() { return frequency; }
     public void setFrequency(Integer frequency) { this.frequency = frequency; }
@@ -0,0 +1,402 @@
+package com.recceda.payfast.render;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PayFastResponse;
+import com.recceda.payfast.util.QuotePlusEncoder;
+
+/**
+ * Renders signed form data as the HTML form that posts it to PayFast, or as a GET
+ * redirect URL.
+ * <p>
+ * Output is written straight into an {@link Appendable}, an {@link OutputStream} or a
+ * {@link ByteBuffer}. Values are HTML-escaped or URL-encoded as they are copied, with no
+ * intermediate strings. Byte outputs are UTF-8. Redirect URLs are encoded by
+ * {@link QuotePlusEncoder}, like signatures.
+ */
+public final class CheckoutRenderer {
+    private static final String FORM_ID = "payfast-checkout";
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private CheckoutRenderer() {
+    }
+
+    /**
+     * Write the checkout form
+     * @param autoSubmit true to submit the form on page load, false to render a pay button
+     */
+    public static void renderHtmlForm(PayFastFormData formData, boolean autoSubmit, Appendable out) throws IOException {
+        renderHtmlForm(formData, autoSubmit, new CharOutput(out));
+    }
+
+    /**
+     * Write the checkout form as UTF-8. The stream is not flushed or closed.
+     * @see #renderHtmlForm(PayFastFormData, boolean, Appendable)
+     */
+    public static void renderHtmlForm(PayFastFormData formData, boolean autoSubmit, OutputStream out) throws IOException {
+        StreamOutput output = new StreamOutput(out);
+        renderHtmlForm(formData, autoSubmit, output);
+        output.drain();
+    }
+
+    /**
+     * Write the checkout form as UTF-8 at the buffer's position
+     * @throws BufferOverflowException if the buffer is too small; its position is then undefined
+     * @see #renderHtmlForm(PayFastFormData, boolean, Appendable)
+     */
+    public static void renderHtmlForm(PayFastFormData formData, boolean autoSubmit, ByteBuffer out) {
+        try {
+            renderHtmlForm(formData, autoSubmit, new BufferOutput(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write {@code action?field=value&...} with every field URL-encoded. A null action or
+     * value is written as empty, as in the HTML form.
+     */
+    public static void renderRedirectUrl(PayFastFormData formData, Appendable out) throws IOException {
+        renderRedirectUrl(formData, new CharOutput(out));
+    }
+
+    /**
+     * @see #renderRedirectUrl(PayFastFormData, Appendable)
+     */
+    public static void renderRedirectUrl(PayFastFormData formData, OutputStream out) throws IOException {
+        StreamOutput output = new StreamOutput(out);
+        renderRedirectUrl(formData, output);
+        output.drain();
+    }
+
+    /**
+     * @throws BufferOverflowException if the buffer is too small; its position is then undefined
+     * @see #renderRedirectUrl(PayFastFormData, Appendable)
+     */
+    public static void renderRedirectUrl(PayFastFormData formData, ByteBuffer out) {
+        try {
+            renderRedirectUrl(formData, new BufferOutput(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String htmlForm(PayFastFormData formData, boolean autoSubmit) {
+        StringBuilder html = new StringBuilder(1024);
+        try {
+            renderHtmlForm(formData, autoSubmit, html);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return html.toString();
+    }
+
+    public static String redirectUrl(PayFastFormData formData) {
+        StringBuilder url = new StringBuilder(512);
+        try {
+            renderRedirectUrl(formData, url);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return url.toString();
+    }
+
+    /**
+     * @return a successful response carrying the redirect URL and an auto-submitting form
+     */
+    public static PayFastResponse toResponse(PayFastFormData formData) {
+        return new PayFastResponse(true, "Payment request created", redirectUrl(formData), htmlForm(formData, true));
+    }
+
+    private static void renderHtmlForm(PayFastFormData formData, boolean autoSubmit, Output out) throws IOException {
+        out.ascii("<form id=\"" + FORM_ID + "\" action=\"");
+        out.html(formData.getAction());
+        out.ascii("\" method=\"");
+        out.html(formData.getMethod() == null ? "POST" : formData.getMethod());
+        out.ascii("\">\n");
+        for (Map.Entry<String, String> field : formData.getFields().entrySet()) {
+            out.ascii("<input type=\"hidden\" name=\"");
+            out.html(field.getKey());
+            out.ascii("\" value=\"");
+            out.html(field.getValue());
+            out.ascii("\">\n");
+        }
+        if (autoSubmit) {
+            out.ascii("</form>\n<script>document.getElementById(\"" + FORM_ID + "\").submit();</script>\n");
+        } else {
+            out.ascii("<input type=\"submit\" value=\"Pay Now\">\n</form>\n");
+        }
+    }
+
+    private static void renderRedirectUrl(PayFastFormData formData, Output out) throws IOException {
+        if (formData.getAction() != null) {
+            out.text(formData.getAction());
+        }
+        char separator = '?';
+        for (Map.Entry<String, String> field : formData.getFields().entrySet()) {
+            out.ascii(separator);
+            out.url(field.getKey());
+            out.ascii('=');
+            out.url(field.getValue());
+            separator = '&';
+        }
+    }
+
+    /**
+     * Character-level writer; subclasses decide whether non-ASCII text is passed through
+     * as chars or encoded as UTF-8
+     */
+    private abstract static class Output {
+        private PercentEncoder percentEncoder;
+
+        abstract void ascii(char c) throws IOException;
+
+        /**
+         * Write text that needs no escaping
+         */
+        abstract void text(CharSequence s) throws IOException;
+
+        /**
+         * Write the code point at {@code s[i]} as UTF-8 bytes through {@link #utf8Byte(int)}
+         * @return the index of the last char consumed
+         */
+        int utf8(CharSequence s, int i) throws IOException {
+            char c = s.charAt(i);
+            int codePoint = c;
+            if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, s.charAt(++i));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced as String.getBytes does
+                codePoint = '?';
+            }
+            if (codePoint < 0x80) {
+                utf8Byte(codePoint);
+            } else if (codePoint < 0x800) {
+                utf8Byte(0xc0 | codePoint >> 6);
+                utf8Byte(0x80 | codePoint & 0x3f);
+            } else if (codePoint < 0x10000) {
+                utf8Byte(0xe0 | codePoint >> 12);
+                utf8Byte(0x80 | codePoint >> 6 & 0x3f);
+                utf8Byte(0x80 | codePoint & 0x3f);
+            } else {
+                utf8Byte(0xf0 | codePoint >> 18);
+                utf8Byte(0x80 | codePoint >> 12 & 0x3f);
+                utf8Byte(0x80 | codePoint >> 6 & 0x3f);
+                utf8Byte(0x80 | codePoint & 0x3f);
+            }
+            return i;
+        }
+
+        abstract void utf8Byte(int b) throws IOException;
+
+        void ascii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                ascii(s.charAt(i));
+            }
+        }
+
+        void html(String s) throws IOException {
+            if (s == null) {
+                return;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '&': ascii("&amp;"); break;
+                    case '<': ascii("&lt;"); break;
+                    case '>': ascii("&gt;"); break;
+                    case '"': ascii("&quot;"); break;
+                    case '\'': ascii("&#39;"); break;
+                    default:
+                        if (c < 0x80) {
+                            ascii(c);
+                        } else {
+                            i = nonAscii(s, i);
+                        }
+                }
+            }
+        }
+
+        void url(String s) throws IOException {
+            if (s == null) {
+                return;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (QuotePlusEncoder.isSafe(c)) {
+                    ascii(c);
+                } else if (c == ' ') {
+                    ascii('+');
+                } else if (c < 0x80) {
+                    percent(c);
+                } else {
+                    // Percent-encode each UTF-8 byte of the code point
+                    if (percentEncoder == null) {
+                        percentEncoder = new PercentEncoder(this);
+                    }
+                    i = percentEncoder.utf8(s, i);
+                }
+            }
+        }
+
+        void percent(int b) throws IOException {
+            ascii('%');
+            ascii(HEX[b >> 4 & 0xf]);
+            ascii(HEX[b & 0xf]);
+        }
+
+        /**
+         * Write a non-ASCII char of unescaped text
+         * @return the index of the last char consumed
+         */
+        abstract int nonAscii(CharSequence s, int i) throws IOException;
+    }
+
+    /**
+     * Routes UTF-8 bytes to percent escapes on the wrapped output
+     */
+    private static final class PercentEncoder extends Output {
+        private final Output out;
+
+        PercentEncoder(Output out) {
+            this.out = out;
+        }
+
+        @Override
+        void utf8Byte(int b) throws IOException {
+            out.percent(b & 0xff);
+        }
+
+        @Override
+        void ascii(char c) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        void text(CharSequence s) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        int nonAscii(CharSequence s, int i) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private static final class CharOutput extends Output {
+        private final Appendable out;
+
+        CharOutput(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        void ascii(char c) throws IOException {
+            out.append(c);
+        }
+
+        @Override
+        void ascii(String s) throws IOException {
+            out.append(s);
+        }
+
+        @Override
+        void text(CharSequence s) throws IOException {
+            out.append(s);
+        }
+
+        @Override
+        void url(String s) throws IOException {
+            if (s != null) {
+                QuotePlusEncoder.encode(s, 0, s.length(), out);
+            }
+        }
+
+        @Override
+        int nonAscii(CharSequence s, int i) throws IOException {
+            out.append(s.charAt(i));
+            return i;
+        }
+
+        @Override
+        void utf8Byte(int b) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private abstract static class ByteOutput extends Output {
+        abstract void put(byte b) throws IOException;
+
+        @Override
+        void ascii(char c) throws IOException {
+            put((byte) c);
+        }
+
+        @Override
+        void text(CharSequence s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    put((byte) c);
+                } else {
+                    i = utf8(s, i);
+                }
+            }
+        }
+
+        @Override
+        int nonAscii(CharSequence s, int i) throws IOException {
+            return utf8(s, i);
+        }
+
+        @Override
+        void utf8Byte(int b) throws IOException {
+            put((byte) b);
+        }
+    }
+
+    private static final class BufferOutput extends ByteOutput {
+        private final ByteBuffer out;
+
+        BufferOutput(ByteBuffer out) {
+            this.out = out;
+        }
+
+        @Override
+        void put(byte b) {
+            out.put(b);
+        }
+    }
+
+    /**
+     * Buffers bytes so the stream sees a few large writes
+     */
+    private static final class StreamOutput extends ByteOutput {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1024];
+        private int length;
+
+        StreamOutput(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        void put(byte b) throws IOException {
+            if (length == buffer.length) {
+                drain();
+            }
+            buffer[length++] = b;
+        }
+
+        void drain() throws IOException {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.recceda.payfast.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON reader shared by API responses and the JSON lines batch reader.
+ * <p>
+ * Objects become insertion-ordered maps and arrays lists; numbers and booleans are taken
+ * as their text. A parser can be {@link #reset(String) reset} for the next text, so a
+ * reader of many lines keeps one instance and its string buffer. Instances are not
+ * thread-safe.
+ */
+public final class JsonParser {
+    private final StringBuilder token = new StringBuilder();
+    private String text;
+    private int pos;
+
+    public JsonParser() {
+        this("");
+    }
+
+    public JsonParser(String text) {
+        reset(text);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the text is not a single JSON value
+     */
+    public static Object parse(String text) {
+        JsonParser parser = new JsonParser(text);
+        Object value = parser.readValue();
+        parser.end();
+        return value;
+    }
+
+    /**
+     * Start over on a new text
+     */
+    public JsonParser reset(String text) {
+        this.text = text;
+        this.pos = 0;
+        return this;
+    }
+
+    /**
+     * @return the offset in the text the parser stopped at, e.g. where an error was found
+     */
+    public int position() {
+        return pos;
+    }
+
+    /**
+     * Read any JSON value; {@code null} is returned as null
+     * @throws IllegalArgumentException if the text at the current position is not a JSON value
+     */
+    public Object readValue() {
+        skipWhitespace();
+        switch (peek()) {
+            case '{': return object(false);
+            case '[': return array();
+            case '"': return string();
+            default: return literal();
+        }
+    }
+
+    /**
+     * Read an object whose values are all strings, numbers, booleans or null. Null values
+     * are left out of the map.
+     * @throws IllegalArgumentException if the text at the current position is not such an object
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> readFlatObject() {
+        // Flat objects only ever hold strings
+        return (Map<String, String>) (Map<String, ?>) object(true);
+    }
+
+    /**
+     * @throws IllegalArgumentException if anything but whitespace is left
+     */
+    public void end() {
+        skipWhitespace();
+        if (pos != text.length()) {
+            throw error("unexpected content after value");
+        }
+    }
+
+    private Map<String, Object> object(boolean flat) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("expected a field name");
+            }
+            String key = string();
+            expect(':');
+            skipWhitespace();
+            char c = peek();
+            if (flat && (c == '{' || c == '[')) {
+                throw error("nested values are not supported");
+            }
+            Object value = readValue();
+            if (value != null || !flat) {
+                object.put(key, value);
+            }
+            skipWhitespace();
+            c = next();
+            if (c == '}') {
+                return object;
+            }
+            if (c != ',') {
+                throw error("expected ',' or '}'");
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> array = new ArrayList<>();
+        pos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return array;
+            }
+            if (c != ',') {
+                throw error("expected ',' or ']'");
+            }
+        }
+    }
+
+    private String literal() {
+        int start = pos;
+        while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+            pos++;
+        }
+        String literal = text.substring(start, pos);
+        if (literal.isEmpty()) {
+            throw error("expected a value");
+        }
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private String string() {
+        pos++;
+        token.setLength(0);
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return token.toString();
+            }
+            if (c != '\\') {
+                token.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                break;
+            }
+            char escape = text.charAt(pos++);
+            switch (escape) {
+                case 'b': token.append('\b'); break;
+                case 'f': token.append('\f'); break;
+                case 'n': token.append('\n'); break;
+                case 'r': token.append('\r'); break;
+                case 't': token.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("invalid unicode escape");
+                    }
+                    try {
+                        token.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("invalid unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default: token.append(escape); break;
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private void expect(char expected) {
+        skipWhitespace();
+        if (next() != expected) {
+            throw error("expected '" + expected + "'");
+        }
+    }
+
+    private char next() {
+        if (pos >= text.length()) {
+            throw error("unexpected end of JSON");
+        }
+        return text.charAt(pos++);
+    }
+
+    private char peek() {
+        return pos < text.length() ? text.charAt(pos) : 0;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,148 @@
+package com.recceda.payfast.util;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+
+import com.recceda.payfast.annotation.FieldSink;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.SignatureException;
+
+/**
+ * Everything about a merchant that signing needs, computed once from its config.
+ * <p>
+ * The process URL, the encoded {@code merchant_id}/{@code merchant_key} pairs and the
+ * trimmed passphrase are derived when the state is created. Every signature starts with
+ * the merchant fields followed by {@code return_url}, {@code cancel_url} and
+ * {@code notify_url}, which rarely change between requests. The digest state after
+ * those fields is kept for the first URLs seen, and signatures with the same URLs resume
+ * from a clone of it instead of encoding and hashing them again. Requests with other URLs
+ * are hashed from scratch and leave the kept state alone, so varying URLs never cost more
+ * than signing without it. Instances are thread-safe and meant to be shared.
+ */
+public final class MerchantSigningState {
+    private static final byte[] NONE = new byte[0];
+
+    private final String merchantId;
+    private final String merchantKey;
+    private final String actionUrl;
+    private final byte[] merchantFields;
+    private final byte[] passphrase;
+    private volatile Prefix prefix;
+
+    private MerchantSigningState(PayFastConfig config) {
+        this.merchantId = config.getMerchantId();
+        this.merchantKey = config.getMerchantKey();
+        this.actionUrl = config.getBaseUrl() + "/eng/process";
+        this.merchantFields = SignatureEngine.encodeParams("merchant_id", merchantId, "merchant_key", merchantKey);
+        byte[] encoded = SignatureEngine.encodePassphrase(config.getPassphrase());
+        this.passphrase = encoded.length == 0 ? NONE : encoded;
+    }
+
+    public static MerchantSigningState of(PayFastConfig config) {
+        return new MerchantSigningState(config);
+    }
+
+    public String getMerchantId() { return merchantId; }
+    public String getMerchantKey() { return merchantKey; }
+
+    /**
+     * @return the PayFast process URL forms are posted to
+     */
+    public String getActionUrl() { return actionUrl; }
+
+    /**
+     * @return true if signatures include a passphrase
+     */
+    public boolean hasPassphrase() { return passphrase.length > 0; }
+
+    /**
+     * Get the calling thread's engine with the merchant fields and the request's URLs
+     * already hashed. Feed it the rest of the request through {@link #requestFields(SignatureEngine)}.
+     */
+    public SignatureEngine begin(String returnUrl, String cancelUrl, String notifyUrl) {
+        Prefix current = prefix;
+        if (current == null) {
+            // Racing threads may each build one; any of them will do
+            current = new Prefix(returnUrl, cancelUrl, notifyUrl);
+            prefix = current;
+        } else if (!current.matches(returnUrl, cancelUrl, notifyUrl)) {
+            SignatureEngine engine = SignatureEngine.current()
+                .addEncodedParam(merchantFields, 0, merchantFields.length);
+            engine.addParam("return_url", returnUrl);
+            engine.addParam("cancel_url", cancelUrl);
+            engine.addParam("notify_url", notifyUrl);
+            return engine;
+        }
+        return SignatureEngine.current().resume(current.digest);
+    }
+
+    /**
+     * @return a sink that passes fields to the engine, skipping the fields that
+     *         {@link #begin(String, String, String)} already hashed
+     */
+    public FieldSink requestFields(SignatureEngine engine) {
+        return (name, value) -> {
+            switch (name) {
+                case "merchant_id":
+                case "merchant_key":
+                case "return_url":
+                case "cancel_url":
+                case "notify_url":
+                    break;
+                default:
+                    engine.addParam(name, value);
+            }
+        };
+    }
+
+    /**
+     * Append the passphrase and return the signature. The engine is reset afterwards.
+     */
+    public String sign(SignatureEngine engine) throws SignatureException {
+        return addPassphrase(engine).sign();
+    }
+
+    /**
+     * Append the passphrase and compare against the expected signature. The engine is reset afterwards.
+     */
+    public boolean matches(SignatureEngine engine, String signature) throws SignatureException {
+        return addPassphrase(engine).matches(signature);
+    }
+
+    private SignatureEngine addPassphrase(SignatureEngine engine) {
+        if (passphrase.length > 0) {
+            engine.addEncodedParam(passphrase, 0, passphrase.length);
+        }
+        return engine;
+    }
+
+    private final class Prefix {
+        final String returnUrl;
+        final String cancelUrl;
+        final String notifyUrl;
+        final MessageDigest digest;
+
+        Prefix(String returnUrl, String cancelUrl, String notifyUrl) {
+            this.returnUrl = returnUrl;
+            this.cancelUrl = cancelUrl;
+            this.notifyUrl = notifyUrl;
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(256);
+            encoded.write(merchantFields, 0, merchantFields.length);
+            byte[] urls = SignatureEngine.encodeParams(
+                "return_url", returnUrl, "cancel_url", cancelUrl, "notify_url", notifyUrl);
+            if (urls.length > 0) {
+                encoded.write('&');
+                encoded.write(urls, 0, urls.length);
+            }
+            this.digest = SignatureEngine.prefixDigest(encoded.toByteArray());
+        }
+
+        boolean matches(String returnUrl, String cancelUrl, String notifyUrl) {
+            return same(this.returnUrl, returnUrl) && same(this.cancelUrl, cancelUrl) && same(this.notifyUrl, notifyUrl);
+        }
+
+        private boolean same(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
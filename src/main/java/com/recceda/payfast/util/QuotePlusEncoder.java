@@ -0,0 +1,153 @@
+package com.recceda.payfast.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The quote_plus style encoding PayFast signatures, redirect URLs and batch output use.
+ * <p>
+ * Letters, digits and {@code .-*_} are kept, a space becomes {@code +} and every other
+ * character is percent-encoded as uppercase hex over its UTF-8 bytes. Unpaired
+ * surrogates are encoded as {@code ?} like {@code String.getBytes} does. This is the
+ * output of {@code URLEncoder.encode(value, "UTF-8")}, which existing signatures were
+ * computed with. It differs from Python's {@code quote_plus} only in keeping {@code *}
+ * and escaping {@code ~}.
+ * <p>
+ * Safe ASCII characters are looked up in a 128-bit bitset. Callers copy runs of them in
+ * bulk after {@link #safeRunEnd(CharSequence, int, int)}, and {@link #encode(String)}
+ * returns a value that needs no escaping unchanged.
+ */
+public final class QuotePlusEncoder {
+    static final byte[] HEX_UPPER = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'
+    };
+
+    // Bits 0-63 and 64-127 of the safe ASCII set
+    private static final long SAFE_LOW;
+    private static final long SAFE_HIGH;
+
+    static {
+        long low = 0;
+        long high = 0;
+        String safe = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789.-*_";
+        for (int i = 0; i < safe.length(); i++) {
+            char c = safe.charAt(i);
+            if (c < 64) {
+                low |= 1L << c;
+            } else {
+                high |= 1L << (c - 64);
+            }
+        }
+        SAFE_LOW = low;
+        SAFE_HIGH = high;
+    }
+
+    private QuotePlusEncoder() {
+    }
+
+    /**
+     * @return true if the character is written as-is
+     */
+    public static boolean isSafe(int c) {
+        // Shifts only use the low 6 bits, so the range checks pick the word
+        return c < 64 ? c >= 0 && (SAFE_LOW & 1L << c) != 0 : c < 128 && (SAFE_HIGH & 1L << c) != 0;
+    }
+
+    /**
+     * @return the index of the first character in {@code [start, end)} that is not safe,
+     *         or {@code end} if there is none
+     */
+    public static int safeRunEnd(CharSequence s, int start, int end) {
+        int i = start;
+        while (i < end && isSafe(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the encoded value; the value itself when nothing needs escaping, null for null
+     */
+    public static String encode(String value) {
+        if (value == null) {
+            return null;
+        }
+        int safe = safeRunEnd(value, 0, value.length());
+        if (safe == value.length()) {
+            return value;
+        }
+        StringBuilder encoded = new StringBuilder(value.length() + 16);
+        encoded.append(value, 0, safe);
+        try {
+            encode(value, safe, value.length(), encoded);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Append the encoding of {@code s[start, end)}
+     */
+    public static void encode(CharSequence s, int start, int end, Appendable out) throws IOException {
+        int i = start;
+        while (i < end) {
+            int safe = safeRunEnd(s, i, end);
+            if (safe > i) {
+                out.append(s, i, safe);
+                i = safe;
+                continue;
+            }
+            char c = s.charAt(i);
+            if (c == ' ') {
+                out.append('+');
+            } else if (c < 0x80) {
+                appendEscaped(c, out);
+            } else {
+                int cp = codePointAt(s, i, end);
+                if (cp > 0xffff) {
+                    i++;
+                }
+                appendUtf8Escaped(cp, out);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * @return the code point at {@code i}, or {@code '?'} for an unpaired surrogate
+     */
+    static int codePointAt(CharSequence s, int i, int end) {
+        char c = s.charAt(i);
+        if (!Character.isSurrogate(c)) {
+            return c;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+            return Character.toCodePoint(c, s.charAt(i + 1));
+        }
+        return '?';
+    }
+
+    private static void appendUtf8Escaped(int cp, Appendable out) throws IOException {
+        if (cp < 0x80) {
+            appendEscaped(cp, out);
+        } else if (cp < 0x800) {
+            appendEscaped(0xc0 | cp >> 6, out);
+            appendEscaped(0x80 | cp & 0x3f, out);
+        } else if (cp < 0x10000) {
+            appendEscaped(0xe0 | cp >> 12, out);
+            appendEscaped(0x80 | cp >> 6 & 0x3f, out);
+            appendEscaped(0x80 | cp & 0x3f, out);
+        } else {
+            appendEscaped(0xf0 | cp >> 18, out);
+            appendEscaped(0x80 | cp >> 12 & 0x3f, out);
+            appendEscaped(0x80 | cp >> 6 & 0x3f, out);
+            appendEscaped(0x80 | cp & 0x3f, out);
+        }
+    }
+
+    private static void appendEscaped(int b, Appendable out) throws IOException {
+        out.append('%').append((char) HEX_UPPER[b >> 4 & 0x0f]).append((char) HEX_UPPER[b & 0x0f]);
+    }
+}
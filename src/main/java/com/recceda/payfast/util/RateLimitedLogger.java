@@ -0,0 +1,102 @@
+package com.recceda.payfast.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warning logger for events that can arrive once per request, such as rejected ITNs.
+ * <p>
+ * At most {@code maxPerSecond} messages are written per second; the rest are counted and
+ * the count is reported with the next message that gets through. Nothing is formatted
+ * when warnings are disabled or the limit is reached. The check is lock-free: one read of
+ * the current window and an atomic increment.
+ * <p>
+ * The default limit is 10 per second and can be changed with the
+ * {@value #MAX_PER_SECOND_PROPERTY} system property; 0 silences the logger.
+ */
+public final class RateLimitedLogger {
+    public static final String MAX_PER_SECOND_PROPERTY = "payfast.log.maxWarningsPerSecond";
+    private static final int DEFAULT_MAX_PER_SECOND = 10;
+    private static final String SUPPRESSED = " ({} similar messages suppressed)";
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger log;
+    private final int maxPerSecond;
+    private final LongSupplier nanoClock;
+    private final AtomicLong windowStart;
+    private final AtomicLong windowCount = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public RateLimitedLogger(Logger log, int maxPerSecond) {
+        this(log, maxPerSecond, System::nanoTime);
+    }
+
+    RateLimitedLogger(Logger log, int maxPerSecond, LongSupplier nanoClock) {
+        if (log == null || maxPerSecond < 0) {
+            throw new IllegalArgumentException("Logger cannot be null and the limit cannot be negative");
+        }
+        this.log = log;
+        this.maxPerSecond = maxPerSecond;
+        this.nanoClock = nanoClock;
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * @return a logger for the class limited by {@value #MAX_PER_SECOND_PROPERTY}
+     */
+    public static RateLimitedLogger forClass(Class<?> type) {
+        return new RateLimitedLogger(LoggerFactory.getLogger(type), Integer.getInteger(MAX_PER_SECOND_PROPERTY, DEFAULT_MAX_PER_SECOND));
+    }
+
+    public void warn(String message) {
+        if (acquire()) {
+            long dropped = suppressed.getAndSet(0);
+            if (dropped == 0) {
+                log.warn(message);
+            } else {
+                log.warn(message + SUPPRESSED, dropped);
+            }
+        }
+    }
+
+    /**
+     * @param arg Formatted into the {@code {}} placeholder only if the message is written
+     */
+    public void warn(String format, Object arg) {
+        if (acquire()) {
+            long dropped = suppressed.getAndSet(0);
+            if (dropped == 0) {
+                log.warn(format, arg);
+            } else {
+                log.warn(format + SUPPRESSED, arg, dropped);
+            }
+        }
+    }
+
+    /**
+     * @return messages dropped since the last one written
+     */
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    private boolean acquire() {
+        if (maxPerSecond == 0 || !log.isWarnEnabled()) {
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            windowCount.set(0);
+        }
+        if (windowCount.incrementAndGet() <= maxPerSecond) {
+            return true;
+        }
+        suppressed.incrementAndGet();
+        return false;
+    }
+}
@@ -0,0 +1,420 @@
+package com.recceda.payfast.util;
+
+import java.io.ByteArrayOutputStream;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.recceda.payfast.annotation.FieldSink;
+import com.recceda.payfast.exception.SignatureException;
+
+/**
+ * Streams PayFast parameter strings straight into an MD5 digest.
+ * <p>
+ * Keys and values are encoded into a small reusable byte buffer that is flushed into
+ * the digest as it fills up, so no query string, encoded value or byte array is built
+ * per signature. The only allocation is the returned hex string from {@link #sign()};
+ * {@link #matches(String)} compares against the expected signature without allocating.
+ * Parameters shared by many signatures can be hashed once into a {@link #prefixDigest(byte[])}
+ * that each signature {@link #resume(MessageDigest) resumes} from, at the cost of one clone.
+ * <p>
+ * Instances are not thread-safe. Use {@link #current()} to get the engine bound to the
+ * calling thread; the engine is reset before it is handed out.
+ */
+public final class SignatureEngine implements FieldSink {
+    private static final int BUFFER_SIZE = 512;
+    private static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<SignatureEngine> CURRENT = new ThreadLocal<SignatureEngine>() {
+        @Override
+        protected SignatureEngine initialValue() {
+            return new SignatureEngine();
+        }
+    };
+
+    private MessageDigest digest;
+    // Set while encoding parameters for later replay instead of hashing them
+    private ByteArrayOutputStream capture;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] hash = new byte[16];
+    private final char[] hex = new char[32];
+    private int position;
+    private boolean empty = true;
+
+    public SignatureEngine() {
+        this.digest = newDigest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 algorithm not available", e);
+        }
+    }
+
+    /**
+     * Encode parameters exactly as {@link #addParam(String, String)} would hash them, so
+     * fields that never change can be encoded once and replayed with
+     * {@link #addEncodedParam(byte[], int, int)}
+     * @param keysAndValues Alternating parameter names and values
+     * @return the joined {@code key=value} pairs, empty if every value is blank
+     */
+    public static byte[] encodeParams(String... keysAndValues) {
+        SignatureEngine engine = capturing();
+        for (int i = 0; i + 1 < keysAndValues.length; i += 2) {
+            engine.addParam(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return engine.captured();
+    }
+
+    /**
+     * Encode the passphrase exactly as {@link #addPassphrase(String)} would hash it
+     * @return the {@code passphrase=...} pair, empty for a blank passphrase
+     */
+    public static byte[] encodePassphrase(String passphrase) {
+        return capturing().addPassphrase(passphrase).captured();
+    }
+
+    /**
+     * Hash parameters that start many signatures once, for {@link #resume(MessageDigest)}
+     * @param encoded Encoded parameters as returned by {@link #encodeParams(String...)}, not empty
+     * @return a digest holding the state after the parameters; it is only ever cloned
+     */
+    public static MessageDigest prefixDigest(byte[] encoded) {
+        if (encoded.length == 0) {
+            throw new IllegalArgumentException("Digest prefix cannot be empty");
+        }
+        MessageDigest prefix = newDigest();
+        prefix.update(encoded);
+        // Fail here rather than on every signature if the provider cannot snapshot its state
+        cloneOf(prefix);
+        return prefix;
+    }
+
+    private static MessageDigest cloneOf(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("MD5 digest cannot be cloned", e);
+        }
+    }
+
+    private static SignatureEngine capturing() {
+        SignatureEngine engine = new SignatureEngine();
+        engine.capture = new ByteArrayOutputStream(64);
+        return engine;
+    }
+
+    private byte[] captured() {
+        flush();
+        return capture.toByteArray();
+    }
+
+    /**
+     * Get the engine bound to the calling thread, reset and ready for a new signature
+     */
+    public static SignatureEngine current() {
+        return CURRENT.get().reset();
+    }
+
+    /**
+     * Discard anything written since the last signature
+     */
+    public SignatureEngine reset() {
+        digest.reset();
+        position = 0;
+        empty = true;
+        return this;
+    }
+
+    /**
+     * Discard anything written and continue from a digest prefix, skipping the work of
+     * hashing those parameters again. The prefix itself is not modified.
+     * @param prefix A digest from {@link #prefixDigest(byte[])}
+     */
+    public SignatureEngine resume(MessageDigest prefix) {
+        reset();
+        digest = cloneOf(prefix);
+        empty = false;
+        return this;
+    }
+
+    /**
+     * @return true if no parameter has been written since the last reset
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Add a parameter the way PayFast expects it for checkout signatures: the value is
+     * trimmed and encoded by {@link QuotePlusEncoder}, blank values and the signature field are skipped.
+     * @return true if the parameter was written
+     */
+    public boolean addParam(String key, String value) {
+        if (value == null || "signature".equals(key)) {
+            return false;
+        }
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') start++;
+        while (end > start && value.charAt(end - 1) <= ' ') end--;
+        if (start == end) {
+            return false;
+        }
+        writeKey(key);
+        writeEncoded(value, start, end);
+        return true;
+    }
+
+    /**
+     * Same as {@link #addParam(String, String)}, so generated field writers can feed the digest directly
+     */
+    @Override
+    public void field(String name, String value) {
+        addParam(name, value);
+    }
+
+    /**
+     * Add a field of a posted form the way PayFast signs ITNs: the name and value are
+     * encoded by {@link QuotePlusEncoder} without trimming, and empty values are kept. A
+     * decoded field hashes the same as its encoded bytes through
+     * {@link #addEncodedParam(byte[], int, int)}.
+     */
+    public SignatureEngine addFormParam(String key, String value) {
+        if (!empty) {
+            write('&');
+        }
+        empty = false;
+        writeEncoded(key, 0, key.length());
+        write('=');
+        if (value != null) {
+            writeEncoded(value, 0, value.length());
+        }
+        return this;
+    }
+
+    /**
+     * Add a parameter with the value written exactly as given
+     */
+    public SignatureEngine addRawParam(String key, String value) {
+        writeKey(key);
+        if (value != null) {
+            writeRaw(value, 0, value.length());
+        } else {
+            writeRaw("null", 0, 4);
+        }
+        return this;
+    }
+
+    /**
+     * Add a {@code key=value} pair that is already encoded, such as a field of a posted
+     * form body. The bytes are hashed as-is.
+     */
+    public SignatureEngine addEncodedParam(byte[] pair, int offset, int length) {
+        if (!empty) {
+            write('&');
+        }
+        empty = false;
+        flush();
+        update(pair, offset, length);
+        return this;
+    }
+
+    /**
+     * Add a posted field that has no {@code =}, such as {@code a} in {@code a&b=1}. Form
+     * decoders read it as a name with an empty value, so it is hashed as {@code a=}, the
+     * same as {@link #addFormParam(String, String)} with an empty value.
+     */
+    public SignatureEngine addEncodedName(byte[] name, int offset, int length) {
+        addEncodedParam(name, offset, length);
+        write('=');
+        return this;
+    }
+
+    /**
+     * Append the passphrase as the final parameter. The passphrase is trimmed and
+     * written unencoded; a blank passphrase is ignored.
+     */
+    public SignatureEngine addPassphrase(String passphrase) {
+        if (passphrase == null) {
+            return this;
+        }
+        int start = 0;
+        int end = passphrase.length();
+        while (start < end && passphrase.charAt(start) <= ' ') start++;
+        while (end > start && passphrase.charAt(end - 1) <= ' ') end--;
+        if (start < end) {
+            writeKey("passphrase");
+            writeRaw(passphrase, start, end);
+        }
+        return this;
+    }
+
+    /**
+     * Complete the digest and return the lowercase hex signature. The engine is reset afterwards.
+     */
+    public String sign() throws SignatureException {
+        finish();
+        return new String(hex);
+    }
+
+    /**
+     * Complete the digest and compare it against an expected signature without allocating.
+     * The engine is reset afterwards.
+     */
+    public boolean matches(String signature) throws SignatureException {
+        finish();
+        if (signature == null || signature.length() != hex.length) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < hex.length; i++) {
+            diff |= hex[i] ^ signature.charAt(i);
+        }
+        return diff == 0;
+    }
+
+    private void finish() throws SignatureException {
+        flush();
+        try {
+            digest.digest(hash, 0, hash.length);
+        } catch (DigestException e) {
+            throw new SignatureException("Failed to generate MD5 hash", e);
+        } finally {
+            reset();
+        }
+        for (int i = 0; i < hash.length; i++) {
+            int b = hash[i] & 0xff;
+            hex[i * 2] = HEX_LOWER[b >>> 4];
+            hex[i * 2 + 1] = HEX_LOWER[b & 0x0f];
+        }
+    }
+
+    private void writeKey(String key) {
+        if (!empty) {
+            write('&');
+        }
+        empty = false;
+        writeRaw(key, 0, key.length());
+        write('=');
+    }
+
+    private void writeRaw(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                write(c);
+            } else {
+                i = writeUtf8(s, i, end, false);
+            }
+        }
+    }
+
+    private void writeEncoded(String s, int start, int end) {
+        int i = start;
+        while (i < end) {
+            int safe = QuotePlusEncoder.safeRunEnd(s, i, end);
+            if (safe > i) {
+                writeAscii(s, i, safe);
+                i = safe;
+                continue;
+            }
+            char c = s.charAt(i);
+            if (c == ' ') {
+                write('+');
+            } else if (c < 0x80) {
+                writeEscaped(c);
+            } else {
+                i = writeUtf8(s, i, end, true);
+            }
+            i++;
+        }
+    }
+
+    /**
+     * Copy a run of ASCII characters, checking for room once per buffer rather than per byte
+     */
+    private void writeAscii(String s, int start, int end) {
+        int i = start;
+        while (i < end) {
+            if (position == buffer.length) {
+                flush();
+            }
+            int stop = Math.min(end, i + buffer.length - position);
+            while (i < stop) {
+                buffer[position++] = (byte) s.charAt(i++);
+            }
+        }
+    }
+
+    /**
+     * Write the UTF-8 bytes of the non-ASCII character at {@code i}, percent-escaping them
+     * if requested. Unpaired surrogates are written as '?' like String.getBytes does.
+     * @return the index of the last char consumed
+     */
+    private int writeUtf8(String s, int i, int end, boolean escape) {
+        char c = s.charAt(i);
+        if (c < 0x800) {
+            writeByte(0xc0 | (c >> 6), escape);
+            writeByte(0x80 | (c & 0x3f), escape);
+            return i;
+        }
+        if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(i + 1));
+                writeByte(0xf0 | (cp >> 18), escape);
+                writeByte(0x80 | ((cp >> 12) & 0x3f), escape);
+                writeByte(0x80 | ((cp >> 6) & 0x3f), escape);
+                writeByte(0x80 | (cp & 0x3f), escape);
+                return i + 1;
+            }
+            writeByte('?', escape);
+            return i;
+        }
+        writeByte(0xe0 | (c >> 12), escape);
+        writeByte(0x80 | ((c >> 6) & 0x3f), escape);
+        writeByte(0x80 | (c & 0x3f), escape);
+        return i;
+    }
+
+    private void writeByte(int b, boolean escape) {
+        if (escape) {
+            writeEscaped(b);
+        } else {
+            write(b);
+        }
+    }
+
+    private void writeEscaped(int b) {
+        if (position + 3 > buffer.length) {
+            flush();
+        }
+        buffer[position++] = '%';
+        buffer[position++] = QuotePlusEncoder.HEX_UPPER[(b >> 4) & 0x0f];
+        buffer[position++] = QuotePlusEncoder.HEX_UPPER[b & 0x0f];
+    }
+
+    private void write(int b) {
+        if (position == buffer.length) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flush() {
+        if (position > 0) {
+            update(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void update(byte[] bytes, int offset, int length) {
+        if (capture != null) {
+            capture.write(bytes, offset, length);
+        } else {
+            digest.update(bytes, offset, length);
+        }
+    }
+}
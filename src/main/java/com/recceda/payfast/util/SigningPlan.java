@@ -0,0 +1,174 @@
+package com.recceda.payfast.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.recceda.payfast.annotation.FieldWriter;
+import com.recceda.payfast.annotation.FieldWriters;
+
+/**
+ * Per-class list of field accessors in PayFast parameter order.
+ * <p>
+ * Types with a generated {@link FieldWriter} (models using {@code @PayFastField}) are
+ * signed through it. For any other type the class hierarchy is inspected once and the
+ * resulting getters are cached in a {@link ClassValue}, so signing a request only invokes
+ * method handles and streams the values into the {@link SignatureEngine}.
+ */
+final class SigningPlan {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    // Expected order for PayFast parameters (from official Python implementation)
+    private static final List<String> PAYFAST_ORDER = Arrays.asList(
+        // Merchant Details
+        "merchant_id", "merchant_key", "return_url", "cancel_url", "notify_url",
+        // Buyer Details
+        "name_first", "name_last", "email_address", "cell_number",
+        // Transaction Details
+        "m_payment_id", "amount", "item_name", "item_description",
+        "custom_int1", "custom_int2", "custom_int3", "custom_int4", "custom_int5",
+        "custom_str1", "custom_str2", "custom_str3", "custom_str4", "custom_str5",
+        // Transaction Options
+        "email_confirmation", "confirmation_address",
+        // Set Payment Method
+        "payment_method",
+        // Recurring Billing Details
+        "subscription_type", "billing_date", "recurring_amount", "frequency", "cycles"
+    );
+
+    private static final ClassValue<SigningPlan> PLANS = new ClassValue<SigningPlan>() {
+        @Override
+        protected SigningPlan computeValue(Class<?> type) {
+            return build(type);
+        }
+    };
+
+    private final FieldWriter<Object> writer;
+    private final String[] names;
+    private final MethodHandle[] getters;
+
+    private SigningPlan(FieldWriter<Object> writer) {
+        this.writer = writer;
+        this.names = null;
+        this.getters = null;
+    }
+
+    private SigningPlan(String[] names, MethodHandle[] getters) {
+        this.writer = null;
+        this.names = names;
+        this.getters = getters;
+    }
+
+    static SigningPlan forClass(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Add every non-blank field of the request to the engine in PayFast order
+     */
+    void addParams(Object request, SignatureEngine engine) {
+        if (writer != null) {
+            writer.write(request, engine);
+            return;
+        }
+        for (int i = 0; i < getters.length; i++) {
+            Object value = get(i, request);
+            if (value != null) {
+                engine.addParam(names[i], value.toString());
+            }
+        }
+    }
+
+    private Object get(int index, Object request) {
+        try {
+            return (Object) getters[index].invokeExact(request);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Field getters cannot throw checked exceptions
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SigningPlan build(Class<?> type) {
+        FieldWriter<?> generated = FieldWriters.forType(type);
+        if (generated != null) {
+            return new SigningPlan((FieldWriter<Object>) generated);
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        // Subclass fields first; a parameter declared again in a superclass keeps its
+        // first position but takes the superclass value
+        Map<String, MethodHandle> discovered = new LinkedHashMap<>();
+        for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.getName().startsWith("$") || field.getName().equals("signature")) {
+                    continue;
+                }
+                discovered.put(convertFieldNameToParamName(field.getName()), getter(lookup, field));
+            }
+        }
+
+        List<String> names = new ArrayList<>(discovered.size());
+        List<MethodHandle> getters = new ArrayList<>(discovered.size());
+        for (String paramName : PAYFAST_ORDER) {
+            MethodHandle getter = discovered.remove(paramName);
+            if (getter != null) {
+                names.add(paramName);
+                getters.add(getter);
+            }
+        }
+        // Add any remaining parameters that weren't in the expected order
+        for (Map.Entry<String, MethodHandle> entry : discovered.entrySet()) {
+            names.add(entry.getKey());
+            getters.add(entry.getValue());
+        }
+        return new SigningPlan(names.toArray(new String[0]), getters.toArray(new MethodHandle[0]));
+    }
+
+    private static MethodHandle getter(MethodHandles.Lookup lookup, Field field) {
+        try {
+            field.setAccessible(true);
+            MethodHandle getter = lookup.unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+            return getter.asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access field " + field, e);
+        }
+    }
+
+    /**
+     * Convert Java field names to PayFast parameter names
+     * e.g., merchantId -> merchant_id, itemName -> item_name
+     */
+    private static String convertFieldNameToParamName(String fieldName) {
+        switch (fieldName) {
+            case "merchantId": return "merchant_id";
+            case "merchantKey": return "merchant_key";
+            case "returnUrl": return "return_url";
+            case "cancelUrl": return "cancel_url";
+            case "notifyUrl": return "notify_url";
+            case "nameFirst": return "name_first";
+            case "nameLast": return "name_last";
+            case "emailAddress": return "email_address";
+            case "mPaymentId": return "m_payment_id";
+            case "itemName": return "item_name";
+            case "itemDescription": return "item_description";
+            // For subscription-specific fields
+            case "subscriptionType": return "subscription_type";
+            case "billingDate": return "billing_date";
+            case "recurringAmount": return "recurring_amount";
+            default: return fieldName; // For fields like "amount", "frequency", "cycles" that don't need conversion
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.recceda.payfast.webhook;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.PayFastAsyncService;
+import com.recceda.payfast.exception.ConfigurationException;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNBody;
+import com.recceda.payfast.handler.ITNConfirmationClient;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.handler.PayFastSourceValidator;
+import com.recceda.payfast.idempotency.ITNOutcome;
+import com.recceda.payfast.idempotency.IdempotentITNHandler;
+import com.recceda.payfast.merchant.MerchantRegistry;
+import com.recceda.payfast.util.RateLimitedLogger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded ITN endpoint on the JDK's built-in HTTP server, so no servlet glue is needed.
+ * <p>
+ * Each request runs on the endpoint's executor. By default that is
+ * {@link PayFastAsyncService#defaultExecutor()}: a virtual thread per request on Java 21+,
+ * otherwise a cached pool of daemon threads. The body is read into a buffer from a small
+ * pool and parsed in place. Requests from outside PayFast (when a
+ * {@link PayFastSourceValidator} is set), non-POST requests and oversized bodies are
+ * refused before any parsing.
+ * <p>
+ * By default {@code 200} is sent as soon as the body has been read, and the signature
+ * check, the optional confirmation with PayFast and the {@link Listener} run afterwards
+ * on the same thread. PayFast then never retries, so a listener that fails loses the
+ * notification unless it records its own work. With {@link Builder#acknowledgeAfterProcessing()}
+ * the response waits for the listener: {@code 400} for a rejected notification and
+ * {@code 500} for a failure, which PayFast retries.
+ */
+public class ITNEndpoint implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(ITNEndpoint.class);
+    private static final RateLimitedLogger rejections = RateLimitedLogger.forClass(ITNEndpoint.class);
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int FORBIDDEN = 403;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int PAYLOAD_TOO_LARGE = 413;
+    private static final int SERVER_ERROR = 500;
+
+    private final Listener listener;
+    private final ITNHandler handler;
+    private final IdempotentITNHandler idempotentHandler;
+    private final MerchantRegistry registry;
+    private final PayFastSourceValidator sourceValidator;
+    private final ITNConfirmationClient confirmationClient;
+    private final boolean acknowledgeFirst;
+    private final int maxBodyBytes;
+    private final BlockingQueue<byte[]> buffers;
+    private final HttpServer server;
+
+    private ITNEndpoint(Builder builder) throws IOException {
+        this.listener = builder.listener;
+        this.handler = builder.handler;
+        this.idempotentHandler = builder.idempotentHandler;
+        this.registry = builder.registry;
+        this.sourceValidator = builder.sourceValidator;
+        this.confirmationClient = builder.confirmationClient;
+        this.acknowledgeFirst = builder.acknowledgeFirst;
+        this.maxBodyBytes = builder.maxBodyBytes;
+        this.buffers = new ArrayBlockingQueue<>(builder.pooledBuffers);
+
+        this.server = HttpServer.create(builder.address, builder.backlog);
+        server.setExecutor(builder.executor);
+        server.createContext(builder.path, this::handle);
+    }
+
+    public static Builder builder(Listener listener) {
+        return new Builder(listener);
+    }
+
+    public void start() {
+        server.start();
+        log.info("PayFast ITN endpoint listening on {}", server.getAddress());
+    }
+
+    /**
+     * @return the bound address, with the actual port when port 0 was requested
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stop accepting requests, waiting up to {@code delaySeconds} for open exchanges.
+     * Notifications already acknowledged may still be processing when this returns.
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+    }
+
+    @Override
+    public void close() {
+        stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, METHOD_NOT_ALLOWED);
+                return;
+            }
+            if (sourceValidator != null && !sourceValidator.isAllowed(exchange.getRemoteAddress().getAddress())) {
+                rejections.warn("ITN from {} refused: not a PayFast address", exchange.getRemoteAddress().getAddress());
+                respond(exchange, FORBIDDEN);
+                return;
+            }
+
+            byte[] buffer = acquireBuffer();
+            try {
+                int length = readBody(exchange, buffer);
+                if (length < 0) {
+                    rejections.warn("ITN refused: body larger than {} bytes", maxBodyBytes);
+                    respond(exchange, PAYLOAD_TOO_LARGE);
+                    return;
+                }
+                ITNBody body = ITNBody.parse(buffer, 0, length);
+                if (acknowledgeFirst) {
+                    respond(exchange, OK);
+                    process(body);
+                } else {
+                    respond(exchange, process(body));
+                }
+            } finally {
+                buffers.offer(buffer);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the status the notification deserves
+     */
+    private int process(ITNBody body) {
+        ITNOutcome outcome = null;
+        ITNResult result;
+        try {
+            if (idempotentHandler != null) {
+                outcome = idempotentHandler.process(body);
+                if (outcome.isDuplicate()) {
+                    return OK;
+                }
+                result = outcome.getResult();
+            } else if (registry != null) {
+                result = registry.route(body).getITNHandler().validateAndParse(body);
+            } else {
+                result = handler.validateAndParse(body);
+            }
+        } catch (ValidationException e) {
+            rejections.warn("ITN rejected: {}", e.getMessage());
+            return BAD_REQUEST;
+        } catch (Exception e) {
+            log.error("Failed to process ITN", e);
+            return SERVER_ERROR;
+        }
+        if (!result.isValid()) {
+            return BAD_REQUEST;
+        }
+        // From here on the notification is recorded, so any failure has to release it
+        try {
+            if (confirmationClient != null && !confirmationClient.confirm(body)) {
+                rejections.warn("ITN {} was not confirmed by PayFast", result.getNotification().getPfPaymentId());
+                release(outcome);
+                return BAD_REQUEST;
+            }
+            listener.onNotification(result);
+            return OK;
+        } catch (Exception e) {
+            log.error("Failed to process ITN", e);
+            release(outcome);
+            return SERVER_ERROR;
+        }
+    }
+
+    private void release(ITNOutcome outcome) {
+        if (outcome == null) {
+            return;
+        }
+        try {
+            idempotentHandler.release(outcome);
+        } catch (PayFastException e) {
+            log.error("Failed to release ITN {}", outcome.getKey(), e);
+        }
+    }
+
+    private byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        // One byte over the limit shows whether the body was cut off
+        return buffer != null ? buffer : new byte[maxBodyBytes + 1];
+    }
+
+    /**
+     * @return the body length, or -1 if it does not fit in {@code maxBodyBytes}
+     */
+    private int readBody(HttpExchange exchange, byte[] buffer) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxBodyBytes) {
+                    return -1;
+                }
+            } catch (NumberFormatException e) {
+                // Left to the stream
+            }
+        }
+        int length = 0;
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+            }
+        }
+        return length > maxBodyBytes ? -1 : length;
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    /**
+     * Receives each valid, new notification
+     */
+    public interface Listener {
+        /**
+         * The fields view of the result reads the request buffer, which is reused once
+         * this returns; copy anything needed later. Throwing releases the notification
+         * from the idempotent handler, if one is used.
+         */
+        void onNotification(ITNResult result) throws Exception;
+    }
+
+    public static class Builder {
+        private final Listener listener;
+        private ITNHandler handler;
+        private IdempotentITNHandler idempotentHandler;
+        private MerchantRegistry registry;
+        private PayFastSourceValidator sourceValidator;
+        private ITNConfirmationClient confirmationClient;
+        private InetSocketAddress address = new InetSocketAddress(8080);
+        private String path = "/payfast/itn";
+        private Executor executor = PayFastAsyncService.defaultExecutor();
+        private boolean acknowledgeFirst = true;
+        private int maxBodyBytes = 16 * 1024;
+        private int pooledBuffers = 64;
+        private int backlog = 0;
+
+        private Builder(Listener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Validate with a single merchant's handler
+         */
+        public Builder handler(ITNHandler handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        /**
+         * Validate and deduplicate; duplicates are acknowledged without calling the listener
+         */
+        public Builder idempotentHandler(IdempotentITNHandler idempotentHandler) {
+            this.idempotentHandler = idempotentHandler;
+            return this;
+        }
+
+        /**
+         * Validate with the handler of the merchant each ITN names
+         */
+        public Builder registry(MerchantRegistry registry) {
+            this.registry = registry;
+            return this;
+        }
+
+        /**
+         * @param sourceValidator Refuses requests from outside PayFast with {@code 403}
+         */
+        public Builder sourceValidator(PayFastSourceValidator sourceValidator) {
+            this.sourceValidator = sourceValidator;
+            return this;
+        }
+
+        /**
+         * @param confirmationClient Confirms each valid ITN with PayFast before the listener is called
+         */
+        public Builder confirmationClient(ITNConfirmationClient confirmationClient) {
+            this.confirmationClient = confirmationClient;
+            return this;
+        }
+
+        /**
+         * @param port Port to listen on, 0 for any free port. Defaults to 8080.
+         */
+        public Builder port(int port) {
+            this.address = new InetSocketAddress(port);
+            return this;
+        }
+
+        public Builder address(InetSocketAddress address) {
+            this.address = address;
+            return this;
+        }
+
+        /**
+         * @param path Context path of the endpoint, defaults to {@code /payfast/itn}
+         */
+        public Builder path(String path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * @param executor Runs each request, defaults to {@link PayFastAsyncService#defaultExecutor()}
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Respond only once the listener has returned, so PayFast retries failed notifications
+         */
+        public Builder acknowledgeAfterProcessing() {
+            this.acknowledgeFirst = false;
+            return this;
+        }
+
+        /**
+         * @param maxBodyBytes Largest accepted body, defaults to 16 KiB
+         */
+        public Builder maxBodyBytes(int maxBodyBytes) {
+            this.maxBodyBytes = maxBodyBytes;
+            return this;
+        }
+
+        /**
+         * @param pooledBuffers Body buffers kept for reuse, defaults to 64
+         */
+        public Builder pooledBuffers(int pooledBuffers) {
+            this.pooledBuffers = pooledBuffers;
+            return this;
+        }
+
+        /**
+         * @param backlog Socket backlog, 0 for the system default
+         */
+        public Builder backlog(int backlog) {
+            this.backlog = backlog;
+            return this;
+        }
+
+        /**
+         * Bind the server socket. Call {@link ITNEndpoint#start()} to begin serving.
+         * @throws ConfigurationException if the settings are invalid or the address cannot be bound
+         */
+        public ITNEndpoint build() throws ConfigurationException {
+            if (listener == null) {
+                throw new ConfigurationException("ITN listener cannot be null");
+            }
+            int validators = (handler != null ? 1 : 0) + (idempotentHandler != null ? 1 : 0) + (registry != null ? 1 : 0);
+            if (validators != 1) {
+                throw new ConfigurationException("Exactly one of handler, idempotentHandler or registry must be set");
+            }
+            if (address == null || executor == null || path == null || !path.startsWith("/")) {
+                throw new ConfigurationException("Address, executor and an absolute path are required");
+            }
+            if (maxBodyBytes < 1 || pooledBuffers < 1 || backlog < 0) {
+                throw new ConfigurationException("Body size and buffer pool must be positive");
+            }
+            try {
+                return new ITNEndpoint(this);
+            } catch (IOException e) {
+                throw new ConfigurationException("Failed to bind ITN endpoint to " + address, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.recceda.payfast;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.PayFastException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.util.SignatureEngine;
+
+public class PayFastAsyncServiceTest {
+    
+    private static final String PASSPHRASE = "jt7NOE43FZPn";
+    private static final String FIELDS = "m_payment_id=01AB&pf_payment_id=1089250&payment_status=COMPLETE"
+        + "&item_name=Test+Item&amount_gross=200.00&merchant_id=10000100";
+    
+    private PayFastService service;
+    private ExecutorService executor;
+    private PayFastAsyncService asyncService;
+    
+    @Before
+    public void setUp() throws Exception {
+        service = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true));
+        executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-executor"));
+        asyncService = new PayFastAsyncService(service, executor);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testCreatePaymentFormDataRunsOnExecutor() throws Exception {
+        AtomicInteger executed = new AtomicInteger();
+        PayFastAsyncService counting = new PayFastAsyncService(service, task -> {
+            executed.incrementAndGet();
+            executor.execute(task);
+        });
+        
+        PayFastFormData formData = counting.createPaymentFormData(payment()).get(5, TimeUnit.SECONDS);
+        
+        assertEquals(service.createPaymentFormData(payment()).getFields(), formData.getFields());
+        assertEquals(1, executed.get());
+    }
+    
+    @Test
+    public void testFailureCompletesExceptionally() throws Exception {
+        PaymentRequest request = payment();
+        request.setAmount(BigDecimal.ZERO);
+        
+        try {
+            asyncService.createPaymentFormData(request).get(5, TimeUnit.SECONDS);
+            fail("Expected ValidationException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ValidationException);
+            assertEquals("Payment amount must be greater than zero", e.getCause().getMessage());
+        }
+    }
+    
+    @Test
+    public void testValidateAndParseCopiesBuffer() throws Exception {
+        String body = FIELDS + "&signature=" + signatureOf(FIELDS);
+        ByteBuffer buffer = ByteBuffer.wrap(body.getBytes(StandardCharsets.US_ASCII));
+        CompletableFuture<Void> blocker = new CompletableFuture<>();
+        executor.execute(blocker::join);
+        
+        CompletableFuture<ITNResult> result = asyncService.validateAndParse(buffer);
+        // The event loop recycles its buffer before the task runs
+        buffer.clear();
+        buffer.put(new byte[buffer.capacity()]);
+        blocker.complete(null);
+        
+        assertTrue(result.get(5, TimeUnit.SECONDS).isValid());
+        assertEquals("01AB", result.get().getNotification().getMPaymentId());
+        assertEquals(0, buffer.remaining());
+    }
+    
+    @Test
+    public void testValidateITNCopiesMap() throws Exception {
+        String body = FIELDS + "&signature=" + signatureOf(FIELDS);
+        Map<String, String> params = service.getITNHandler().parseNotificationString(body);
+        CompletableFuture<Void> blocker = new CompletableFuture<>();
+        executor.execute(blocker::join);
+        
+        CompletableFuture<Boolean> result = asyncService.validateITN(params);
+        // The caller reuses its map before the task runs
+        params.put("amount_gross", "1.00");
+        blocker.complete(null);
+        
+        assertTrue(result.get(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testRejectedTaskFailsFuture() throws Exception {
+        executor.shutdown();
+        
+        CompletableFuture<Boolean> result = asyncService.validateITN(service.getITNHandler().parseNotificationBody(
+            FIELDS.getBytes(StandardCharsets.US_ASCII)));
+        
+        assertTrue(result.isCompletedExceptionally());
+        try {
+            result.join();
+            fail("Expected rejection");
+        } catch (java.util.concurrent.CompletionException e) {
+            assertTrue(e.getCause() instanceof PayFastException);
+        }
+    }
+    
+    @Test
+    public void testDefaultExecutor() throws Exception {
+        PayFastAsyncService defaultService = new PayFastAsyncService(
+            new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true));
+        
+        assertNotNull(PayFastAsyncService.defaultExecutor());
+        assertNotNull(defaultService.parseNotificationString(FIELDS).get(5, TimeUnit.SECONDS).get("pf_payment_id"));
+    }
+    
+    private static PaymentRequest payment() {
+        PaymentRequest request = new PaymentRequest();
+        request.setAmount(new BigDecimal("100.00"));
+        request.setItemName("Test Item");
+        request.setMPaymentId("ORDER-1");
+        return request;
+    }
+    
+    private static String signatureOf(String fields) throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        for (String field : fields.split("&")) {
+            byte[] pair = field.getBytes(StandardCharsets.US_ASCII);
+            engine.addEncodedParam(pair, 0, pair.length);
+        }
+        return engine.addPassphrase(PASSPHRASE).sign();
+    }
+}
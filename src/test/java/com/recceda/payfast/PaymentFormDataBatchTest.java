@@ -0,0 +1,139 @@
+package com.recceda.payfast;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.model.BatchResult;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.SubscriptionRequest;
+
+public class PaymentFormDataBatchTest {
+    
+    private PayFastService service;
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp() throws Exception {
+        service = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true));
+        executor = Executors.newFixedThreadPool(4);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testBatchMatchesSequentialResults() throws Exception {
+        List<PaymentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            requests.add(payment("ORDER-" + i, "10." + (i % 100)));
+        }
+        
+        BatchResult<PayFastFormData> result = service.createPaymentFormDataBatch(requests, executor);
+        
+        assertTrue(result.isAllSuccessful());
+        assertEquals(500, result.size());
+        for (int i = 0; i < requests.size(); i++) {
+            PayFastFormData expected = service.createPaymentFormData(requests.get(i));
+            assertEquals(expected.getFields(), result.getResults().get(i).getFields());
+        }
+    }
+    
+    @Test
+    public void testFailuresDoNotAbortBatch() throws Exception {
+        List<PaymentRequest> requests = new ArrayList<>();
+        requests.add(payment("ORDER-1", "10.00"));
+        requests.add(payment("ORDER-2", "0.00"));
+        requests.add(null);
+        requests.add(payment("ORDER-4", "25.00"));
+        
+        BatchResult<PayFastFormData> result = service.createPaymentFormDataBatch(requests, executor);
+        
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(2, result.getFailures().size());
+        assertEquals(1, result.getFailures().get(0).getIndex());
+        assertTrue(result.getFailures().get(0).getException() instanceof ValidationException);
+        assertEquals(2, result.getFailures().get(1).getIndex());
+        assertNull(result.getResults().get(1));
+        assertEquals("ORDER-4", result.getResults().get(3).getFields().get("m_payment_id"));
+    }
+    
+    @Test
+    public void testSubscriptionBatchFromStream() throws Exception {
+        SubscriptionRequest subscription = new SubscriptionRequest();
+        subscription.setAmount(new BigDecimal("50.00"));
+        subscription.setItemName("Monthly");
+        subscription.setFrequency(3);
+        
+        BatchResult<PayFastFormData> result = service.createSubscriptionFormDataBatch(Stream.of(subscription), executor);
+        
+        assertTrue(result.isAllSuccessful());
+        assertEquals("3", result.getResults().get(0).getFields().get("frequency"));
+    }
+    
+    @Test
+    public void testRejectingExecutorRunsOnCaller() throws Exception {
+        List<PaymentRequest> requests = new ArrayList<>();
+        requests.add(payment("ORDER-1", "10.00"));
+        
+        BatchResult<PayFastFormData> result = service.createPaymentFormDataBatch(requests, command -> {
+            throw new RejectedExecutionException();
+        });
+        
+        assertTrue(result.isAllSuccessful());
+    }
+    
+    @Test
+    public void testBatchFromWorkerOfSingleThreadPool() throws Exception {
+        List<PaymentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            requests.add(payment("ORDER-" + i, "10.00"));
+        }
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            // The only worker waits on the batch, so it has to take part in the work
+            BatchResult<PayFastFormData> result = pool.submit(() -> service.createPaymentFormDataBatch(requests, pool))
+                .get(10, TimeUnit.SECONDS);
+    
+            assertTrue(result.isAllSuccessful());
+            assertEquals(50, result.size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testEmptyBatch() throws Exception {
+        assertEquals(0, service.createPaymentFormDataBatch(new ArrayList<PaymentRequest>()).size());
+    }
+    
+    @Test(expected = ValidationException.class)
+    public void testNullBatch() throws Exception {
+        service.createPaymentFormDataBatch((List<PaymentRequest>) null, executor);
+    }
+    
+    private PaymentRequest payment(String id, String amount) {
+        PaymentRequest request = new PaymentRequest();
+        request.setMPaymentId(id);
+        request.setAmount(new BigDecimal(amount));
+        request.setItemName("Invoice " + id);
+        return request;
+    }
+}
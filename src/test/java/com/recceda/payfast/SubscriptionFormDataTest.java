@@ -9,6 +9,8 @@ import org.junit.Test;
 
 import com.recceda.payfast.config.PayFastConfig;
 import com.recceda.payfast.exception.ConfigurationException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.model.Money;
 import com.recceda.payfast.model.PayFastFormData;
 import com.recceda.payfast.model.SubscriptionRequest;
 
@@ -60,6 +62,27 @@ public class SubscriptionFormDataTest {
         assertNotNull(formData.getFields().get("signature"));
     }
     
+    @Test
+    public void testMoneyRecurringAmountIsPostedWithCents() throws Exception {
+        SubscriptionRequest subscription = new SubscriptionRequest();
+        subscription.setAmount(new BigDecimal("50.00"));
+        subscription.setItemName("Monthly Subscription");
+        subscription.setRecurringAmountMoney(Money.parse("49.99"));
+        subscription.setFrequency(3);
+        
+        PayFastFormData formData = service.createSubscriptionFormData(subscription);
+        
+        assertEquals("49.99", formData.getFields().get("recurring_amount"));
+        
+        subscription.setRecurringAmountMoney(Money.ZERO);
+        try {
+            service.createSubscriptionFormData(subscription);
+            fail("Expected ValidationException");
+        } catch (ValidationException e) {
+            assertEquals("Recurring amount must be greater than zero", e.getMessage());
+        }
+    }
+    
     @Test
     public void testSubscriptionFormDataWithMinimalFields() throws Exception {
         SubscriptionRequest subscription = new SubscriptionRequest();
@@ -0,0 +1,116 @@
+package com.recceda.payfast.annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.recceda.payfast.annotation.processing.PayFastFieldProcessor;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.SubscriptionRequest;
+
+public class PayFastFieldProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGeneratedWritersAreRegistered() {
+        assertNotNull(FieldWriters.forType(PaymentRequest.class));
+        assertNotNull(FieldWriters.forType(SubscriptionRequest.class));
+    }
+
+    @Test
+    public void testSubscriptionWriterEmitsInheritedFieldsInOrder() {
+        SubscriptionRequest request = new SubscriptionRequest();
+        request.setMerchantId("10000100");
+        request.setAmount(new java.math.BigDecimal("50.00"));
+        request.setItemName("Monthly");
+        request.setFrequency(3);
+        request.setSubscriptionNotifyBuyer(false);
+
+        final Map<String, String> fields = new LinkedHashMap<>();
+        FieldWriters.forType(SubscriptionRequest.class).write(request, new FieldSink() {
+            @Override
+            public void field(String name, String value) {
+                if (value != null) fields.put(name, value);
+            }
+        });
+
+        assertEquals(Arrays.asList("merchant_id", "amount", "item_name", "subscription_type", "frequency",
+            "subscription_notify_buyer"), Arrays.asList(fields.keySet().toArray()));
+        assertEquals("false", fields.get("subscription_notify_buyer"));
+    }
+
+    @Test
+    public void testProcessorGeneratesWriterForPojo() throws IOException {
+        String output = compile("Order",
+            "package test;\n"
+            + "import com.recceda.payfast.annotation.PayFastField;\n"
+            + "public class Order {\n"
+            + "    @PayFastField(name = \"amount\", order = 2) private long amount;\n"
+            + "    @PayFastField(name = \"merchant_id\", order = 1) private String merchantId;\n"
+            + "    public long getAmount() { return amount; }\n"
+            + "    public String getMerchantId() { return merchantId; }\n"
+            + "}\n");
+
+        assertEquals("", output);
+        String writer = read("generated/test/OrderFieldWriter.java");
+        assertTrue(writer.indexOf("\"merchant_id\"") < writer.indexOf("\"amount\""));
+        assertTrue(writer.contains("String.valueOf(request.getAmount())"));
+        assertEquals("test.OrderFieldWriter\n",
+            read("classes/META-INF/services/com.recceda.payfast.annotation.FieldWriter"));
+    }
+
+    @Test
+    public void testProcessorRejectsDuplicateOrderAndMissingGetter() throws IOException {
+        String output = compile("Broken",
+            "package test;\n"
+            + "import com.recceda.payfast.annotation.PayFastField;\n"
+            + "public class Broken {\n"
+            + "    @PayFastField(name = \"a\", order = 1) private String a;\n"
+            + "    @PayFastField(name = \"b\", order = 1) private String b;\n"
+            + "    public String getA() { return a; }\n"
+            + "}\n");
+
+        assertTrue(output, output.contains("Duplicate PayFast field order 1"));
+        assertTrue(output, output.contains("No accessible getter for @PayFastField b"));
+        assertFalse(new File(folder.getRoot(), "generated/test/BrokenFieldWriter.java").exists());
+    }
+
+    private String compile(String className, String source) throws IOException {
+        File sourceFile = new File(folder.newFolder("src", "test"), className + ".java");
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+        File classes = folder.newFolder("classes");
+        File generated = folder.newFolder("generated");
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StringWriter output = new StringWriter();
+        compiler.getTask(output, null, null, Arrays.asList(
+            "-classpath", System.getProperty("java.class.path"),
+            "-processor", PayFastFieldProcessor.class.getName(),
+            "-d", classes.getPath(),
+            "-s", generated.getPath()), null,
+            compiler.getStandardFileManager(null, null, null).getJavaFileObjects(sourceFile)).call();
+        return output.toString();
+    }
+
+    private String read(String path) throws IOException {
+        return new String(Files.readAllBytes(new File(folder.getRoot(), path).toPath()), StandardCharsets.UTF_8);
+    }
+}
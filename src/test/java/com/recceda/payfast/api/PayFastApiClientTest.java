@@ -0,0 +1,465 @@
+package com.recceda.payfast.api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLHandshakeException;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.HttpException;
+import com.recceda.payfast.model.BatchResult;
+import com.recceda.payfast.model.Money;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class PayFastApiClientTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-10-17T08:30:00Z"), ZoneOffset.ofHours(2));
+
+    private PayFastConfig config;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final Map<String, Map<String, String>> received = new ConcurrentHashMap<>();
+    private final Set<InetSocketAddress> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        config = new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testRequestsAreSignedWithHeadersAndPassphrase() throws Exception {
+        try (PayFastApiClient client = client(1, 1)) {
+            ApiResponse response = client.ping();
+
+            assertEquals(200, response.getStatusCode());
+            assertEquals("success", response.getStatus());
+            Map<String, String> request = received.get("GET /ping");
+            assertEquals("10000100", request.get("merchant-id"));
+            assertEquals("v1", request.get("version"));
+            assertEquals("2026-10-17T10:30:00+02:00", request.get("timestamp"));
+            assertEquals("true", request.get("testing"));
+        }
+    }
+
+    @Test
+    public void testUpdateSendsPatchWithAmountInCents() throws Exception {
+        try (PayFastApiClient client = client(1, 1)) {
+            ApiResponse response = client.updateSubscription("tok-1", 12, 3, LocalDate.of(2026, 11, 1), Money.ofRands(99));
+
+            assertEquals("/subscriptions/tok-1/update", response.getDataObject().get("path"));
+            Map<String, String> request = received.get("PATCH /subscriptions/tok-1/update");
+            assertEquals("12", request.get("cycles"));
+            assertEquals("3", request.get("frequency"));
+            assertEquals("2026-11-01", request.get("run_date"));
+            assertEquals("9900", request.get("amount"));
+        }
+    }
+
+    @Test
+    public void testErrorStatusThrowsHttpException() throws Exception {
+        try (PayFastApiClient client = client(1, 1)) {
+            client.fetchSubscription("missing");
+            fail("Expected HttpException");
+        } catch (HttpException e) {
+            assertEquals(404, e.getStatusCode());
+            assertTrue(e.getMessage().contains("Subscription not found"));
+        }
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        try (PayFastApiClient client = client(4, 1)) {
+            for (int i = 0; i < 20; i++) {
+                client.fetchSubscription("tok-" + i);
+            }
+            assertEquals(20, requests.get());
+            assertEquals(1, clients.size());
+            assertEquals(4, client.availableConnections());
+        }
+    }
+
+    @Test
+    public void testBatchOverManyTokensWithPipelining() throws Exception {
+        List<ApiRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            batch.add(ApiRequest.cancelSubscription(i == 57 ? "missing" : "tok-" + i));
+        }
+
+        try (PayFastApiClient client = client(4, 8)) {
+            BatchResult<ApiResponse> result = client.executeAll(batch);
+
+            assertEquals(200, result.size());
+            assertEquals(199, result.getSuccessCount());
+            assertEquals(57, result.getFailures().get(0).getIndex());
+            assertEquals(404, ((HttpException) result.getFailures().get(0).getException()).getStatusCode());
+            for (int i = 0; i < 200; i++) {
+                if (i != 57) {
+                    assertEquals("/subscriptions/tok-" + i + "/cancel",
+                        result.getResults().get(i).getDataObject().get("path"));
+                }
+            }
+            assertEquals(200, requests.get());
+            assertTrue("Used " + clients.size() + " connections", clients.size() <= 4);
+            assertEquals(4, client.availableConnections());
+        }
+    }
+
+    @Test
+    public void testChargesAreNotPipelined() throws Exception {
+        List<ApiRequest> batch = new ArrayList<>();
+        batch.add(ApiRequest.cancelSubscription("tok-1"));
+        batch.add(ApiRequest.cancelSubscription("tok-2"));
+        batch.add(ApiRequest.chargeAdhoc("tok-3", Money.ofRands(10), "Top up", null));
+        batch.add(ApiRequest.cancelSubscription("tok-4"));
+        batch.add(ApiRequest.cancelSubscription("tok-5"));
+        // Request line of each request read, and whether more bytes were already waiting behind it
+        List<String> arrivals = java.util.Collections.synchronizedList(new ArrayList<>());
+
+        try (ServerSocket stub = new ServerSocket(0, 50, java.net.InetAddress.getByName("127.0.0.1"))) {
+            Thread acceptor = new Thread(() -> {
+                try (Socket socket = stub.accept()) {
+                    InputStream in = socket.getInputStream();
+                    OutputStream out = socket.getOutputStream();
+                    String requestLine;
+                    while ((requestLine = readRequest(in)) != null) {
+                        arrivals.add(requestLine.substring(0, requestLine.indexOf(" HTTP/")) + (in.available() > 0 ? " +" : ""));
+                        byte[] body = "{\"code\":200,\"status\":\"success\",\"data\":{\"response\":true}}".getBytes(StandardCharsets.UTF_8);
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        out.write(body);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // Socket closed by the test
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            try (PayFastApiClient client = PayFastApiClient.builder(config)
+                    .baseUrl("http://127.0.0.1:" + stub.getLocalPort())
+                    .maxConnections(1)
+                    .pipelineDepth(8)
+                    .readTimeout(5, TimeUnit.SECONDS)
+                    .build()) {
+                assertTrue(client.executeAll(batch).isAllSuccessful());
+            }
+        }
+
+        assertEquals(java.util.Arrays.asList(
+            "PUT /subscriptions/tok-1/cancel?testing=true +",
+            "PUT /subscriptions/tok-2/cancel?testing=true",
+            "POST /subscriptions/tok-3/adhoc?testing=true",
+            "PUT /subscriptions/tok-4/cancel?testing=true +",
+            "PUT /subscriptions/tok-5/cancel?testing=true"), arrivals);
+    }
+
+    @Test
+    public void testDroppedConnectionIsRetriedExceptForCharges() throws Exception {
+        // Answers one request per connection, then closes it without saying so
+        try (ServerSocket oneShot = new ServerSocket(0, 50, java.net.InetAddress.getByName("127.0.0.1"))) {
+            AtomicInteger served = new AtomicInteger();
+            Thread acceptor = new Thread(() -> {
+                while (!oneShot.isClosed()) {
+                    try (Socket socket = oneShot.accept()) {
+                        readRequest(socket.getInputStream());
+                        served.incrementAndGet();
+                        byte[] body = "{\"code\":200,\"status\":\"success\",\"data\":{\"response\":true}}".getBytes(StandardCharsets.UTF_8);
+                        OutputStream out = socket.getOutputStream();
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        out.write(body);
+                        out.flush();
+                    } catch (IOException e) {
+                        // Socket closed by the test
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            try (PayFastApiClient client = PayFastApiClient.builder(config)
+                    .baseUrl("http://127.0.0.1:" + oneShot.getLocalPort())
+                    .maxConnections(1)
+                    .build()) {
+                client.ping();
+                client.fetchSubscription("tok-1");
+                assertEquals(2, served.get());
+
+                try {
+                    client.chargeAdhoc("tok-1", Money.ofRands(10), "Top up", null);
+                    fail("Expected HttpException");
+                } catch (HttpException e) {
+                    assertTrue(e.getMessage().contains("POST /subscriptions/tok-1/adhoc"));
+                }
+                Thread.sleep(100);
+                assertEquals(2, served.get());
+                assertEquals(1, client.availableConnections());
+            }
+        }
+    }
+
+    @Test
+    public void testMalformedContentLengthDropsConnection() throws Exception {
+        String[] contentLengths = {"abc", "-5", "20"};
+        try (ServerSocket stub = new ServerSocket(0, 50, java.net.InetAddress.getByName("127.0.0.1"))) {
+            AtomicInteger connections = new AtomicInteger();
+            Thread acceptor = new Thread(() -> {
+                while (!stub.isClosed()) {
+                    try (Socket socket = stub.accept()) {
+                        int connection = connections.getAndIncrement();
+                        readRequest(socket.getInputStream());
+                        byte[] body = "{\"code\":200,\"status\":\"success\",\"data\":{\"response\":true}}".getBytes(StandardCharsets.UTF_8);
+                        String length = contentLengths[connection].equals("20") ? String.valueOf(body.length)
+                            : contentLengths[connection];
+                        OutputStream out = socket.getOutputStream();
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                        out.write(body);
+                        out.flush();
+                        // Keep the connection open, so only the client can decide not to reuse it
+                        readRequest(socket.getInputStream());
+                    } catch (IOException | RuntimeException e) {
+                        // Socket closed by the test
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            try (PayFastApiClient client = PayFastApiClient.builder(config)
+                    .baseUrl("http://127.0.0.1:" + stub.getLocalPort())
+                    .maxConnections(1)
+                    .readTimeout(5, TimeUnit.SECONDS)
+                    .build()) {
+                for (int i = 0; i < 2; i++) {
+                    try {
+                        client.ping();
+                        fail("Expected HttpException");
+                    } catch (HttpException e) {
+                        assertTrue(e.getMessage(), e.getMessage().contains("Malformed Content-Length"));
+                    }
+                }
+                assertEquals("success", client.ping().getStatus());
+                assertEquals(3, connections.get());
+                assertEquals(1, client.availableConnections());
+            }
+        }
+    }
+
+    @Test
+    public void testCertificateForAnotherHostIsRefused() throws Exception {
+        // other-host.p12 holds a self-signed certificate for api.example.invalid only:
+        // keytool -genkeypair -alias server -keyalg RSA -dname CN=api.example.invalid
+        //   -ext SAN=dns:api.example.invalid -storetype PKCS12 -storepass changeit
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = getClass().getResourceAsStream("/tls/other-host.p12")) {
+            keyStore.load(in, "changeit".toCharArray());
+        }
+        KeyManagerFactory keys = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keys.init(keyStore, "changeit".toCharArray());
+        TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trust.init(keyStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keys.getKeyManagers(), trust.getTrustManagers(), null);
+
+        try (SSLServerSocket tlsServer = (SSLServerSocket) context.getServerSocketFactory()
+                .createServerSocket(0, 50, java.net.InetAddress.getByName("127.0.0.1"))) {
+            Thread acceptor = new Thread(() -> {
+                try (Socket socket = tlsServer.accept()) {
+                    ((SSLSocket) socket).startHandshake();
+                } catch (IOException e) {
+                    // Refused by the client
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            // The certificate is trusted, so only the host name check can refuse it
+            try {
+                ApiConnection.open("localhost", tlsServer.getLocalPort(), context.getSocketFactory(), 5000, 5000, 1024)
+                    .close();
+                fail("Expected SSLHandshakeException");
+            } catch (SSLHandshakeException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("localhost"));
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidSignatureIsRejectedByStub() throws Exception {
+        PayFastConfig wrongPassphrase = new PayFastConfig("10000100", "46f0cd694581a", "wrong", true);
+        try (PayFastApiClient client = PayFastApiClient.builder(wrongPassphrase)
+                .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+                .build()) {
+            client.ping();
+            fail("Expected HttpException");
+        } catch (HttpException e) {
+            assertEquals(401, e.getStatusCode());
+        }
+        assertFalse(received.containsKey("GET /ping"));
+    }
+
+    private PayFastApiClient client(int maxConnections, int pipelineDepth) throws Exception {
+        return PayFastApiClient.builder(config)
+            .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+            .maxConnections(maxConnections)
+            .pipelineDepth(pipelineDepth)
+            .clock(CLOCK)
+            .readTimeout(5, TimeUnit.SECONDS)
+            .build();
+    }
+
+    /**
+     * Stub API: checks the signature independently of the SDK and echoes the path
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        clients.add(exchange.getRemoteAddress());
+        Map<String, String> params = new TreeMap<>();
+        params.putAll(parseForm(readAll(exchange.getRequestBody())));
+        for (String header : new String[] {"merchant-id", "version", "timestamp"}) {
+            params.put(header, exchange.getRequestHeaders().getFirst(header));
+        }
+        String path = exchange.getRequestURI().getRawPath();
+
+        int status;
+        String body;
+        if (!signature(params, "jt7NOE43FZPn").equals(exchange.getRequestHeaders().getFirst("signature"))) {
+            status = 401;
+            body = "{\"code\":401,\"status\":\"failed\",\"data\":{\"response\":\"Merchant authorization failed.\"}}";
+        } else if (path.contains("/missing/")) {
+            status = 404;
+            body = "{\"code\":404,\"status\":\"failed\",\"data\":{\"response\":\"Subscription not found\"}}";
+        } else {
+            params.putAll(parseForm(exchange.getRequestURI().getRawQuery()));
+            received.put(exchange.getRequestMethod() + " " + path, params);
+            status = 200;
+            body = "{\"code\":200,\"status\":\"success\",\"data\":{\"response\":{\"path\":\"" + path + "\"}}}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String signature(Map<String, String> sorted, String passphrase) throws IOException {
+        Map<String, String> params = new TreeMap<>(sorted);
+        params.put("passphrase", passphrase);
+        StringBuilder data = new StringBuilder();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            if (param.getValue() == null || param.getValue().trim().isEmpty()) {
+                continue;
+            }
+            if (data.length() > 0) {
+                data.append('&');
+            }
+            data.append(param.getKey()).append('=').append(URLEncoder.encode(param.getValue().trim(), "UTF-8"));
+        }
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("MD5").digest(data.toString().getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static Map<String, String> parseForm(String form) throws IOException {
+        Map<String, String> params = new TreeMap<>();
+        if (form == null || form.isEmpty()) {
+            return params;
+        }
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+        }
+        return params;
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, n);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read one request's headers and body off a raw socket
+     * @return the request line, or null at the end of the stream
+     */
+    private static String readRequest(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1) {
+            head.append((char) b);
+            if (head.length() >= 4 && head.substring(head.length() - 4).equals("\r\n\r\n")) {
+                break;
+            }
+        }
+        int contentLength = 0;
+        for (String line : head.toString().split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        for (int i = 0; i < contentLength; i++) {
+            in.read();
+        }
+        return head.length() == 0 ? null : head.substring(0, head.indexOf("\r\n"));
+    }
+}
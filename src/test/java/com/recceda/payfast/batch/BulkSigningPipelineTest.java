@@ -0,0 +1,152 @@
+package com.recceda.payfast.batch;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.model.PayFastFormData;
+
+public class BulkSigningPipelineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PayFastService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true));
+    }
+
+    @Test
+    public void testCsvToRedirectUrlsInInputOrder() throws Exception {
+        StringBuilder csv = new StringBuilder("m_payment_id,amount,item_name,item_description\n");
+        for (int i = 0; i < 250; i++) {
+            csv.append("INV-").append(i).append(",").append(10 + i).append(".50,Invoice ").append(i)
+                .append(",\"Line, with \"\"quotes\"\"\"\n");
+        }
+        Path input = write("input.csv", csv.toString());
+        Path output = folder.getRoot().toPath().resolve("output.txt");
+        List<BulkSigningStats> progress = new ArrayList<>();
+
+        BulkSigningStats stats = BulkSigningPipeline.builder(service)
+            .workers(3).chunkSize(16).maxChunksInFlight(2)
+            .outputFormat(OutputFormat.REDIRECT_URL)
+            .progressListener(progress::add)
+            .build()
+            .run(input, InputFormat.CSV, output);
+
+        assertEquals(250, stats.getRowsRead());
+        assertEquals(250, stats.getRowsSigned());
+        assertEquals(0, stats.getRowsFailed());
+        assertEquals(16, progress.size());
+        assertEquals(Files.size(output), stats.getBytesWritten());
+
+        List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(250, lines.size());
+        PayFastFormData expected = service.createPaymentFormData(
+            PaymentRequestMapper.PAYFAST_FIELDS.map(row("m_payment_id", "INV-7", "amount", "17.50",
+                "item_name", "Invoice 7", "item_description", "Line, with \"quotes\"")));
+        assertTrue(lines.get(7).startsWith("https://sandbox.payfast.co.za/eng/process?merchant_id=10000100&"));
+        assertTrue(lines.get(7).contains("item_description=Line%2C+with+%22quotes%22&"));
+        assertTrue(lines.get(7).endsWith("&signature=" + expected.getFields().get("signature")));
+    }
+
+    @Test
+    public void testJsonLinesWithFailures() throws Exception {
+        Path input = write("input.jsonl",
+            "{\"m_payment_id\":\"A\",\"amount\":100.00,\"item_name\":\"Caf\\u00e9\"}\n"
+            + "\n"
+            + "{\"m_payment_id\":\"B\",\"amount\":\"abc\",\"item_name\":\"Broken\"}\n"
+            + "{\"m_payment_id\":\"C\",\"amount\":0,\"item_name\":\"Free\"}\n"
+            + "{\"m_payment_id\":\"D\",\"amount\":5,\"item_name\":\"Ok\",\"custom\":null}\n");
+        Path output = folder.getRoot().toPath().resolve("output.jsonl");
+
+        BulkSigningStats stats = BulkSigningPipeline.builder(service).workers(2).chunkSize(2).build()
+            .run(input, InputFormat.JSON_LINES, output);
+
+        assertEquals(4, stats.getRowsRead());
+        assertEquals(2, stats.getRowsSigned());
+        assertEquals(2, stats.getRowsFailed());
+        assertEquals("Line 3: Invalid amount: abc", stats.getFailureSamples().get(0));
+        assertEquals("Line 4: Payment amount must be greater than zero", stats.getFailureSamples().get(1));
+
+        List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"action\":\"https://sandbox.payfast.co.za/eng/process\",\"fields\":{\"merchant_id\":\"10000100\""));
+        assertTrue(lines.get(0).contains("\"item_name\":\"Café\""));
+        assertTrue(lines.get(1).contains("\"m_payment_id\":\"D\""));
+    }
+
+    @Test
+    public void testMalformedRowsAreCountedAndSkipped() throws Exception {
+        Path json = write("input.jsonl",
+            "{\"m_payment_id\":\"A\",\"amount\":1,\"item_name\":\"Ok\"}\n"
+            + "{\"m_payment_id\":\"B\",\"amount\":1 \"item_name\":\"Broken\"}\n"
+            + "not json\n"
+            + "{\"m_payment_id\":\"C\",\"amount\":2,\"item_name\":\"Ok\"}\n");
+        Path csv = write("input.csv", "m_payment_id,amount,item_name\nA,1,Ok\nB,1,Too,many\nC,2,Ok\n");
+        Path output = folder.getRoot().toPath().resolve("output.txt");
+        BulkSigningPipeline pipeline = BulkSigningPipeline.builder(service).workers(2).chunkSize(2).build();
+
+        BulkSigningStats stats = pipeline.run(json, InputFormat.JSON_LINES, output);
+
+        assertEquals(4, stats.getRowsRead());
+        assertEquals(2, stats.getRowsSigned());
+        assertEquals(2, stats.getRowsFailed());
+        assertTrue(stats.getFailureSamples().get(0).startsWith("Line 2: "));
+        assertTrue(stats.getFailureSamples().get(1).startsWith("Line 3: "));
+        assertEquals(2, Files.readAllLines(output, StandardCharsets.UTF_8).size());
+
+        stats = pipeline.run(csv, InputFormat.CSV, output);
+
+        assertEquals(3, stats.getRowsRead());
+        assertEquals(2, stats.getRowsSigned());
+        assertEquals("Line 3: expected 3 columns but found 4", stats.getFailureSamples().get(0));
+    }
+
+    @Test
+    public void testCsvReaderHandlesQuotedLineBreaksAndCrLf() throws Exception {
+        CsvRowReader reader = new CsvRowReader(new StringReader("a,b\r\n1,\"x\r\ny\"\r\n\r\n2,\r\n"));
+
+        assertEquals(row("a", "1", "b", "x\r\ny"), reader.next());
+        assertEquals(2, reader.lineNumber());
+        assertEquals(row("a", "2", "b", ""), reader.next());
+        assertEquals(5, reader.lineNumber());
+        assertNull(reader.next());
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void testJsonLinesRejectsNestedValues() throws Exception {
+        new JsonLinesRowReader(new BufferedReader(new StringReader("{\"a\":{\"b\":1}}"))).next();
+    }
+
+    private Path write(String name, String content) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static Map<String, String> row(String... keyValues) {
+        Map<String, String> row = new java.util.LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            row.put(keyValues[i], keyValues[i + 1]);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,105 @@
+package com.recceda.payfast.handler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.util.SignatureEngine;
+
+public class ITNBodyTest {
+
+    private static final String PASSPHRASE = "jt7NOE43FZPn";
+    private static final String FIELDS = "m_payment_id=01AB&pf_payment_id=1089250&payment_status=COMPLETE"
+        + "&item_name=Caf%C3%A9+Cr%C3%A8me&amount_gross=200.00&amount_fee=-4.60&amount_net=195.40"
+        + "&name_first=John&name_last=&email_address=john%40example.com&merchant_id=10000100";
+
+    private ITNHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new ITNHandler(new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true));
+    }
+
+    @Test
+    public void testFieldsAreDecodedOnRead() {
+        ITNBody body = ITNBody.parse(bytes(FIELDS));
+
+        assertEquals(11, body.size());
+        assertEquals("m_payment_id", body.name(0));
+        assertEquals("Café Crème", body.get("item_name"));
+        assertEquals("john@example.com", body.get("email_address"));
+        assertEquals("", body.get("name_last"));
+        assertNull(body.get("signature"));
+    }
+
+    @Test
+    public void testMatchesStringParser() throws Exception {
+        Map<String, String> expected = handler.parseNotificationString(FIELDS);
+
+        assertEquals(expected, ITNBody.parse(bytes(FIELDS)).toMap());
+    }
+
+    @Test
+    public void testParsesByteBufferSlices() {
+        byte[] padded = bytes("xxxx" + FIELDS + "yyyy");
+        ByteBuffer heap = ByteBuffer.wrap(padded, 4, FIELDS.length());
+        ByteBuffer direct = ByteBuffer.allocateDirect(FIELDS.length());
+        direct.put(bytes(FIELDS)).flip();
+
+        assertEquals("10000100", ITNBody.parse(heap).get("merchant_id"));
+        assertEquals("10000100", ITNBody.parse(direct).get("merchant_id"));
+        assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void testFieldsWithoutValuesAndEmptyPairs() {
+        ITNBody body = ITNBody.parse(bytes("a=1&&flag&b=x%3Dy"));
+
+        assertEquals(3, body.size());
+        assertEquals("", body.get("flag"));
+        assertEquals("x=y", body.get("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedEscapeFailsOnRead() {
+        ITNBody body = ITNBody.parse(bytes("a=1&b=%G1"));
+
+        assertEquals("1", body.get("a"));
+        body.get("b");
+    }
+
+    @Test
+    public void testValidateSignatureHashesPostedBytes() throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        for (String field : FIELDS.split("&")) {
+            byte[] pair = bytes(field);
+            engine.addEncodedParam(pair, 0, pair.length);
+        }
+        String signature = engine.addPassphrase(PASSPHRASE).sign();
+
+        ITNBody body = ITNBody.parse(bytes(FIELDS + "&signature=" + signature));
+        assertTrue(body.validateSignature(PASSPHRASE));
+        assertTrue(handler.validateITN(body));
+        assertFalse(body.validateSignature("wrong"));
+
+        ITNBody tampered = ITNBody.parse(bytes(FIELDS.replace("200.00", "2.00") + "&signature=" + signature));
+        assertFalse(handler.validateITN(tampered));
+    }
+
+    @Test
+    public void testValidateWithoutSignature() throws Exception {
+        assertFalse(handler.validateITN(handler.parseNotificationBody(bytes(FIELDS))));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
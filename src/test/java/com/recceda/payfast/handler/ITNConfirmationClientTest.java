@@ -0,0 +1,196 @@
+package com.recceda.payfast.handler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.PayFastAsyncService;
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.HttpException;
+import com.recceda.payfast.exception.PayFastException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class ITNConfirmationClientTest {
+
+    private static final String FIELDS = "m_payment_id=01AB&pf_payment_id=1089250&item_name=Caf%C3%A9+Cr%C3%A8me";
+    private static final String BODY = FIELDS + "&signature=abc123";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private PayFastConfig config;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+    private volatile int status = 200;
+    private volatile String response = "VALID";
+    private volatile CountDownLatch release;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true);
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/eng/query/validate", this::handle);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testConfirmPostsFieldsWithoutSignature() throws Exception {
+        ITNConfirmationClient client = client().build();
+
+        assertTrue(client.confirm(BODY));
+        assertEquals("POST application/x-www-form-urlencoded " + FIELDS, requests.get(0));
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        ITNConfirmationClient client = client().build();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(client.confirm(BODY));
+        }
+
+        Set<Integer> ports = clientPorts.stream().collect(Collectors.toSet());
+        assertEquals(3, clientPorts.size());
+        assertEquals(1, ports.size());
+    }
+
+    @Test
+    public void testInvalidResponse() throws Exception {
+        response = "INVALID";
+
+        assertFalse(client().build().confirm(BODY.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testErrorStatus() throws Exception {
+        status = 503;
+        response = "Service Unavailable";
+
+        try {
+            client().build().confirm(BODY);
+            fail("Expected HttpException");
+        } catch (HttpException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testReadTimeout() throws Exception {
+        release = new CountDownLatch(1);
+        ITNConfirmationClient client = client().readTimeout(200, TimeUnit.MILLISECONDS).build();
+
+        try {
+            client.confirm(BODY);
+            fail("Expected HttpException");
+        } catch (HttpException e) {
+            assertEquals(-1, e.getStatusCode());
+        } finally {
+            release.countDown();
+        }
+        assertEquals(20, client.availablePermits());
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        release = new CountDownLatch(1);
+        ITNConfirmationClient client = client().maxConcurrentRequests(1)
+            .acquireTimeout(100, TimeUnit.MILLISECONDS).build();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> first = caller.submit(() -> client.confirm(BODY));
+            while (client.availablePermits() > 0) {
+                Thread.sleep(5);
+            }
+            try {
+                client.confirm(BODY);
+                fail("Expected PayFastException");
+            } catch (HttpException e) {
+                fail("Second confirmation should not reach the server");
+            } catch (PayFastException e) {
+                assertTrue(e.getMessage().startsWith("Too many ITN confirmations in flight"));
+            }
+            release.countDown();
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertEquals(1, client.availablePermits());
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAsyncConfirmation() throws Exception {
+        PayFastService service = new PayFastService(config);
+        service.setITNConfirmationClient(client().build());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PayFastAsyncService async = new PayFastAsyncService(service, executor);
+            assertTrue(async.confirmITN(BODY.getBytes(StandardCharsets.US_ASCII)).get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ITNConfirmationClient.Builder client() {
+        return ITNConfirmationClient.builder(config)
+            .baseUrl("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        requests.add(exchange.getRequestMethod() + " " + exchange.getRequestHeaders().getFirst("Content-Type")
+            + " " + read(exchange.getRequestBody()));
+        CountDownLatch latch = release;
+        if (latch != null) {
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        byte[] bytes = response.getBytes(StandardCharsets.US_ASCII);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[256];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
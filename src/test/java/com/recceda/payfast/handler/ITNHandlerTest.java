@@ -0,0 +1,135 @@
+package com.recceda.payfast.handler;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.model.Money;
+import com.recceda.payfast.model.NotificationData;
+import com.recceda.payfast.util.SignatureEngine;
+
+public class ITNHandlerTest {
+
+    private static final String PASSPHRASE = "jt7NOE43FZPn";
+    private static final String FIELDS = "m_payment_id=01AB&pf_payment_id=1089250&payment_status=COMPLETE"
+        + "&item_name=Caf%C3%A9+Cr%C3%A8me&item_description=&amount_gross=200.00&amount_fee=-4.60"
+        + "&amount_net=195.40&custom_str1=promo&name_first=John&name_last=Doe"
+        + "&email_address=john%40example.com&merchant_id=10000100";
+
+    private ITNHandler handler;
+    private String signedBody;
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new ITNHandler(new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true));
+        signedBody = FIELDS + "&signature=" + signatureOf(FIELDS, PASSPHRASE);
+    }
+
+    @Test
+    public void testValidateAndParseValidNotification() throws Exception {
+        ITNResult result = handler.validateAndParse(bytes(signedBody));
+
+        assertTrue(result.isValid());
+        NotificationData data = result.getNotification();
+        assertEquals("01AB", data.getMPaymentId());
+        assertEquals("1089250", data.getPfPaymentId());
+        assertEquals("COMPLETE", data.getPaymentStatus());
+        assertEquals("Café Crème", data.getItemName());
+        assertEquals("", data.getItemDescription());
+        assertEquals(new BigDecimal("200.00"), data.getAmountGross());
+        assertEquals(new BigDecimal("-4.60"), data.getAmountFee());
+        assertEquals(Money.ofCents(-460), data.getAmountFeeMoney());
+        assertEquals(new BigDecimal("195.40"), data.getAmountNet());
+        assertEquals("John", data.getNameFirst());
+        assertEquals("Doe", data.getNameLast());
+        assertEquals("john@example.com", data.getEmailAddress());
+        assertEquals("10000100", data.getMerchantId());
+        assertEquals(signatureOf(FIELDS, PASSPHRASE), data.getSignature());
+        assertEquals("promo", result.getFields().get("custom_str1"));
+    }
+
+    @Test
+    public void testValidateAndParseAgreesWithMapPipeline() throws Exception {
+        Map<String, String> params = handler.parseNotificationString(signedBody);
+        NotificationData expected = handler.parseNotification(params);
+        ITNResult result = handler.validateAndParse(signedBody);
+        NotificationData actual = result.getNotification();
+
+        assertEquals(handler.validateITN(params), result.isValid());
+        assertTrue(result.isValid());
+        assertEquals(expected.getMPaymentId(), actual.getMPaymentId());
+        assertEquals(expected.getItemName(), actual.getItemName());
+        assertEquals(expected.getAmountNet(), actual.getAmountNet());
+        assertEquals(expected.getEmailAddress(), actual.getEmailAddress());
+        assertEquals(expected.getSignature(), actual.getSignature());
+    }
+
+    @Test
+    public void testEveryEntryPointGivesTheSameVerdict() throws Exception {
+        String padded = FIELDS + "&custom_str2=+padded+&custom_str3=a%7Eb";
+        String[] bodies = {
+            signedBody,
+            padded + "&signature=" + signatureOf(padded, PASSPHRASE),
+            signedBody.replace("200.00", "20.00"),
+            FIELDS + "&signature=" + signatureOf(FIELDS, "other"),
+            FIELDS + "&custom_str4&signature=" + signatureOf(FIELDS + "&custom_str4=", PASSPHRASE),
+            FIELDS + "&custom_str4&signature=" + signatureOf(FIELDS + "&custom_str4", PASSPHRASE),
+        };
+        boolean[] expected = {true, true, false, false, true, false};
+
+        for (int i = 0; i < bodies.length; i++) {
+            assertEquals(bodies[i], expected[i], handler.validateAndParse(bodies[i]).isValid());
+            assertEquals(bodies[i], expected[i], handler.validateITN(handler.parseNotificationBody(bytes(bodies[i]))));
+            assertEquals(bodies[i], expected[i], handler.validateITN(handler.parseNotificationString(bodies[i])));
+        }
+    }
+
+    @Test
+    public void testValidateAndParseTamperedNotification() throws Exception {
+        ITNResult result = handler.validateAndParse(ByteBuffer.wrap(bytes(signedBody.replace("200.00", "20.00"))));
+
+        assertFalse(result.isValid());
+        assertEquals(new BigDecimal("20.00"), result.getNotification().getAmountGross());
+    }
+
+    @Test
+    public void testValidateAndParseWithoutSignature() throws Exception {
+        ITNResult result = handler.validateAndParse(FIELDS);
+
+        assertFalse(result.isValid());
+        assertNull(result.getNotification().getSignature());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testValidateAndParseInvalidAmount() throws Exception {
+        handler.validateAndParse(signedBody.replace("200.00", "abc"));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testValidateAndParseEmptyBody() throws Exception {
+        handler.validateAndParse(new byte[0]);
+    }
+
+    private static String signatureOf(String fields, String passphrase) throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        for (String field : fields.split("&")) {
+            byte[] pair = bytes(field);
+            engine.addEncodedParam(pair, 0, pair.length);
+        }
+        return engine.addPassphrase(passphrase).sign();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,131 @@
+package com.recceda.payfast.handler;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+import com.recceda.payfast.exception.ConfigurationException;
+
+public class PayFastSourceValidatorTest {
+
+    private final Map<String, String[]> dns = new ConcurrentHashMap<>();
+
+    private final PayFastSourceValidator.Resolver resolver = host -> {
+        String[] literals = dns.get(host);
+        if (literals == null) {
+            throw new UnknownHostException(host);
+        }
+        InetAddress[] addresses = new InetAddress[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+            addresses[i] = InetAddress.getByName(literals[i]);
+        }
+        return addresses;
+    };
+
+    @Test
+    public void testPublishedRanges() throws Exception {
+        PayFastSourceValidator validator = PayFastSourceValidator.builder()
+            .hosts(Collections.<String>emptyList()).build();
+
+        assertTrue(validator.isAllowed("197.97.145.144"));
+        assertTrue(validator.isAllowed("197.97.145.159"));
+        assertFalse(validator.isAllowed("197.97.145.160"));
+        assertTrue(validator.isAllowed("41.74.179.223"));
+        assertTrue(validator.isAllowed("144.126.193.139"));
+        assertFalse(validator.isAllowed("144.126.193.138"));
+        assertTrue(validator.isAllowed("::ffff:102.216.36.130"));
+        assertFalse(validator.isAllowed("8.8.8.8"));
+    }
+
+    @Test
+    public void testResolvedHostsAndRefresh() throws Exception {
+        dns.put("www.payfast.co.za", new String[] {"203.0.113.10", "2001:db8::10"});
+        dns.put("sandbox.payfast.co.za", new String[] {"203.0.113.20"});
+        PayFastSourceValidator validator = PayFastSourceValidator.builder()
+            .hosts(Arrays.asList("www.payfast.co.za", "sandbox.payfast.co.za"))
+            .clearRanges()
+            .resolver(resolver)
+            .refreshInterval(0, TimeUnit.SECONDS)
+            .build();
+
+        assertTrue(validator.isAllowed("203.0.113.10"));
+        assertTrue(validator.isAllowed("2001:db8:0:0:0:0:0:10"));
+        assertTrue(validator.isAllowed(InetAddress.getByName("203.0.113.20")));
+        assertFalse(validator.isAllowed("203.0.113.11"));
+
+        // The sandbox host moves and the live host stops resolving
+        dns.put("sandbox.payfast.co.za", new String[] {"203.0.113.21"});
+        dns.remove("www.payfast.co.za");
+        validator.refresh();
+
+        assertTrue(validator.isAllowed("203.0.113.21"));
+        assertFalse(validator.isAllowed("203.0.113.20"));
+        assertTrue("Last known addresses are kept", validator.isAllowed("203.0.113.10"));
+    }
+
+    @Test
+    public void testScheduledRefresh() throws Exception {
+        dns.put("www.payfast.co.za", new String[] {"203.0.113.10"});
+        try (PayFastSourceValidator validator = PayFastSourceValidator.builder()
+                .hosts(Collections.singletonList("www.payfast.co.za"))
+                .resolver(resolver)
+                .refreshInterval(20, TimeUnit.MILLISECONDS)
+                .build()) {
+            dns.put("www.payfast.co.za", new String[] {"203.0.113.99"});
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!validator.isAllowed("203.0.113.99") && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(validator.isAllowed("203.0.113.99"));
+        }
+    }
+
+    @Test
+    public void testNonLiteralsAreRejectedWithoutLookup() throws Exception {
+        PayFastSourceValidator validator = PayFastSourceValidator.builder()
+            .hosts(Collections.<String>emptyList()).allowRange("0.0.0.0/0").build();
+
+        assertTrue(validator.isAllowed("10.1.2.3"));
+        assertFalse(validator.isAllowed("localhost"));
+        assertFalse(validator.isAllowed("www.payfast.co.za:443"));
+        assertFalse(validator.isAllowed("10.1.2"));
+        assertFalse(validator.isAllowed("10.1.2.256"));
+        assertFalse(validator.isAllowed("010.1.2.3"));
+        assertFalse(validator.isAllowed((String) null));
+    }
+
+    @Test
+    public void testParseIpv4() {
+        assertEquals(0xC0A80001L, PayFastSourceValidator.parseIpv4("192.168.0.1"));
+        assertEquals(0xFFFFFFFFL, PayFastSourceValidator.parseIpv4("255.255.255.255"));
+        assertEquals(0L, PayFastSourceValidator.parseIpv4("0.0.0.0"));
+        assertEquals(-1L, PayFastSourceValidator.parseIpv4("1.2.3.4."));
+        assertEquals(-1L, PayFastSourceValidator.parseIpv4("1..2.3"));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testInvalidRange() throws Exception {
+        PayFastSourceValidator.builder().hosts(Collections.<String>emptyList()).allowRange("10.0.0.0/33").build();
+    }
+
+    @Test
+    public void testTrieCollapsesCoveredPrefixes() throws Exception {
+        AddressTrie trie = new AddressTrie.Builder(32)
+            .add(new byte[] {10, 0, 0, 0}, 8)
+            .add(new byte[] {10, 1, 2, 3}, 32)
+            .build();
+
+        assertEquals(9, trie.nodeCount());
+        assertTrue(trie.contains(new byte[] {10, (byte) 200, 0, 1}));
+        assertFalse(trie.contains(new byte[] {11, 0, 0, 0}));
+    }
+}
@@ -0,0 +1,177 @@
+package com.recceda.payfast.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ITNStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    public void testInMemoryExpiry() {
+        InMemoryITNStore store = new InMemoryITNStore(10, now::get);
+
+        assertTrue(store.putIfAbsent("a", now.get() + 100));
+        assertFalse(store.putIfAbsent("a", now.get() + 100));
+        assertTrue(store.contains("a"));
+
+        now.addAndGet(100);
+        assertFalse(store.contains("a"));
+        assertTrue(store.putIfAbsent("a", now.get() + 100));
+    }
+
+    @Test
+    public void testInMemoryEvictsOldestWhenFull() {
+        InMemoryITNStore store = new InMemoryITNStore(3, now::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(store.putIfAbsent("key" + i, now.get() + 1000));
+        }
+
+        assertEquals(3, store.size());
+        assertFalse(store.contains("key0"));
+        assertFalse(store.contains("key1"));
+        assertTrue(store.contains("key4"));
+    }
+
+    @Test
+    public void testInMemoryEvictionSkipsKeyPutAgain() {
+        InMemoryITNStore store = new InMemoryITNStore(2, now::get);
+        store.putIfAbsent("a", now.get() + 1000);
+        store.remove("a");
+        store.putIfAbsent("b", now.get() + 1000);
+        store.putIfAbsent("a", now.get() + 1000);
+
+        store.putIfAbsent("c", now.get() + 1000);
+
+        // The first queue slot for "a" belongs to the removed put, so "b" is the oldest
+        assertTrue(store.contains("a"));
+        assertFalse(store.contains("b"));
+        assertTrue(store.contains("c"));
+    }
+
+    @Test
+    public void testInMemoryEvictsExpiredEntries() {
+        InMemoryITNStore store = new InMemoryITNStore(100, now::get);
+        for (int i = 0; i < 50; i++) {
+            store.putIfAbsent("old" + i, now.get() + 10);
+        }
+        now.addAndGet(10);
+
+        store.putIfAbsent("new", now.get() + 10);
+
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testInMemoryConcurrentPutHasSingleWinner() throws Exception {
+        InMemoryITNStore store = new InMemoryITNStore(1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 50; round++) {
+                String key = "key" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger winners = new AtomicInteger();
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        if (store.putIfAbsent(key, System.currentTimeMillis() + 60_000)) {
+                            winners.incrementAndGet();
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(5, TimeUnit.SECONDS);
+                }
+                assertEquals(1, winners.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFileStoreSurvivesRestart() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("itn.log");
+
+        try (FileITNStore store = new FileITNStore(file, true, now::get)) {
+            assertTrue(store.putIfAbsent("1089250|COMPLETE", now.get() + 1000));
+            assertTrue(store.putIfAbsent("1089251|COMPLETE", now.get() + 1000));
+            assertTrue(store.putIfAbsent("expiring", now.get() + 10));
+            store.remove("1089251|COMPLETE");
+        }
+
+        now.addAndGet(10);
+        try (FileITNStore store = new FileITNStore(file, true, now::get)) {
+            assertTrue(store.contains("1089250|COMPLETE"));
+            assertFalse(store.putIfAbsent("1089250|COMPLETE", now.get() + 1000));
+            assertFalse(store.contains("1089251|COMPLETE"));
+            assertFalse(store.contains("expiring"));
+        }
+        // Reopening compacts the log down to the live entry
+        assertEquals(1, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+
+    @Test
+    public void testFileStoreRemovesKeyContainingTab() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("itn.log");
+
+        try (FileITNStore store = new FileITNStore(file, false, now::get)) {
+            assertTrue(store.putIfAbsent("pf\tCOMPLETE", now.get() + 1000));
+            store.remove("pf\tCOMPLETE");
+        }
+        try (FileITNStore store = new FileITNStore(file, false, now::get)) {
+            assertFalse(store.contains("pf\tCOMPLETE"));
+        }
+    }
+
+    @Test
+    public void testFileStoreSkipsTornLine() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("itn.log");
+        Files.write(file, ("P\t" + (now.get() + 1000) + "\tkept\nP\t12").getBytes(StandardCharsets.UTF_8));
+
+        try (FileITNStore store = new FileITNStore(file, false, now::get)) {
+            assertTrue(store.contains("kept"));
+            assertTrue(store.putIfAbsent("next", now.get() + 1000));
+        }
+        try (FileITNStore store = new FileITNStore(file, false, now::get)) {
+            assertTrue(store.contains("next"));
+        }
+    }
+
+    @Test
+    public void testFileStoreCompactsWhileRunning() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("itn.log");
+
+        try (FileITNStore store = new FileITNStore(file, false, now::get)) {
+            for (int i = 0; i < 3000; i++) {
+                store.putIfAbsent("key" + i, now.get() + 1000);
+                store.remove("key" + i);
+            }
+            assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).size() <= 1025);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.recceda.payfast.idempotency;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.util.SignatureEngine;
+
+public class IdempotentITNHandlerTest {
+
+    private static final String PASSPHRASE = "jt7NOE43FZPn";
+    private static final String FIELDS = "m_payment_id=01AB&pf_payment_id=1089250&payment_status=COMPLETE"
+        + "&item_name=Test+Item&amount_gross=200.00&merchant_id=10000100";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ITNHandler handler;
+    private String signedBody;
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new ITNHandler(new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true));
+        signedBody = signed(FIELDS);
+    }
+
+    @Test
+    public void testDuplicateIsShortCircuited() throws Exception {
+        IdempotentITNHandler idempotent = IdempotentITNHandler.builder(handler).build();
+
+        ITNOutcome first = idempotent.process(signedBody);
+        ITNOutcome second = idempotent.process(signedBody);
+
+        assertEquals(ITNOutcome.Status.NEW, first.getStatus());
+        assertEquals("1089250|COMPLETE", first.getKey());
+        assertEquals("01AB", first.getResult().getNotification().getMPaymentId());
+        assertEquals(ITNOutcome.Status.DUPLICATE, second.getStatus());
+        assertNull(second.getResult());
+    }
+
+    @Test
+    public void testStatusChangeIsNotDuplicate() throws Exception {
+        IdempotentITNHandler idempotent = IdempotentITNHandler.builder(handler).build();
+
+        idempotent.process(signedBody);
+        ITNOutcome cancelled = idempotent.process(signed(FIELDS.replace("COMPLETE", "CANCELLED")));
+
+        assertEquals(ITNOutcome.Status.NEW, cancelled.getStatus());
+    }
+
+    @Test
+    public void testInvalidIsNotRecorded() throws Exception {
+        IdempotentITNHandler idempotent = IdempotentITNHandler.builder(handler).build();
+
+        ITNOutcome forged = idempotent.process(FIELDS + "&signature=00000000000000000000000000000000");
+        ITNOutcome genuine = idempotent.process(signedBody);
+
+        assertEquals(ITNOutcome.Status.INVALID, forged.getStatus());
+        assertEquals(ITNOutcome.Status.NEW, genuine.getStatus());
+    }
+
+    @Test
+    public void testReleaseAllowsRetry() throws Exception {
+        IdempotentITNHandler idempotent = IdempotentITNHandler.builder(handler).build();
+
+        ITNOutcome first = idempotent.process(signedBody);
+        idempotent.release(first);
+
+        assertTrue(idempotent.process(signedBody).isNew());
+    }
+
+    @Test
+    public void testExpiredEntryIsProcessedAgain() throws Exception {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        IdempotentITNHandler idempotent = IdempotentITNHandler.builder(handler)
+            .cache(new InMemoryITNStore(10, now::get))
+            .build();
+
+        idempotent.process(signedBody);
+        now.addAndGet(java.util.concurrent.TimeUnit.DAYS.toMillis(8));
+
+        assertTrue(idempotent.process(signedBody).isNew());
+    }
+
+    @Test
+    public void testPersistentStoreSurvivesRestart() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("itn.log");
+
+        try (FileITNStore store = new FileITNStore(file)) {
+            assertTrue(IdempotentITNHandler.builder(handler).store(store).build().process(signedBody).isNew());
+        }
+        try (FileITNStore store = new FileITNStore(file)) {
+            IdempotentITNHandler restarted = IdempotentITNHandler.builder(handler).store(store).build();
+            ITNOutcome outcome = restarted.process(signedBody);
+            assertTrue(outcome.isDuplicate());
+            assertTrue(outcome.getResult().isValid());
+            assertTrue(restarted.process(signedBody).isDuplicate());
+        }
+    }
+
+    @Test
+    public void testKeyRejectedByStoreIsNotCached() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("itn.log");
+        String body = signed(FIELDS.replace("pf_payment_id=1089250", "pf_payment_id=1089%0A250"));
+
+        try (FileITNStore store = new FileITNStore(file)) {
+            IdempotentITNHandler idempotent = IdempotentITNHandler.builder(handler).store(store).build();
+            for (int i = 0; i < 2; i++) {
+                try {
+                    idempotent.process(body);
+                    fail("Recorded a key with a line break");
+                } catch (ValidationException expected) {
+                    assertTrue(expected.getCause() instanceof IllegalArgumentException);
+                }
+            }
+        }
+    }
+
+    private static String signed(String fields) throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        for (String field : fields.split("&")) {
+            byte[] pair = field.getBytes(StandardCharsets.US_ASCII);
+            engine.addEncodedParam(pair, 0, pair.length);
+        }
+        return fields + "&signature=" + engine.addPassphrase(PASSPHRASE).sign();
+    }
+}
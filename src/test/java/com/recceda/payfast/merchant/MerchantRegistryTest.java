@@ -0,0 +1,159 @@
+package com.recceda.payfast.merchant;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ConfigurationException;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNResult;
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.util.SignatureEngine;
+
+public class MerchantRegistryTest {
+
+    private PayFastConfig first;
+    private PayFastConfig second;
+    private MerchantRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        first = new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true);
+        second = new PayFastConfig("10000200", "key2", "  other passphrase ", false);
+        registry = new MerchantRegistry(Arrays.asList(first, second));
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        assertEquals(2, registry.size());
+        assertSame(first, registry.get("10000100").getConfig());
+        assertEquals("https://www.payfast.co.za/eng/process",
+            registry.require("10000200").getSigningState().getActionUrl());
+        assertNull(registry.get("unknown"));
+        assertNull(registry.get(null));
+    }
+
+    @Test(expected = ConfigurationException.class)
+    public void testRequireUnknownMerchant() throws Exception {
+        registry.require("unknown");
+    }
+
+    @Test
+    public void testFormDataUsesMerchantCredentials() throws Exception {
+        PayFastFormData formData = registry.require("10000200").getService().createPaymentFormData(payment());
+
+        assertEquals("10000200", formData.getFields().get("merchant_id"));
+        assertEquals("key2", formData.getFields().get("merchant_key"));
+        assertEquals("https://www.payfast.co.za/eng/process", formData.getAction());
+    }
+
+    @Test
+    public void testRoutesITNByMerchantId() throws Exception {
+        String fields = "m_payment_id=01AB&pf_payment_id=1089250&payment_status=COMPLETE&merchant_id=10000200";
+
+        ITNResult result = registry.validateAndParse(signed(fields, "other passphrase"));
+        assertTrue(result.isValid());
+        assertEquals("10000200", result.getNotification().getMerchantId());
+
+        // Signed with the other merchant's passphrase
+        assertFalse(registry.validateAndParse(signed(fields, "jt7NOE43FZPn")).isValid());
+    }
+
+    @Test
+    public void testUnknownMerchantITN() throws Exception {
+        try {
+            registry.validateAndParse("pf_payment_id=1&merchant_id=999&signature=abc");
+            fail("Expected ValidationException");
+        } catch (ValidationException e) {
+            assertEquals("ITN for unknown merchant: 999", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testHotReload() throws Exception {
+        String fields = "pf_payment_id=1&merchant_id=10000100";
+        MerchantContext before = registry.get("10000100");
+
+        registry.register(new PayFastConfig("10000100", "46f0cd694581a", "rotated", true));
+
+        assertTrue(registry.validateAndParse(signed(fields, "rotated")).isValid());
+        assertFalse(registry.validateAndParse(signed(fields, "jt7NOE43FZPn")).isValid());
+        // Contexts handed out before the reload keep their credentials
+        assertTrue(before.getITNHandler().validateAndParse(signed(fields, "jt7NOE43FZPn")).isValid());
+
+        registry.replaceAll(Arrays.asList(second));
+        assertNull(registry.get("10000100"));
+        assertTrue(registry.remove("10000200"));
+        assertFalse(registry.remove("10000200"));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testReplaceAllRejectsDuplicatesAtomically() throws Exception {
+        try {
+            registry.replaceAll(Arrays.asList(first, first));
+            fail("Expected ConfigurationException");
+        } catch (ConfigurationException e) {
+            assertEquals(2, registry.size());
+        }
+    }
+
+    @Test
+    public void testReadersDuringReload() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            Future<Integer> reader = executor.submit(() -> {
+                int reads = 0;
+                while (running.get()) {
+                    assertNotNull(registry.get("10000100"));
+                    reads++;
+                }
+                return reads;
+            });
+            for (int i = 0; i < 200; i++) {
+                registry.register(new PayFastConfig("10000100", "46f0cd694581a", "pass" + i, true));
+                registry.register(new PayFastConfig("merchant" + i, "key", null, true));
+            }
+            running.set(false);
+            assertTrue(reader.get(5, TimeUnit.SECONDS) > 0);
+            assertEquals(202, registry.size());
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+    }
+
+    private static PaymentRequest payment() {
+        PaymentRequest request = new PaymentRequest();
+        request.setAmount(new BigDecimal("100.00"));
+        request.setItemName("Test Item");
+        return request;
+    }
+
+    private static String signed(String fields, String passphrase) throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        for (String field : fields.split("&")) {
+            byte[] pair = field.getBytes(StandardCharsets.US_ASCII);
+            engine.addEncodedParam(pair, 0, pair.length);
+        }
+        return fields + "&signature=" + engine.addPassphrase(passphrase).sign();
+    }
+}
@@ -0,0 +1,164 @@
+package com.recceda.payfast.metrics;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.idempotency.IdempotentITNHandler;
+import com.recceda.payfast.metrics.micrometer.MicrometerPayFastMetrics;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.util.SignatureEngine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class PayFastMetricsTest {
+
+    private static final String PASSPHRASE = "jt7NOE43FZPn";
+    private static final String FIELDS = "m_payment_id=01AB&pf_payment_id=1089250&payment_status=COMPLETE"
+        + "&item_name=Test+Item&amount_gross=200.00&merchant_id=10000100";
+
+    private RecordingMetrics metrics;
+    private PayFastService service;
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new RecordingMetrics();
+        service = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true), metrics);
+    }
+
+    @Test
+    public void testNoopIsDisabled() throws Exception {
+        assertFalse(PayFastMetrics.NOOP.isEnabled());
+        assertFalse(new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", null, true)).getMetrics().isEnabled());
+    }
+
+    @Test
+    public void testFormDataIsTimed() throws Exception {
+        service.createPaymentFormData(payment("100.00"));
+        try {
+            service.createPaymentFormData(payment("0"));
+            fail("Expected ValidationException");
+        } catch (ValidationException expected) {
+        }
+
+        assertEquals(Arrays.asList("payment_form:true", "payment_form:false"), metrics.times);
+    }
+
+    @Test
+    public void testItnResultsAreCounted() throws Exception {
+        service.getITNHandler().validateAndParse(signed(FIELDS));
+        service.getITNHandler().validateAndParse(FIELDS + "&signature=00000000000000000000000000000000");
+        service.getITNHandler().validateAndParse(FIELDS.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(Arrays.asList("itn_validate_and_parse_string:true", "itn_validate_and_parse_string:true",
+            "itn_validate_and_parse:true"), metrics.times);
+        assertEquals(Arrays.asList(true, false, false), metrics.validated);
+        assertEquals(Collections.singletonList(Operation.ITN_VALIDATE_AND_PARSE), metrics.signatureFailures);
+        assertEquals(3, metrics.bodySizes.size());
+    }
+
+    @Test
+    public void testDuplicatesAreCounted() throws Exception {
+        IdempotentITNHandler idempotent = IdempotentITNHandler.builder(service.getITNHandler()).build();
+        String body = signed(FIELDS);
+
+        idempotent.process(body);
+        idempotent.process(body);
+        idempotent.process(body);
+
+        assertEquals(2, metrics.duplicates);
+        assertEquals(Collections.singletonList(true), metrics.validated);
+    }
+
+    @Test
+    public void testBatchSizeIsRecorded() throws Exception {
+        service.createPaymentFormDataBatch(Arrays.asList(payment("10.00"), payment("-1"), payment("20.00")));
+
+        assertEquals(Collections.singletonList("payment_form_batch:3:1"), metrics.batches);
+    }
+
+    @Test
+    public void testMicrometerAdapterPublishesMeters() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PayFastService instrumented = new PayFastService(
+            new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true), new MicrometerPayFastMetrics(registry));
+
+        instrumented.createPaymentFormData(payment("100.00"));
+        instrumented.getITNHandler().validateAndParse(signed(FIELDS));
+        instrumented.getITNHandler().validateAndParse(FIELDS + "&signature=00000000000000000000000000000000");
+
+        assertEquals(1, registry.get("payfast.operation").tags("operation", "payment_form", "outcome", "success").timer().count());
+        assertEquals(2, registry.get("payfast.operation").tags("operation", "itn_validate_and_parse_string").timer().count());
+        assertEquals(1.0, registry.get("payfast.itn").tag("result", "valid").counter().count(), 0.0);
+        assertEquals(1.0, registry.get("payfast.itn").tag("result", "invalid").counter().count(), 0.0);
+        assertTrue(registry.get("payfast.itn.body.size").summary().totalAmount() > 0);
+    }
+
+    private static PaymentRequest payment(String amount) {
+        PaymentRequest request = new PaymentRequest();
+        request.setAmount(new BigDecimal(amount));
+        request.setItemName("Test Item");
+        return request;
+    }
+
+    private static String signed(String fields) throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        for (String field : fields.split("&")) {
+            byte[] pair = field.getBytes(StandardCharsets.US_ASCII);
+            engine.addEncodedParam(pair, 0, pair.length);
+        }
+        return fields + "&signature=" + engine.addPassphrase(PASSPHRASE).sign();
+    }
+
+    private static final class RecordingMetrics implements PayFastMetrics {
+        final List<String> times = Collections.synchronizedList(new ArrayList<>());
+        final List<Boolean> validated = new ArrayList<>();
+        final List<Operation> signatureFailures = new ArrayList<>();
+        final List<String> batches = new ArrayList<>();
+        final List<Integer> bodySizes = new ArrayList<>();
+        int duplicates;
+
+        @Override
+        public void recordTime(Operation operation, long nanos, boolean success) {
+            times.add(operation.getTag() + ":" + success);
+        }
+
+        @Override
+        public void itnValidated(boolean valid) {
+            validated.add(valid);
+        }
+
+        @Override
+        public void itnDuplicate() {
+            duplicates++;
+        }
+
+        @Override
+        public void signatureFailure(Operation operation) {
+            signatureFailures.add(operation);
+        }
+
+        @Override
+        public void batchCompleted(Operation operation, int items, int failures) {
+            batches.add(operation.getTag() + ":" + items + ":" + failures);
+        }
+
+        @Override
+        public void itnBodySize(int bytes) {
+            bodySizes.add(bytes);
+        }
+    }
+}
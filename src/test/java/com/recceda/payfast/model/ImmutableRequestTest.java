@@ -0,0 +1,138 @@
+package com.recceda.payfast.model;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ValidationException;
+
+public class ImmutableRequestTest {
+
+    private PayFastService service;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true));
+    }
+
+    @Test
+    public void testPaymentMatchesMutableRequest() throws Exception {
+        ImmutablePaymentRequest immutable = ImmutablePaymentRequest.builder()
+            .returnUrl(" https://shop.test/return ")
+            .notifyUrl("https://shop.test/notify")
+            .nameFirst("Zoë")
+            .nameLast("  ")
+            .mPaymentId("ORDER-1")
+            .amount(new BigDecimal("100.00"))
+            .itemName("Café & co")
+            .build();
+
+        PaymentRequest mutable = new PaymentRequest();
+        mutable.setReturnUrl(" https://shop.test/return ");
+        mutable.setNotifyUrl("https://shop.test/notify");
+        mutable.setNameFirst("Zoë");
+        mutable.setNameLast("  ");
+        mutable.setMPaymentId("ORDER-1");
+        mutable.setAmount(new BigDecimal("100.00"));
+        mutable.setItemName("Café & co");
+
+        PayFastFormData expected = service.createPaymentFormData(mutable);
+        PayFastFormData actual = service.createFormData(immutable);
+
+        assertEquals(expected.getAction(), actual.getAction());
+        assertEquals(new ArrayList<>(expected.getFields().entrySet()), new ArrayList<>(actual.getFields().entrySet()));
+        assertFalse(immutable.getFields().containsKey("merchant_id"));
+        assertNull(immutable.get("name_last"));
+    }
+
+    @Test
+    public void testSubscriptionMatchesMutableRequest() throws Exception {
+        ImmutableSubscriptionRequest immutable = ImmutableSubscriptionRequest.builder()
+            .amount(new BigDecimal("50.00"))
+            .itemName("Monthly")
+            .recurringAmount(5000)
+            .frequency(3)
+            .cycles(12)
+            .subscriptionNotifyWebhook(true)
+            .build();
+
+        SubscriptionRequest mutable = new SubscriptionRequest();
+        mutable.setAmount(new BigDecimal("50.00"));
+        mutable.setItemName("Monthly");
+        mutable.setRecurringAmount(5000);
+        mutable.setFrequency(3);
+        mutable.setCycles(12);
+        mutable.setSubscriptionNotifyWebhook(true);
+
+        assertEquals(service.createSubscriptionFormData(mutable).getFields(), service.createFormData(immutable).getFields());
+    }
+
+    @Test
+    public void testSubscriptionRequiresPassphrase() throws Exception {
+        PayFastService withoutPassphrase = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", null, true));
+        ImmutableSubscriptionRequest subscription = ImmutableSubscriptionRequest.builder()
+            .amount(BigDecimal.TEN).itemName("Monthly").frequency(3).build();
+
+        try {
+            withoutPassphrase.createFormData(subscription);
+            fail("Expected ValidationException");
+        } catch (ValidationException expected) {
+        }
+    }
+
+    @Test
+    public void testBuildValidates() {
+        assertInvalid(ImmutablePaymentRequest.builder().itemName("Item"));
+        assertInvalid(ImmutablePaymentRequest.builder().amount(BigDecimal.ONE).itemName(" "));
+        try {
+            ImmutableSubscriptionRequest.builder().amount(BigDecimal.ONE).itemName("Item").frequency(9).build();
+            fail("Expected ValidationException");
+        } catch (ValidationException expected) {
+        }
+    }
+
+    @Test
+    public void testSharedAcrossThreads() throws Exception {
+        ImmutablePaymentRequest request = ImmutablePaymentRequest.builder()
+            .amount(new BigDecimal("10.00")).itemName("Shared").notifyUrl("https://shop.test/notify").build();
+        String expected = service.createFormData(request).getFields().get("signature");
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> signatures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                signatures.add(pool.submit(() -> service.createFormData(request).getFields().get("signature")));
+            }
+            for (Future<String> signature : signatures) {
+                assertEquals(expected, signature.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testFieldsAreUnmodifiable() throws Exception {
+        ImmutablePaymentRequest.builder().amount(BigDecimal.ONE).itemName("Item").build().getFields().put("amount", "0");
+    }
+
+    private static void assertInvalid(ImmutablePaymentRequest.Builder builder) {
+        try {
+            builder.build();
+            fail("Expected ValidationException");
+        } catch (ValidationException expected) {
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.recceda.payfast.model;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class MoneyTest {
+
+    @Test
+    public void testParseReadsPayFastAmounts() {
+        assertEquals(10000, Money.parse("100.00").getCents());
+        assertEquals(-460, Money.parse("-4.60").getCents());
+        assertEquals(990, Money.parse("9.9").getCents());
+        assertEquals(5, Money.parse("0.05").getCents());
+        assertEquals(50, Money.parse(".5").getCents());
+        assertEquals(12300, Money.parse("+123").getCents());
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07").getCents());
+        assertEquals(199, Money.parse("x1.99y", 1, 5).getCents());
+        assertSame(Money.ZERO, Money.parse("-0.00"));
+    }
+
+    @Test
+    public void testParseRejectsOtherText() {
+        String[] invalid = {"", "-", ".", "1.", "1.234", "1,00", "1e3", " 1.00", "1.0-", "--1",
+            "92233720368547758.08", "100000000000000000"};
+        for (String text : invalid) {
+            try {
+                Money.parse(text);
+                fail("Parsed " + text);
+            } catch (NumberFormatException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testToStringWritesTwoDecimals() {
+        assertEquals("100.00", Money.ofCents(10000).toString());
+        assertEquals("-4.60", Money.ofCents(-460).toString());
+        assertEquals("-0.05", Money.ofCents(-5).toString());
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("50.00", Money.ofRands(50).toString());
+        assertEquals("-92233720368547758.08", Money.ofCents(Long.MIN_VALUE).toString());
+        for (long cents = -1000; cents <= 1000; cents += 7) {
+            Money money = Money.ofCents(cents);
+            assertEquals(money.toBigDecimal().toPlainString(), money.toString());
+            assertEquals(money, Money.parse(money.toString()));
+        }
+    }
+
+    @Test
+    public void testBigDecimalConversion() {
+        assertEquals(Money.ofCents(1050), Money.of(new BigDecimal("10.5")));
+        assertEquals(Money.ofCents(1000), Money.of(BigDecimal.TEN));
+        assertEquals(new BigDecimal("195.40"), Money.ofCents(19540).toBigDecimal());
+        try {
+            Money.of(new BigDecimal("1.005"));
+            fail("Converted a fraction of a cent");
+        } catch (ArithmeticException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testArithmeticAndOrdering() {
+        Money gross = Money.parse("200.00");
+        Money fee = Money.parse("-4.60");
+        assertEquals(Money.parse("195.40"), gross.plus(fee));
+        assertEquals(Money.parse("204.60"), gross.minus(fee));
+        assertEquals(-1, fee.signum());
+        assertEquals(1, gross.compareTo(fee) > 0 ? 1 : 0);
+        assertEquals(Money.ofCents(5).hashCode(), Money.parse("0.05").hashCode());
+    }
+}
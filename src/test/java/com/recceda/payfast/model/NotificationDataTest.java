@@ -95,4 +95,17 @@ public class NotificationDataTest {
             assertEquals(status, data.getPaymentStatus());
         }
     }
+    
+    @Test
+    public void testBigDecimalAmountsAreKeptExactly() {
+        NotificationData data = new NotificationData();
+        
+        data.setAmountGross(new BigDecimal("10.005"));
+        data.setAmountFeeMoney(Money.parse("-0.25"));
+        
+        assertEquals(new BigDecimal("10.005"), data.getAmountGross());
+        assertEquals(Money.parse("10.01"), data.getAmountGrossMoney());
+        assertEquals(new BigDecimal("-0.25"), data.getAmountFee());
+        assertEquals(Money.parse("-0.25"), data.getAmountFeeMoney());
+    }
 }
@@ -0,0 +1,121 @@
+package com.recceda.payfast.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class PayFastFieldsTest {
+
+    @Test
+    public void testEveryKnownNameHasItsOwnOrdinal() {
+        for (int i = 0; i < PayFastFields.KNOWN_FIELDS; i++) {
+            String name = PayFastFields.name(i);
+            assertEquals(name, i, PayFastFields.ordinal(name));
+            // A copy that is not the interned literal resolves the same way
+            assertEquals(name, i, PayFastFields.ordinal(new String(name.toCharArray())));
+            byte[] ascii = ("x" + name + "=").getBytes(StandardCharsets.US_ASCII);
+            assertEquals(name, i, PayFastFields.ordinal(ascii, 1, name.length()));
+        }
+        assertEquals(-1, PayFastFields.ordinal("merchant_idx"));
+        assertEquals(-1, PayFastFields.ordinal("custom_int6"));
+        assertEquals(-1, PayFastFields.ordinal((String) null));
+        assertEquals(-1, PayFastFields.ordinal("custom%5Fint1".getBytes(StandardCharsets.US_ASCII), 0, 13));
+    }
+
+    @Test
+    public void testIteratesInPayFastOrder() {
+        PayFastFields fields = new PayFastFields();
+        fields.put("signature", "abc");
+        fields.put("my_extra", "1");
+        fields.put("item_name", "Widget");
+        fields.put("amount", "10.00");
+        fields.put("another_extra", "2");
+        fields.put("merchant_id", "10000100");
+
+        assertEquals(Arrays.asList("merchant_id", "amount", "item_name", "my_extra", "another_extra", "signature"),
+            new ArrayList<>(fields.keySet()));
+        List<String> visited = new ArrayList<>();
+        fields.forEach((name, value) -> visited.add(name));
+        assertEquals(new ArrayList<>(fields.keySet()), visited);
+        assertEquals(6, fields.size());
+    }
+
+    @Test
+    public void testBehavesLikeAMap() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("merchant_id", "10000100");
+        expected.put("amount", "10.00");
+        expected.put("my_extra", "1");
+        PayFastFields fields = new PayFastFields(expected);
+
+        assertEquals(expected, fields);
+        assertEquals(fields, expected);
+        assertEquals(expected.hashCode(), fields.hashCode());
+        assertEquals("10.00", fields.put("amount", "20.00"));
+        assertEquals("20.00", fields.get("amount"));
+        assertTrue(fields.containsKey("my_extra"));
+        assertNull(fields.get("token"));
+        assertNull(fields.get(42));
+
+        assertEquals("1", fields.remove("my_extra"));
+        assertEquals("20.00", fields.remove("amount"));
+        assertNull(fields.remove("amount"));
+        assertEquals(1, fields.size());
+        fields.clear();
+        assertTrue(fields.isEmpty());
+    }
+
+    @Test
+    public void testEntriesWriteThroughAndIteratorRemoves() {
+        PayFastFields fields = new PayFastFields();
+        fields.put("amount", "10.00");
+        fields.put("my_extra", "1");
+        fields.put("signature", "abc");
+
+        Iterator<Map.Entry<String, String>> entries = fields.entrySet().iterator();
+        Map.Entry<String, String> amount = entries.next();
+        assertEquals("10.00", amount.setValue("11.00"));
+        assertEquals("11.00", fields.get("amount"));
+        assertEquals(new AbstractMap.SimpleEntry<>("amount", "11.00"), amount);
+        assertEquals(new AbstractMap.SimpleEntry<>("amount", "11.00").hashCode(), amount.hashCode());
+        entries.next();
+        entries.remove();
+        assertEquals("signature", entries.next().getKey());
+        entries.remove();
+        assertFalse(entries.hasNext());
+
+        assertEquals(1, fields.size());
+        assertFalse(fields.containsKey("my_extra"));
+        assertFalse(fields.containsKey("signature"));
+    }
+
+    @Test
+    public void testNullsAreRejected() {
+        PayFastFields fields = new PayFastFields();
+        try {
+            fields.put("amount", null);
+            fail("Expected NullPointerException");
+        } catch (NullPointerException expected) {
+            // expected
+        }
+        try {
+            fields.put(null, "x");
+            fail("Expected NullPointerException");
+        } catch (NullPointerException expected) {
+            // expected
+        }
+        assertTrue(fields.isEmpty());
+    }
+}
@@ -0,0 +1,87 @@
+package com.recceda.payfast.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ValidationException;
+
+public class SubscriptionPlanTest {
+
+    private PayFastService service;
+    private SubscriptionRequest template;
+
+    @Before
+    public void setUp() throws Exception {
+        service = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true));
+        template = new SubscriptionRequest();
+        template.setReturnUrl("https://shop.test/return");
+        template.setNotifyUrl("https://shop.test/notify");
+        template.setAmount(new BigDecimal("99.00"));
+        template.setItemName("Premium plan");
+        template.setItemDescription("Monthly access & support");
+        template.setRecurringAmount(9900);
+        template.setFrequency(3);
+        template.setCycles(0);
+        template.setSubscriptionNotifyBuyer(true);
+    }
+
+    @Test
+    public void testPlanCheckoutMatchesFullRequest() throws Exception {
+        SubscriptionPlan plan = SubscriptionPlan.of(template);
+
+        for (int i = 0; i < 3; i++) {
+            Subscriber subscriber = new Subscriber();
+            subscriber.setNameFirst(" Zoë " + i);
+            subscriber.setEmailAddress("customer" + i + "@example.com");
+            subscriber.setMPaymentId("SUB-" + i);
+            subscriber.setBillingDate(i == 1 ? null : LocalDate.of(2026, 11, 1 + i));
+
+            template.setNameFirst(subscriber.getNameFirst());
+            template.setEmailAddress(subscriber.getEmailAddress());
+            template.setMPaymentId(subscriber.getMPaymentId());
+            template.setBillingDate(subscriber.getBillingDate());
+
+            PayFastFormData expected = service.createSubscriptionFormData(template);
+            PayFastFormData actual = service.createSubscriptionFormData(plan, subscriber);
+            assertEquals(new ArrayList<>(expected.getFields().entrySet()), new ArrayList<>(actual.getFields().entrySet()));
+        }
+    }
+
+    @Test
+    public void testTemplateSubscriberFieldsAreIgnored() throws Exception {
+        template.setNameFirst("Template");
+        template.setMPaymentId("TEMPLATE-1");
+        SubscriptionPlan plan = SubscriptionPlan.of(template);
+
+        PayFastFormData formData = service.createSubscriptionFormData(plan, new Subscriber());
+
+        assertFalse(formData.getFields().containsKey("name_first"));
+        assertFalse(formData.getFields().containsKey("m_payment_id"));
+        assertEquals("99.00", formData.getFields().get("amount"));
+    }
+
+    @Test
+    public void testPlanIsValidatedOnce() {
+        template.setFrequency(7);
+        try {
+            SubscriptionPlan.of(template);
+            fail("Expected ValidationException");
+        } catch (ValidationException expected) {
+        }
+    }
+
+    @Test(expected = ValidationException.class)
+    public void testPassphraseIsRequired() throws Exception {
+        PayFastService withoutPassphrase = new PayFastService(new PayFastConfig("10000100", "46f0cd694581a", null, true));
+        withoutPassphrase.createSubscriptionFormData(SubscriptionPlan.of(template), new Subscriber());
+    }
+}
@@ -34,8 +34,13 @@ public class SubscriptionRequestTest {
         assertEquals("2", request.getSubscriptionType());
         assertEquals("2024-01-15", request.getBillingDate());
         assertEquals(Integer.valueOf(10000), request.getRecurringAmount());
+        assertNull(request.getRecurringAmountMoney());
         assertEquals(Integer.valueOf(3), request.getFrequency());
         assertEquals(Integer.valueOf(12), request.getCycles());
+
+        request.setRecurringAmountMoney(Money.parse("99.99"));
+        assertEquals(Money.parse("99.99"), request.getRecurringAmountMoney());
+        assertNull(request.getRecurringAmount());
     }
     
     @Test
@@ -55,6 +60,7 @@ public class SubscriptionRequestTest {
         
         assertNull(request.getBillingDate());
         assertNull(request.getRecurringAmount());
+        assertNull(request.getRecurringAmountMoney());
         assertNull(request.getFrequency());
         assertNull(request.getCycles());
     }
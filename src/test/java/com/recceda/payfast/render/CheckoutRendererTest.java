@@ -0,0 +1,129 @@
+package com.recceda.payfast.render;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.model.PayFastFormData;
+import com.recceda.payfast.model.PayFastResponse;
+
+public class CheckoutRendererTest {
+
+    private PayFastFormData formData;
+
+    @Before
+    public void setUp() {
+        formData = new PayFastFormData("https://sandbox.payfast.co.za/eng/process");
+        formData.addField("merchant_id", "10000100");
+        formData.addField("return_url", "https://shop.test/return?order=1&x=2");
+        formData.addField("name_first", "Zoë 😀");
+        formData.addField("item_name", "<b>\"Tom's\" ~ tea*</b>");
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            description.append("R").append(i).append(" & ");
+        }
+        formData.addField("item_description", description.toString());
+        formData.addSignature("abc123");
+    }
+
+    @Test
+    public void testHtmlFormEscapesValues() {
+        String html = CheckoutRenderer.htmlForm(formData, true);
+
+        assertTrue(html.startsWith("<form id=\"payfast-checkout\" action=\"https://sandbox.payfast.co.za/eng/process\" method=\"POST\">"));
+        assertTrue(html.contains("name=\"return_url\" value=\"https://shop.test/return?order=1&amp;x=2\""));
+        assertTrue(html.contains("value=\"&lt;b&gt;&quot;Tom&#39;s&quot; ~ tea*&lt;/b&gt;\""));
+        assertTrue(html.contains("value=\"Zoë 😀\""));
+        assertTrue(html.contains(".submit();</script>"));
+        assertFalse(CheckoutRenderer.htmlForm(formData, false).contains("<script>"));
+    }
+
+    @Test
+    public void testRedirectUrlEncodesLikeURLEncoder() throws Exception {
+        String url = CheckoutRenderer.redirectUrl(formData);
+
+        StringBuilder expected = new StringBuilder(formData.getAction());
+        char separator = '?';
+        for (Map.Entry<String, String> field : formData.getFields().entrySet()) {
+            expected.append(separator).append(field.getKey()).append('=')
+                .append(URLEncoder.encode(field.getValue(), "UTF-8"));
+            separator = '&';
+        }
+        assertEquals(expected.toString(), url);
+
+        Map<String, String> decoded = new LinkedHashMap<>();
+        for (String pair : url.substring(url.indexOf('?') + 1).split("&")) {
+            String[] parts = pair.split("=", 2);
+            decoded.put(parts[0], URLDecoder.decode(parts[1], "UTF-8"));
+        }
+        assertEquals(formData.getFields(), decoded);
+    }
+
+    @Test
+    public void testByteOutputsMatchUtf8OfCharOutput() throws Exception {
+        for (boolean redirect : new boolean[] { false, true }) {
+            String text = redirect ? CheckoutRenderer.redirectUrl(formData) : CheckoutRenderer.htmlForm(formData, true);
+            byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            if (redirect) {
+                CheckoutRenderer.renderRedirectUrl(formData, stream);
+                CheckoutRenderer.renderRedirectUrl(formData, buffer);
+            } else {
+                CheckoutRenderer.renderHtmlForm(formData, true, stream);
+                CheckoutRenderer.renderHtmlForm(formData, true, buffer);
+            }
+
+            assertEquals(new String(expected, StandardCharsets.UTF_8), new String(stream.toByteArray(), StandardCharsets.UTF_8));
+            buffer.flip();
+            byte[] written = new byte[buffer.remaining()];
+            buffer.get(written);
+            assertEquals(new String(expected, StandardCharsets.UTF_8), new String(written, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testSmallBufferOverflows() {
+        try {
+            CheckoutRenderer.renderHtmlForm(formData, true, ByteBuffer.allocate(32));
+            fail("Expected BufferOverflowException");
+        } catch (BufferOverflowException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNullActionIsRenderedEmpty() throws Exception {
+        PayFastFormData noAction = new PayFastFormData();
+        noAction.addField("merchant_id", "10000100");
+        noAction.addField("item_name", "Tea");
+
+        assertTrue(CheckoutRenderer.htmlForm(noAction, true).startsWith("<form id=\"payfast-checkout\" action=\"\" method=\"POST\">"));
+        assertEquals("?merchant_id=10000100&item_name=Tea", CheckoutRenderer.redirectUrl(noAction));
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CheckoutRenderer.renderRedirectUrl(noAction, stream);
+        assertEquals("?merchant_id=10000100&item_name=Tea", stream.toString("UTF-8"));
+    }
+
+    @Test
+    public void testToResponse() {
+        PayFastResponse response = CheckoutRenderer.toResponse(formData);
+
+        assertTrue(response.isRequestCreated());
+        assertEquals(CheckoutRenderer.redirectUrl(formData), response.getPayfastRedirectUrl());
+        assertEquals(CheckoutRenderer.htmlForm(formData, true), response.getHtmlForm());
+    }
+}
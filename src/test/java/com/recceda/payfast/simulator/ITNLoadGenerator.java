@@ -0,0 +1,254 @@
+package com.recceda.payfast.simulator;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.recceda.payfast.exception.SignatureException;
+import com.recceda.payfast.model.Money;
+
+/**
+ * Fires signed ITNs from a {@link PayFastSimulator} at a notify URL and measures how the
+ * receiver keeps up.
+ * <p>
+ * Each notification is new, a duplicate of an earlier one, or forged with a bad
+ * signature, in the configured ratios. The mix is drawn from a seeded random, so a run
+ * can be repeated exactly. Workers send from a shared sequence; with a rate set,
+ * notification {@code i} is due at {@code i / rate} seconds after the start, and its
+ * latency is measured from that time rather than from when a worker got to it, so a slow
+ * receiver shows up in the percentiles instead of quietly lowering the rate.
+ */
+public final class ITNLoadGenerator {
+    private static final byte VALID = 0;
+    private static final byte DUPLICATE = 1;
+    private static final byte INVALID = 2;
+
+    private final PayFastSimulator simulator;
+    private final URL notifyUrl;
+    private final int notifications;
+    private final double ratePerSecond;
+    private final int concurrency;
+    private final int timeoutMillis;
+    // What each notification is; for duplicates, the index of the notification they repeat
+    private final byte[] kinds;
+    private final int[] originals;
+
+    private ITNLoadGenerator(Builder builder) throws MalformedURLException {
+        if (builder.notifications < 1) {
+            throw new IllegalArgumentException("Notifications must be at least 1");
+        }
+        if (builder.concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        if (builder.ratePerSecond < 0) {
+            throw new IllegalArgumentException("Rate cannot be negative");
+        }
+        if (builder.duplicateRatio < 0 || builder.invalidRatio < 0 || builder.duplicateRatio + builder.invalidRatio > 1) {
+            throw new IllegalArgumentException("Duplicate and invalid ratios must be between 0 and 1 in total");
+        }
+        this.simulator = builder.simulator;
+        this.notifyUrl = new URL(builder.notifyUrl);
+        this.notifications = builder.notifications;
+        this.ratePerSecond = builder.ratePerSecond;
+        this.concurrency = builder.concurrency;
+        this.timeoutMillis = builder.timeoutMillis;
+        this.kinds = new byte[notifications];
+        this.originals = new int[notifications];
+
+        Random random = new Random(builder.seed);
+        int[] sent = new int[notifications];
+        int sentCount = 0;
+        for (int i = 0; i < notifications; i++) {
+            double draw = random.nextDouble();
+            if (draw < builder.duplicateRatio && sentCount > 0) {
+                kinds[i] = DUPLICATE;
+                originals[i] = sent[random.nextInt(sentCount)];
+            } else if (draw >= builder.duplicateRatio && draw < builder.duplicateRatio + builder.invalidRatio) {
+                kinds[i] = INVALID;
+            } else {
+                kinds[i] = VALID;
+                sent[sentCount++] = i;
+            }
+        }
+    }
+
+    static Builder builder(PayFastSimulator simulator, String notifyUrl) {
+        return new Builder(simulator, notifyUrl);
+    }
+
+    /**
+     * Send every notification and wait for the answers
+     */
+    public LoadReport run() throws InterruptedException {
+        long[] latencies = new long[notifications];
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        LongAdder errors = new LongAdder();
+        AtomicInteger next = new AtomicInteger();
+        long intervalNanos = ratePerSecond == 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        AtomicLong finished = new AtomicLong(start);
+        for (int w = 0; w < concurrency; w++) {
+            workers.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < notifications && !Thread.currentThread().isInterrupted()) {
+                    long due = start + i * intervalNanos;
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long sent = intervalNanos == 0 ? System.nanoTime() : due;
+                    int status;
+                    try {
+                        status = PayFastSimulator.post(notifyUrl, body(i), timeoutMillis);
+                    } catch (IOException | SignatureException e) {
+                        status = -1;
+                        errors.increment();
+                    }
+                    long now = System.nanoTime();
+                    latencies[i] = now - sent;
+                    finished.accumulateAndGet(now, Math::max);
+                    if (status >= 0) {
+                        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Keep waiting; every request is bounded by the timeout
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            throw e;
+        }
+
+        int completed = Math.min(next.get(), notifications);
+        Map<Integer, Long> statusCounts = new LinkedHashMap<>();
+        statuses.entrySet().stream().sorted(Map.Entry.comparingByKey())
+            .forEach(entry -> statusCounts.put(entry.getKey(), entry.getValue().sum()));
+        int duplicates = 0;
+        int invalid = 0;
+        for (int i = 0; i < completed; i++) {
+            duplicates += kinds[i] == DUPLICATE ? 1 : 0;
+            invalid += kinds[i] == INVALID ? 1 : 0;
+        }
+        long[] measured = completed == notifications ? latencies : Arrays.copyOf(latencies, completed);
+        return new LoadReport(completed, duplicates, invalid, errors.intValue(), statusCounts,
+            finished.get() - start, measured);
+    }
+
+    private byte[] body(int i) throws SignatureException {
+        String body;
+        switch (kinds[i]) {
+            case DUPLICATE: body = simulator.signedItn(fields(originals[i])); break;
+            case INVALID: body = simulator.forgedItn(fields(i)); break;
+            default: body = simulator.signedItn(fields(i)); break;
+        }
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The ITN fields of notification {@code i}; the same index always gives the same fields
+     */
+    private Map<String, String> fields(int i) {
+        Map<String, String> checkout = new LinkedHashMap<>();
+        checkout.put("merchant_id", simulator.getConfig().getMerchantId());
+        checkout.put("m_payment_id", "LOAD-" + i);
+        checkout.put("pf_payment_id", Long.toString(5000000L + i));
+        checkout.put("amount", Money.ofCents(1000 + (i * 7919L) % 100000).toString());
+        checkout.put("item_name", "Load test item " + i);
+        checkout.put("name_first", "Load");
+        checkout.put("name_last", "Tester");
+        checkout.put("email_address", "load" + i + "@example.com");
+        return simulator.completedItn(checkout);
+    }
+
+    public static final class Builder {
+        private final PayFastSimulator simulator;
+        private final String notifyUrl;
+        private int notifications = 1000;
+        private double ratePerSecond;
+        private int concurrency = 8;
+        private double duplicateRatio;
+        private double invalidRatio;
+        private long seed = 1;
+        private int timeoutMillis = 10000;
+
+        private Builder(PayFastSimulator simulator, String notifyUrl) {
+            this.simulator = simulator;
+            this.notifyUrl = notifyUrl;
+        }
+
+        public Builder notifications(int notifications) {
+            this.notifications = notifications;
+            return this;
+        }
+
+        /**
+         * @param ratePerSecond Notifications started per second across all workers; 0, the
+         *                      default, sends as fast as the receiver answers
+         */
+        public Builder ratePerSecond(double ratePerSecond) {
+            this.ratePerSecond = ratePerSecond;
+            return this;
+        }
+
+        /**
+         * @param concurrency Number of notifications in flight at most
+         */
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * @param duplicateRatio Share of notifications that resend an earlier one unchanged
+         */
+        public Builder duplicateRatio(double duplicateRatio) {
+            this.duplicateRatio = duplicateRatio;
+            return this;
+        }
+
+        /**
+         * @param invalidRatio Share of notifications signed with the wrong passphrase
+         */
+        public Builder invalidRatio(double invalidRatio) {
+            this.invalidRatio = invalidRatio;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder timeout(long timeout, TimeUnit unit) {
+            this.timeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(timeout));
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a setting is out of range
+         * @throws MalformedURLException if the notify URL is not a URL
+         */
+        public ITNLoadGenerator build() throws MalformedURLException {
+            return new ITNLoadGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.recceda.payfast.simulator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What an {@link ITNLoadGenerator} run sent and how the receiver answered
+ */
+public final class LoadReport {
+    private final int sent;
+    private final int duplicates;
+    private final int invalid;
+    private final int errors;
+    private final Map<Integer, Long> statusCounts;
+    private final long elapsedNanos;
+    private final long[] sortedLatencies;
+
+    LoadReport(int sent, int duplicates, int invalid, int errors, Map<Integer, Long> statusCounts,
+               long elapsedNanos, long[] latencies) {
+        this.sent = sent;
+        this.duplicates = duplicates;
+        this.invalid = invalid;
+        this.errors = errors;
+        this.statusCounts = Collections.unmodifiableMap(statusCounts);
+        this.elapsedNanos = elapsedNanos;
+        this.sortedLatencies = latencies;
+        Arrays.sort(sortedLatencies);
+    }
+
+    /**
+     * @return the number of notifications sent, whatever the outcome
+     */
+    public int getSent() {
+        return sent;
+    }
+
+    /**
+     * @return the number of new, correctly signed notifications
+     */
+    public int getValid() {
+        return sent - duplicates - invalid;
+    }
+
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * @return the number of notifications that got no HTTP answer
+     */
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of answers per HTTP status, in status order
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return statusCounts;
+    }
+
+    public long getStatusCount(int status) {
+        Long count = statusCounts.get(status);
+        return count == null ? 0 : count;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return notifications answered per second over the run
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : sent * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * @param percentile From 0 to 100, e.g. 99.9
+     * @return the latency at or below which that share of notifications was answered,
+     *         by the nearest-rank method; 0 if nothing was sent
+     */
+    public long getLatency(double percentile, TimeUnit unit) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (sortedLatencies.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+        return unit.convert(sortedLatencies[Math.max(0, rank - 1)], TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sent=%d (valid=%d, duplicates=%d, invalid=%d), errors=%d, statuses=%s, "
+                + "elapsed=%d ms, throughput=%.1f/s, latency p50=%.2f ms p90=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms",
+            sent, getValid(), duplicates, invalid, errors, statusCounts, getElapsed(TimeUnit.MILLISECONDS), getThroughput(),
+            millis(50), millis(90), millis(99), millis(99.9), millis(100));
+    }
+
+    private double millis(double percentile) {
+        return getLatency(percentile, TimeUnit.MICROSECONDS) / 1000.0;
+    }
+}
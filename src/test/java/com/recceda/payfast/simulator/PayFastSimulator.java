@@ -0,0 +1,307 @@
+package com.recceda.payfast.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.SignatureException;
+import com.recceda.payfast.handler.ITNBody;
+import com.recceda.payfast.model.Money;
+import com.recceda.payfast.util.QuotePlusEncoder;
+import com.recceda.payfast.util.SignatureUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local stand-in for PayFast for end-to-end and load tests.
+ * <p>
+ * {@code POST /eng/process} accepts a checkout form when the merchant credentials and
+ * signature match the config, and then sends a {@code COMPLETE} ITN to the form's
+ * {@code notify_url}. {@code POST /eng/query/validate} answers {@code VALID} for the
+ * fields of any ITN this simulator signed and {@code INVALID} otherwise, so an
+ * {@link com.recceda.payfast.handler.ITNConfirmationClient} can be pointed at
+ * {@link #getBaseUrl()}. ITNs are signed with {@link SignatureUtil} and the config's
+ * passphrase; {@link #loadGenerator(String)} fires them at a notify URL in bulk.
+ * <p>
+ * Run with {@code -Dsun.net.httpserver.nodelay=true}, as the Maven test run does.
+ * Otherwise the JDK server holds back each response body until the client's delayed ACK
+ * of the headers, adding about 40 ms to every confirmation.
+ */
+public final class PayFastSimulator implements Closeable {
+    private static final Logger log = LoggerFactory.getLogger(PayFastSimulator.class);
+
+    public static final String PROCESS_PATH = "/eng/process";
+    public static final String VALIDATE_PATH = "/eng/query/validate";
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private final PayFastConfig config;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    // Encoded fields, without the signature, of every ITN signed here
+    private final Set<String> issued = ConcurrentHashMap.newKeySet();
+    private final List<Map<String, String>> payments = new CopyOnWriteArrayList<>();
+    private final List<Integer> notificationStatuses = new CopyOnWriteArrayList<>();
+    private final AtomicLong pfPaymentIds = new AtomicLong(1000000);
+
+    public PayFastSimulator(PayFastConfig config) throws IOException {
+        this.config = config;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext(PROCESS_PATH, this::process);
+        server.createContext(VALIDATE_PATH, this::validate);
+        server.start();
+    }
+
+    /**
+     * @return {@code http://127.0.0.1:<port>}, to use in place of the PayFast host
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public PayFastConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the fields of every accepted checkout, each with the {@code pf_payment_id} it was given
+     */
+    public List<Map<String, String>> getPayments() {
+        return Collections.unmodifiableList(payments);
+    }
+
+    /**
+     * @return the HTTP status the notify URL answered for each checkout ITN, -1 if it could not be reached
+     */
+    public List<Integer> getNotificationStatuses() {
+        return Collections.unmodifiableList(notificationStatuses);
+    }
+
+    public ITNLoadGenerator.Builder loadGenerator(String notifyUrl) {
+        return ITNLoadGenerator.builder(this, notifyUrl);
+    }
+
+    /**
+     * Sign ITN fields and remember them for {@code /eng/query/validate}. Blank values are left out.
+     * @return the form-encoded body with the signature last
+     */
+    public String signedItn(Map<String, String> fields) throws SignatureException {
+        String encoded = encode(fields);
+        issued.add(encoded);
+        return encoded + "&signature=" + SignatureUtil.generateSignatureFromParams(fields, config.getPassphrase());
+    }
+
+    /**
+     * Sign ITN fields with the wrong passphrase. The fields are not remembered, so
+     * PayFast would not confirm them either.
+     */
+    public String forgedItn(Map<String, String> fields) throws SignatureException {
+        String passphrase = config.getPassphrase() == null ? "forged" : config.getPassphrase() + "-forged";
+        return encode(fields) + "&signature=" + SignatureUtil.generateSignatureFromParams(fields, passphrase);
+    }
+
+    /**
+     * The ITN PayFast sends once a checkout is paid
+     */
+    public Map<String, String> completedItn(Map<String, String> checkout) {
+        Money gross = Money.parse(checkout.get("amount"));
+        Money fee = Money.ofCents(-(gross.getCents() * 23 + 500) / 1000);
+        Map<String, String> itn = new LinkedHashMap<>();
+        itn.put("m_payment_id", checkout.get("m_payment_id"));
+        itn.put("pf_payment_id", checkout.get("pf_payment_id"));
+        itn.put("payment_status", "COMPLETE");
+        itn.put("item_name", checkout.get("item_name"));
+        itn.put("item_description", checkout.get("item_description"));
+        itn.put("amount_gross", gross.toString());
+        itn.put("amount_fee", fee.toString());
+        itn.put("amount_net", gross.plus(fee).toString());
+        for (String custom : new String[] {"custom_str", "custom_int"}) {
+            for (int i = 1; i <= 5; i++) {
+                itn.put(custom + i, checkout.get(custom + i));
+            }
+        }
+        itn.put("name_first", checkout.get("name_first"));
+        itn.put("name_last", checkout.get("name_last"));
+        itn.put("email_address", checkout.get("email_address"));
+        itn.put("merchant_id", checkout.get("merchant_id"));
+        if (checkout.containsKey("subscription_type")) {
+            itn.put("token", UUID.nameUUIDFromBytes(checkout.get("pf_payment_id").getBytes(StandardCharsets.UTF_8)).toString());
+            itn.put("billing_date", checkout.get("billing_date"));
+        }
+        return itn;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void process(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "");
+                return;
+            }
+            Map<String, String> fields = ITNBody.parse(readBody(exchange)).toMap();
+            String refusal = checkCheckout(fields);
+            if (refusal != null) {
+                respond(exchange, 400, refusal);
+                return;
+            }
+            fields.remove("signature");
+            fields.put("pf_payment_id", Long.toString(pfPaymentIds.incrementAndGet()));
+            payments.add(Collections.unmodifiableMap(fields));
+            respond(exchange, 200, "Payment " + fields.get("pf_payment_id") + " complete");
+
+            String notifyUrl = fields.get("notify_url");
+            if (notifyUrl != null && !notifyUrl.trim().isEmpty()) {
+                executor.execute(() -> notify(notifyUrl, fields));
+            }
+        } catch (Exception e) {
+            log.error("Simulated checkout failed", e);
+            respond(exchange, 500, "");
+        }
+    }
+
+    /**
+     * @return why PayFast would refuse the checkout, or null if it is acceptable
+     */
+    private String checkCheckout(Map<String, String> fields) throws SignatureException {
+        if (!config.getMerchantId().equals(fields.get("merchant_id"))
+                || !config.getMerchantKey().equals(fields.get("merchant_key"))) {
+            return "Invalid merchant credentials";
+        }
+        String signature = fields.get("signature");
+        Map<String, String> signed = new LinkedHashMap<>(fields);
+        signed.remove("signature");
+        if (signature == null || !signature.equals(SignatureUtil.generateSignatureFromParams(signed, config.getPassphrase()))) {
+            return "Signature mismatch";
+        }
+        try {
+            if (fields.get("amount") == null || Money.parse(fields.get("amount")).signum() <= 0) {
+                return "Amount must be greater than zero";
+            }
+        } catch (NumberFormatException e) {
+            return "Invalid amount";
+        }
+        if (fields.get("item_name") == null || fields.get("item_name").trim().isEmpty()) {
+            return "Item name is required";
+        }
+        return null;
+    }
+
+    private void notify(String notifyUrl, Map<String, String> checkout) {
+        int status;
+        try {
+            status = post(new URL(notifyUrl), signedItn(completedItn(checkout)).getBytes(StandardCharsets.UTF_8), TIMEOUT_MILLIS);
+        } catch (Exception e) {
+            log.warn("ITN to {} failed: {}", notifyUrl, e.getMessage());
+            status = -1;
+        }
+        notificationStatuses.add(status);
+    }
+
+    private void validate(HttpExchange exchange) throws IOException {
+        String fields = new String(readBody(exchange), StandardCharsets.UTF_8);
+        respond(exchange, 200, issued.contains(fields) ? "VALID" : "INVALID");
+    }
+
+    private static String encode(Map<String, String> fields) {
+        StringBuilder encoded = new StringBuilder(512);
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            String value = field.getValue();
+            if (value == null || value.trim().isEmpty() || "signature".equals(field.getKey())) {
+                continue;
+            }
+            if (encoded.length() > 0) {
+                encoded.append('&');
+            }
+            encoded.append(field.getKey()).append('=').append(QuotePlusEncoder.encode(value.trim()));
+        }
+        return encoded.toString();
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return readAll(in);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    /**
+     * Post a form body and read the whole response so the connection goes back to the
+     * JDK keep-alive pool
+     * @return the response status
+     */
+    static int post(URL url, byte[] body, int timeoutMillis) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(timeoutMillis);
+            connection.setReadTimeout(timeoutMillis);
+            connection.setUseCaches(false);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                try (InputStream response = in) {
+                    readAll(response);
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            connection.disconnect();
+            throw e;
+        }
+    }
+}
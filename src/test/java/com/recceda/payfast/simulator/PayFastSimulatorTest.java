@@ -0,0 +1,162 @@
+package com.recceda.payfast.simulator;
+
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.PayFastService;
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.handler.ITNConfirmationClient;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.idempotency.IdempotentITNHandler;
+import com.recceda.payfast.model.NotificationData;
+import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.util.QuotePlusEncoder;
+import com.recceda.payfast.webhook.ITNEndpoint;
+
+public class PayFastSimulatorTest {
+
+    private PayFastConfig config;
+    private PayFastSimulator simulator;
+    private ITNEndpoint endpoint;
+    private String notifyUrl;
+    private final BlockingQueue<NotificationData> received = new LinkedBlockingQueue<>();
+    private final Set<String> paymentIds = ConcurrentHashMap.newKeySet();
+
+    @Before
+    public void setUp() throws Exception {
+        config = new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true);
+        simulator = new PayFastSimulator(config);
+        ITNHandler handler = new ITNHandler(config);
+        endpoint = ITNEndpoint.builder(result -> {
+                received.add(result.getNotification());
+                paymentIds.add(result.getNotification().getPfPaymentId());
+            })
+            .idempotentHandler(IdempotentITNHandler.builder(handler).build())
+            .confirmationClient(ITNConfirmationClient.builder(config).baseUrl(simulator.getBaseUrl()).build())
+            .address(new InetSocketAddress("127.0.0.1", 0))
+            .acknowledgeAfterProcessing()
+            .build();
+        endpoint.start();
+        notifyUrl = "http://127.0.0.1:" + endpoint.getAddress().getPort() + "/payfast/itn";
+    }
+
+    @After
+    public void tearDown() {
+        endpoint.close();
+        simulator.close();
+    }
+
+    @Test
+    public void testCheckoutIsAcceptedAndNotified() throws Exception {
+        Map<String, String> fields = checkoutFields();
+
+        assertEquals(200, postCheckout(fields));
+        NotificationData notification = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(notification);
+        assertEquals("ORDER-1", notification.getMPaymentId());
+        assertEquals("COMPLETE", notification.getPaymentStatus());
+        assertEquals(new BigDecimal("123.45"), notification.getAmountGross());
+        assertEquals(notification.getAmountGross(),
+            notification.getAmountNet().subtract(notification.getAmountFee()));
+        assertEquals(simulator.getPayments().get(0).get("pf_payment_id"), notification.getPfPaymentId());
+    }
+
+    @Test
+    public void testTamperedCheckoutIsRefused() throws Exception {
+        Map<String, String> fields = checkoutFields();
+        fields.put("amount", "1.00");
+
+        assertEquals(400, postCheckout(fields));
+        fields = checkoutFields();
+        fields.put("merchant_key", "wrong");
+        assertEquals(400, postCheckout(fields));
+        assertTrue(simulator.getPayments().isEmpty());
+    }
+
+    @Test
+    public void testValidateConfirmsOnlyIssuedNotifications() throws Exception {
+        ITNConfirmationClient client = ITNConfirmationClient.builder(config).baseUrl(simulator.getBaseUrl()).build();
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("pf_payment_id", "42");
+        fields.put("payment_status", "COMPLETE");
+        fields.put("amount_gross", "10.00");
+
+        assertTrue(client.confirm(simulator.signedItn(fields)));
+        assertFalse(client.confirm(simulator.forgedItn(fields).replace("42", "43")));
+    }
+
+    @Test
+    public void testLoadRunCountsEveryOutcome() throws Exception {
+        LoadReport report = simulator.loadGenerator(notifyUrl)
+            .notifications(300)
+            .concurrency(4)
+            .duplicateRatio(0.1)
+            .invalidRatio(0.1)
+            .seed(42)
+            .build()
+            .run();
+
+        assertEquals(300, report.getSent());
+        assertTrue(report.getDuplicates() > 0);
+        assertTrue(report.getInvalid() > 0);
+        assertEquals(0, report.getErrors());
+        // Duplicates are acknowledged but reach the listener once; forgeries are refused
+        assertEquals(report.getValid() + report.getDuplicates(), report.getStatusCount(200));
+        assertEquals(report.getInvalid(), report.getStatusCount(400));
+        assertEquals(report.getValid(), received.size());
+        assertEquals(report.getValid(), paymentIds.size());
+        assertTrue(report.getThroughput() > 0);
+        assertTrue(report.getLatency(50, TimeUnit.NANOSECONDS) <= report.getLatency(99, TimeUnit.NANOSECONDS));
+        assertTrue(report.getLatency(99, TimeUnit.NANOSECONDS) <= report.getLatency(100, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testRateLimitSpacesNotifications() throws Exception {
+        LoadReport report = simulator.loadGenerator(notifyUrl)
+            .notifications(20)
+            .ratePerSecond(200)
+            .concurrency(2)
+            .build()
+            .run();
+
+        assertEquals(20, report.getStatusCount(200));
+        // The last of 20 notifications is due 95 ms after the first
+        assertTrue(report.getElapsed(TimeUnit.MILLISECONDS) >= 95);
+    }
+
+    private Map<String, String> checkoutFields() throws Exception {
+        PaymentRequest request = new PaymentRequest();
+        request.setNotifyUrl(notifyUrl);
+        request.setMPaymentId("ORDER-1");
+        request.setAmount(new BigDecimal("123.45"));
+        request.setItemName("Café order");
+        return new LinkedHashMap<>(new PayFastService(config).createPaymentFormData(request).getFields());
+    }
+
+    private int postCheckout(Map<String, String> fields) throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            body.append(body.length() == 0 ? "" : "&").append(field.getKey()).append('=')
+                .append(QuotePlusEncoder.encode(field.getValue()));
+        }
+        return PayFastSimulator.post(new URL(simulator.getBaseUrl() + PayFastSimulator.PROCESS_PATH),
+            body.toString().getBytes(StandardCharsets.UTF_8), 5000);
+    }
+}
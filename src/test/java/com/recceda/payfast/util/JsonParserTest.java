@@ -0,0 +1,59 @@
+package com.recceda.payfast.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+public class JsonParserTest {
+
+    @Test
+    public void testParsesNestedValues() {
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("code", "200");
+        expected.put("ok", "true");
+        expected.put("token", null);
+        expected.put("items", Arrays.asList("a\u00e9", "1.50"));
+        expected.put("data", new LinkedHashMap<String, Object>());
+
+        assertEquals(expected, JsonParser.parse(
+            " {\"code\":200, \"ok\":true, \"token\":null, \"items\":[\"a\\u00e9\", 1.50], \"data\":{}} "));
+        assertNull(JsonParser.parse("null"));
+    }
+
+    @Test
+    public void testFlatObjectSkipsNullsAndRejectsNesting() {
+        JsonParser parser = new JsonParser();
+        Map<String, String> row = parser.reset("{\"amount\":10.5,\"note\":\"a\\\"b\",\"custom\":null}").readFlatObject();
+
+        assertEquals(2, row.size());
+        assertEquals("10.5", row.get("amount"));
+        assertEquals("a\"b", row.get("note"));
+
+        parser.reset("{\"a\":[1]}");
+        try {
+            parser.readFlatObject();
+            fail("Read a nested value");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("nested values are not supported", expected.getMessage());
+            assertEquals(5, parser.position());
+        }
+    }
+
+    @Test
+    public void testRejectsMalformedText() {
+        String[] invalid = {"", "{", "{\"a\"}", "{\"a\":1,}", "[1 2]", "\"open", "\"\\u12\"", "{} x", "{a:1}"};
+        for (String text : invalid) {
+            try {
+                JsonParser.parse(text);
+                fail("Parsed " + text);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.recceda.payfast.util;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigInteger;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ * Differential tests against fixtures generated with Python's {@code urllib.parse.quote_plus}
+ * by {@code src/test/resources/quote_plus/generate.py}
+ */
+public class QuotePlusEncoderTest {
+
+    @Test
+    public void testSamplesMatchPythonQuotePlus() throws Exception {
+        List<String[]> samples = fixture("samples.txt");
+        assertEquals(12, samples.size());
+        for (String[] sample : samples) {
+            byte[] utf8 = new byte[sample[0].length() / 2];
+            for (int i = 0; i < utf8.length; i++) {
+                utf8[i] = (byte) Integer.parseInt(sample[0].substring(2 * i, 2 * i + 2), 16);
+            }
+            String input = new String(utf8, StandardCharsets.UTF_8);
+            assertEquals(input, sample[1], asPython(QuotePlusEncoder.encode(input)));
+        }
+    }
+
+    @Test
+    public void testEveryCodePointMatchesPythonQuotePlus() throws Exception {
+        List<String[]> ranges = fixture("ranges.txt");
+        assertEquals(0x110000 / 4096, ranges.size());
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        for (String[] range : ranges) {
+            int start = Integer.parseInt(range[0], 16);
+            int end = Integer.parseInt(range[1], 16);
+            StringBuilder joined = new StringBuilder();
+            for (int cp = start; cp < end; cp++) {
+                if (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE) {
+                    continue;
+                }
+                if (joined.length() > 0) {
+                    joined.append('\n');
+                }
+                joined.append(asPython(QuotePlusEncoder.encode(new String(Character.toChars(cp)))));
+            }
+            byte[] digest = md5.digest(joined.toString().getBytes(StandardCharsets.US_ASCII));
+            assertEquals("Code points " + range[0] + "-" + range[1], range[2], String.format("%032x", new BigInteger(1, digest)));
+        }
+    }
+
+    @Test
+    public void testMatchesURLEncoderAndSigning() throws Exception {
+        String[] values = { "Test Item", "100% ~tilde* star", "Café Crème", "Zoë 😀", "lone \uD800 high", "low \uDC00" };
+        for (String value : values) {
+            String encoded = QuotePlusEncoder.encode(value);
+            assertEquals(URLEncoder.encode(value, "UTF-8"), encoded);
+            assertEquals("v=" + encoded, new String(SignatureEngine.encodeParams("v", value), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    public void testSafeValueIsReturnedAsIs() {
+        String safe = "Order-01_ab.c*";
+        assertSame(safe, QuotePlusEncoder.encode(safe));
+    }
+
+    /**
+     * Python keeps {@code ~} and escapes {@code *}; PayFast signatures use the URLEncoder
+     * convention, so only those two characters are mapped before comparing
+     */
+    private static String asPython(String encoded) {
+        return encoded.replace("*", "%2A").replace("%7E", "~");
+    }
+
+    private static List<String[]> fixture(String name) throws Exception {
+        List<String[]> lines = new ArrayList<>();
+        try (InputStream in = QuotePlusEncoderTest.class.getResourceAsStream("/quote_plus/" + name);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line.split(line.indexOf('\t') >= 0 ? "\t" : " ", -1));
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,74 @@
+package com.recceda.payfast.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+public class RateLimitedLoggerTest {
+
+    private Logger logger;
+    private ListAppender<ILoggingEvent> events;
+    private final AtomicLong clock = new AtomicLong();
+
+    @Before
+    public void setUp() {
+        logger = (Logger) LoggerFactory.getLogger("com.recceda.payfast.util.RateLimitedLoggerTest.target");
+        logger.setAdditive(false);
+        events = new ListAppender<>();
+        events.start();
+        logger.addAppender(events);
+    }
+
+    @After
+    public void tearDown() {
+        logger.detachAppender(events);
+        logger.setLevel(null);
+    }
+
+    @Test
+    public void testLimitsMessagesPerSecondAndReportsSuppressed() {
+        RateLimitedLogger limited = new RateLimitedLogger(logger, 2, clock::get);
+        for (int i = 0; i < 5; i++) {
+            limited.warn("Rejected {}", i);
+        }
+
+        assertEquals(2, events.list.size());
+        assertEquals(3, limited.getSuppressedCount());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        limited.warn("Rejected {}", 5);
+
+        assertEquals(3, events.list.size());
+        assertEquals("Rejected 5 (3 similar messages suppressed)", events.list.get(2).getFormattedMessage());
+        assertEquals(0, limited.getSuppressedCount());
+    }
+
+    @Test
+    public void testNothingIsCountedWhenWarningsAreOff() {
+        logger.setLevel(Level.ERROR);
+        RateLimitedLogger limited = new RateLimitedLogger(logger, 1, clock::get);
+        limited.warn("Rejected");
+        limited.warn("Rejected");
+
+        assertEquals(0, events.list.size());
+        assertEquals(0, limited.getSuppressedCount());
+    }
+
+    @Test
+    public void testZeroLimitSilences() {
+        RateLimitedLogger limited = new RateLimitedLogger(logger, 0, clock::get);
+        limited.warn("Rejected");
+
+        assertEquals(0, events.list.size());
+    }
+}
@@ -0,0 +1,189 @@
+package com.recceda.payfast.util;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import com.recceda.payfast.annotation.FieldSink;
+import com.recceda.payfast.config.PayFastConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class SignatureEngineTest {
+
+    @Test
+    public void testSignMatchesQueryStringHash() throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        engine.addParam("merchant_id", "10000100");
+        engine.addParam("merchant_key", "46f0cd694581a");
+        engine.addParam("amount", "100.00");
+        engine.addParam("item_name", " Test Item ");
+        engine.addPassphrase("jt7NOE43FZPn");
+
+        String expected = md5("merchant_id=10000100&merchant_key=46f0cd694581a&amount=100.00&item_name=Test+Item&passphrase=jt7NOE43FZPn");
+        assertEquals(expected, engine.sign());
+    }
+
+    @Test
+    public void testBlankValuesAndSignatureAreSkipped() throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        assertTrue(engine.addParam("merchant_id", "10000100"));
+        assertFalse(engine.addParam("name_first", "   "));
+        assertFalse(engine.addParam("name_last", null));
+        assertFalse(engine.addParam("signature", "abc"));
+        engine.addPassphrase("  ");
+
+        assertEquals(md5("merchant_id=10000100"), engine.sign());
+    }
+
+    @Test
+    public void testMatchesComparesWithoutCaseFolding() throws Exception {
+        String signature = md5("a=1&passphrase=secret");
+
+        assertTrue(SignatureEngine.current().addRawParam("a", "1").addPassphrase("secret").matches(signature));
+        assertFalse(SignatureEngine.current().addRawParam("a", "1").addPassphrase("secret").matches(signature.toUpperCase()));
+        assertFalse(SignatureEngine.current().addRawParam("a", "1").matches(null));
+    }
+
+    @Test
+    public void testEngineIsResetAfterSigning() throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        engine.addParam("a", "1");
+        String first = engine.sign();
+
+        assertTrue(engine.isEmpty());
+        engine.addParam("a", "1");
+        assertEquals(first, engine.sign());
+    }
+
+    @Test
+    public void testCurrentIsBoundToThread() {
+        assertSame(SignatureEngine.current(), SignatureEngine.current());
+    }
+
+    @Test
+    public void testEncodingMatchesUrlEncoderForRandomUnicode() throws Exception {
+        Random random = new Random(42);
+        for (int run = 0; run < 500; run++) {
+            Map<String, String> params = new LinkedHashMap<>();
+            for (int i = 0; i < 5; i++) {
+                params.put("field" + i, randomValue(random));
+            }
+
+            SignatureEngine engine = SignatureEngine.current();
+            StringBuilder expected = new StringBuilder();
+            for (Map.Entry<String, String> entry : params.entrySet()) {
+                if (engine.addParam(entry.getKey(), entry.getValue())) {
+                    if (expected.length() > 0) expected.append('&');
+                    expected.append(entry.getKey()).append('=')
+                        .append(URLEncoder.encode(entry.getValue().trim(), "UTF-8"));
+                }
+            }
+
+            assertEquals(md5(expected.toString()), engine.sign());
+        }
+    }
+
+    @Test
+    public void testRawValuesAreUtf8Encoded() throws Exception {
+        String value = "Café € 😀 \ud800";
+
+        assertEquals(md5("item_name=" + value), SignatureEngine.current().addRawParam("item_name", value).sign());
+    }
+
+    @Test
+    public void testLongValuesSpanningBuffer() throws Exception {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            value.append(i % 7 == 0 ? 'é' : 'x');
+        }
+
+        String expected = md5("item_description=" + URLEncoder.encode(value.toString(), "UTF-8"));
+        SignatureEngine engine = SignatureEngine.current();
+        engine.addParam("item_description", value.toString());
+        assertEquals(expected, engine.sign());
+    }
+
+    @Test
+    public void testEncodedParamsReplayLikeAddParam() throws Exception {
+        byte[] merchant = SignatureEngine.encodeParams("merchant_id", " 10000100 ", "name_first", "", "item_name", "Café & co");
+        byte[] passphrase = SignatureEngine.encodePassphrase(" jt7NOE43FZPn ");
+
+        assertEquals("merchant_id=10000100&item_name=Caf%C3%A9+%26+co", new String(merchant, StandardCharsets.US_ASCII));
+        assertEquals("passphrase=jt7NOE43FZPn", new String(passphrase, StandardCharsets.US_ASCII));
+        assertEquals(0, SignatureEngine.encodePassphrase("  ").length);
+
+        String replayed = SignatureEngine.current()
+            .addEncodedParam(merchant, 0, merchant.length)
+            .addEncodedParam(passphrase, 0, passphrase.length)
+            .sign();
+        SignatureEngine engine = SignatureEngine.current();
+        engine.addParam("merchant_id", "10000100");
+        engine.addParam("item_name", "Café & co");
+        assertEquals(engine.addPassphrase("jt7NOE43FZPn").sign(), replayed);
+    }
+
+    @Test
+    public void testMerchantPrefixResumesLikeFullSignature() throws Exception {
+        MerchantSigningState merchant = MerchantSigningState.of(
+            new PayFastConfig("10000100", "46f0cd694581a", "jt7NOE43FZPn", true));
+        String[][] urls = {
+            {"https://shop.test/return", "https://shop.test/cancel", "https://shop.test/notify"},
+            {"https://shop.test/return", null, "https://shop.test/notify"},
+            {"https://shop.test/return", "https://shop.test/cancel", "https://shop.test/notify"},
+            {null, null, null},
+        };
+        for (String[] request : urls) {
+            SignatureEngine full = SignatureEngine.current();
+            full.addParam("merchant_id", "10000100");
+            full.addParam("merchant_key", "46f0cd694581a");
+            full.addParam("return_url", request[0]);
+            full.addParam("cancel_url", request[1]);
+            full.addParam("notify_url", request[2]);
+            full.addParam("amount", "100.00");
+            full.addParam("item_name", "Test Item");
+            String expected = full.addPassphrase("jt7NOE43FZPn").sign();
+
+            SignatureEngine engine = merchant.begin(request[0], request[1], request[2]);
+            FieldSink fields = merchant.requestFields(engine);
+            fields.field("merchant_id", "10000100");
+            fields.field("return_url", request[0]);
+            fields.field("amount", "100.00");
+            fields.field("item_name", "Test Item");
+            assertEquals(expected, merchant.sign(engine));
+        }
+    }
+
+    private static String randomValue(Random random) {
+        int length = random.nextInt(40);
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(5)) {
+                case 0: value.append((char) (0x20 + random.nextInt(0x5f))); break;
+                case 1: value.append((char) (0x80 + random.nextInt(0x780))); break;
+                case 2: value.append((char) (0x800 + random.nextInt(0xd000))); break;
+                case 3: value.appendCodePoint(0x10000 + random.nextInt(0xfffff)); break;
+                default: value.append((char) (0xd800 + random.nextInt(0x800))); break;
+            }
+        }
+        return value.toString();
+    }
+
+    private static String md5(String input) throws Exception {
+        byte[] hash = MessageDigest.getInstance("MD5").digest(input.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) hexString.append('0');
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+}
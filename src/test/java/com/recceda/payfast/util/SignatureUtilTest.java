@@ -3,6 +3,7 @@ package com.recceda.payfast.util;
 import java.math.BigDecimal;
 import java.security.MessageDigest;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -14,6 +15,7 @@ import org.junit.Test;
 
 import com.recceda.payfast.exception.SignatureException;
 import com.recceda.payfast.model.PaymentRequest;
+import com.recceda.payfast.model.SubscriptionRequest;
 
 public class SignatureUtilTest {
 
@@ -101,6 +103,32 @@ public class SignatureUtilTest {
     }
 
     
+    @Test
+    public void testValidateSignatureSortsFieldsInAnyMap() throws SignatureException {
+        Map<String, String> params = new HashMap<>();
+        params.put("merchant_id", "10000100");
+        params.put("item_name", "Test Item");
+        params.put("amount", "100.00");
+        String signature = calculateMd5Hash("amount=100.00&item_name=Test Item&merchant_id=10000100&passphrase=passphrase");
+        params.put("signature", signature);
+        
+        assertTrue(SignatureUtil.validateSignature(params, signature, "passphrase"));
+        assertFalse(SignatureUtil.validateITNSignature(params, signature, "passphrase"));
+    }
+    
+    @Test
+    public void testValidateITNSignatureUsesPostedOrder() throws SignatureException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("merchant_id", "10000100");
+        params.put("item_name", "Test Item");
+        params.put("custom_str1", "");
+        String signature = calculateMd5Hash("merchant_id=10000100&item_name=Test+Item&custom_str1=&passphrase=passphrase");
+        params.put("signature", signature);
+        
+        assertTrue(SignatureUtil.validateITNSignature(params, signature, "passphrase"));
+        assertFalse(SignatureUtil.validateSignature(params, signature, "passphrase"));
+    }
+    
     @Test
     public void testConsistentSignatureGeneration() throws SignatureException {
         PaymentRequest request = new PaymentRequest();
@@ -127,6 +155,54 @@ public class SignatureUtilTest {
         assertEquals(32, signature.length()); // MD5 hash length
     }
     
+    @Test
+    public void testGenerateSignatureUsesPayFastOrder() throws SignatureException {
+        PaymentRequest request = new PaymentRequest();
+        request.setItemName("Test Item");
+        request.setAmount(new BigDecimal("100.00"));
+        request.setMerchantKey("46f0cd694581a");
+        request.setMerchantId("10000100");
+        request.setNameFirst(" John ");
+        request.setNameLast("  ");
+        
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("merchant_id", "10000100");
+        params.put("merchant_key", "46f0cd694581a");
+        params.put("name_first", "John");
+        params.put("amount", "100.00");
+        params.put("item_name", "Test Item");
+        
+        assertEquals(SignatureUtil.generateSignatureFromParams(params, "passphrase"),
+            SignatureUtil.generateSignature(request, "passphrase"));
+    }
+    
+    @Test
+    public void testGenerateSignatureIncludesSubclassFields() throws SignatureException {
+        SubscriptionRequest request = new SubscriptionRequest();
+        request.setMerchantId("10000100");
+        request.setMerchantKey("46f0cd694581a");
+        request.setAmount(new BigDecimal("50.00"));
+        request.setItemName("Monthly");
+        request.setRecurringAmount(5000);
+        request.setFrequency(3);
+        request.setCycles(12);
+        request.setSubscriptionNotifyEmail(true);
+        
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("merchant_id", "10000100");
+        params.put("merchant_key", "46f0cd694581a");
+        params.put("amount", "50.00");
+        params.put("item_name", "Monthly");
+        params.put("subscription_type", "1");
+        params.put("recurring_amount", "5000");
+        params.put("frequency", "3");
+        params.put("cycles", "12");
+        params.put("subscription_notify_email", "true");
+        
+        assertEquals(SignatureUtil.generateSignatureFromParams(params, "passphrase"),
+            SignatureUtil.generateSignature(request, "passphrase"));
+    }
+    
     private PaymentRequest createRequestFromParams(Map<String, String> params) {
         PaymentRequest request = new PaymentRequest();
         if (params.containsKey("merchant_id")) request.setMerchantId(params.get("merchant_id"));
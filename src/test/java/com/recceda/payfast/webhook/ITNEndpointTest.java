@@ -0,0 +1,165 @@
+package com.recceda.payfast.webhook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.recceda.payfast.config.PayFastConfig;
+import com.recceda.payfast.exception.ValidationException;
+import com.recceda.payfast.handler.ITNHandler;
+import com.recceda.payfast.handler.PayFastSourceValidator;
+import com.recceda.payfast.idempotency.IdempotentITNHandler;
+import com.recceda.payfast.util.SignatureEngine;
+
+public class ITNEndpointTest {
+
+    private static final String PASSPHRASE = "jt7NOE43FZPn";
+    private static final String FIELDS = "m_payment_id=01AB&pf_payment_id=1089250&payment_status=COMPLETE"
+        + "&item_name=Test+Item&amount_gross=200.00&merchant_id=10000100";
+
+    private ITNHandler handler;
+    private ITNEndpoint endpoint;
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws Exception {
+        handler = new ITNHandler(new PayFastConfig("10000100", "46f0cd694581a", PASSPHRASE, true));
+    }
+
+    @After
+    public void tearDown() {
+        if (endpoint != null) {
+            endpoint.close();
+        }
+    }
+
+    @Test
+    public void testValidNotificationReachesListener() throws Exception {
+        start(ITNEndpoint.builder(result -> received.add(result.getNotification().getMPaymentId())).handler(handler));
+
+        assertEquals(200, post(signed(FIELDS)));
+        assertEquals("01AB", received.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testForgedNotificationIsAcknowledgedButDropped() throws Exception {
+        start(ITNEndpoint.builder(result -> received.add("called")).handler(handler));
+
+        assertEquals(200, post(FIELDS + "&signature=00000000000000000000000000000000"));
+        assertEquals(200, post(signed(FIELDS)));
+        assertEquals("called", received.poll(5, TimeUnit.SECONDS));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testAcknowledgeAfterProcessingReportsFailures() throws Exception {
+        start(ITNEndpoint.builder(result -> {
+            if (received.isEmpty()) {
+                received.add("failed");
+                throw new IllegalStateException("Database down");
+            }
+            received.add("stored");
+        }).idempotentHandler(IdempotentITNHandler.builder(handler).build()).acknowledgeAfterProcessing());
+
+        String body = signed(FIELDS);
+        assertEquals(400, post(FIELDS + "&signature=00000000000000000000000000000000"));
+        assertEquals(500, post(body));
+        // The failed delivery was released, so PayFast's retry is processed
+        assertEquals(200, post(body));
+        assertEquals(200, post(body));
+        assertEquals(Arrays.asList("failed", "stored"), Arrays.asList(received.toArray()));
+    }
+
+    @Test
+    public void testListenerValidationExceptionReleasesNotification() throws Exception {
+        start(ITNEndpoint.builder(result -> {
+            if (received.isEmpty()) {
+                received.add("rejected");
+                throw new ValidationException("Unknown order");
+            }
+            received.add("stored");
+        }).idempotentHandler(IdempotentITNHandler.builder(handler).build()).acknowledgeAfterProcessing());
+
+        String body = signed(FIELDS);
+        assertEquals(500, post(body));
+        // Not recorded as processed, so the retry reaches the listener
+        assertEquals(200, post(body));
+        assertEquals(Arrays.asList("rejected", "stored"), Arrays.asList(received.toArray()));
+    }
+
+    @Test
+    public void testRefusedRequests() throws Exception {
+        start(ITNEndpoint.builder(result -> received.add("called")).handler(handler).maxBodyBytes(64));
+
+        assertEquals(413, post(signed(FIELDS)));
+        HttpURLConnection get = (HttpURLConnection) url().openConnection();
+        assertEquals(405, get.getResponseCode());
+        assertEquals("POST", get.getHeaderField("Allow"));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSourceValidatorRefusesOtherAddresses() throws Exception {
+        PayFastSourceValidator payFastOnly = PayFastSourceValidator.builder()
+            .hosts(Collections.<String>emptyList()).refreshInterval(0, TimeUnit.SECONDS).build();
+        start(ITNEndpoint.builder(result -> received.add("called")).handler(handler).sourceValidator(payFastOnly));
+
+        assertEquals(403, post(signed(FIELDS)));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private void start(ITNEndpoint.Builder builder) throws Exception {
+        endpoint = builder.address(new InetSocketAddress("127.0.0.1", 0)).build();
+        endpoint.start();
+        assertNotNull(endpoint.getAddress());
+    }
+
+    private URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + endpoint.getAddress().getPort() + "/payfast/itn");
+    }
+
+    private int post(String body) throws IOException {
+        byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection) url().openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(payload.length);
+        connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(payload);
+        } catch (IOException e) {
+            // The server may refuse before reading the whole body
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            in.close();
+        }
+        return status;
+    }
+
+    private static String signed(String fields) throws Exception {
+        SignatureEngine engine = SignatureEngine.current();
+        for (String field : fields.split("&")) {
+            byte[] pair = field.getBytes(StandardCharsets.US_ASCII);
+            engine.addEncodedParam(pair, 0, pair.length);
+        }
+        return fields + "&signature=" + engine.addPassphrase(PASSPHRASE).sign();
+    }
+}
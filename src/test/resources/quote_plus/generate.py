@@ -0,0 +1,47 @@
+#!/usr/bin/env python3
+"""Regenerates the quote_plus fixtures used by QuotePlusEncoderTest.
+
+    python3 src/test/resources/quote_plus/generate.py
+
+samples.txt holds hex-encoded UTF-8 inputs and their quote_plus output, one per line.
+ranges.txt covers every code point outside the surrogate block in blocks of 4096: the
+MD5 of the quote_plus output of each code point, joined with newlines.
+"""
+import hashlib
+import os
+from urllib.parse import quote_plus
+
+HERE = os.path.dirname(os.path.abspath(__file__))
+BLOCK = 4096
+
+SAMPLES = [
+    "",
+    "plain",
+    "Test Item",
+    "  padded  ",
+    "a+b=c&d",
+    "100% ~tilde* star",
+    "https://shop.test/return?order=1&x=2",
+    "Café Crème",
+    " ÿĀ߿ࠀ￿",
+    "Zoë \U0001F600 \U0010FFFF",
+    "中文 العربية",
+    "".join(chr(c) for c in range(128)),
+]
+
+
+def main():
+    with open(os.path.join(HERE, "samples.txt"), "w", newline="\n") as out:
+        for sample in SAMPLES:
+            out.write("%s\t%s\n" % (sample.encode("utf-8").hex(), quote_plus(sample)))
+
+    with open(os.path.join(HERE, "ranges.txt"), "w", newline="\n") as out:
+        for start in range(0, 0x110000, BLOCK):
+            end = start + BLOCK
+            encoded = [quote_plus(chr(cp)) for cp in range(start, end) if not 0xD800 <= cp <= 0xDFFF]
+            digest = hashlib.md5("\n".join(encoded).encode("ascii")).hexdigest()
+            out.write("%x %x %s\n" % (start, end, digest))
+
+
+if __name__ == "__main__":
+    main()